@@ -17,6 +17,8 @@ package org.jose4j.http;
 
 import org.jose4j.lang.StringUtil;
 import org.jose4j.lang.UncheckedJoseException;
+import org.jose4j.metrics.JoseMetrics;
+import org.jose4j.metrics.Timing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,6 +64,27 @@ public class Get implements SimpleGet
 
     @Override
     public SimpleResponse get(String location) throws IOException
+    {
+        Timing timing = Timing.start(JoseMetrics.Operation.HTTP_GET);
+        if (timing == null)
+        {
+            return doGet(location);
+        }
+
+        boolean success = false;
+        try
+        {
+            SimpleResponse simpleResponse = doGet(location);
+            success = true;
+            return simpleResponse;
+        }
+        finally
+        {
+            timing.end(location, success);
+        }
+    }
+
+    private SimpleResponse doGet(String location) throws IOException
     {
         int attempts = 0;
         log.debug("HTTP GET of {}", location);
@@ -108,7 +131,18 @@ public class Get implements SimpleGet
                 }
                 long retryWaitTime = getRetryWaitTime(attempts);
                 log.debug("Waiting {}ms before retrying ({} of {}) HTTP GET of {} after failed attempt: {}", retryWaitTime, attempts, retries, url, e);
-                try { Thread.sleep(retryWaitTime); } catch (InterruptedException ie) { /* ignore */ }
+                try
+                {
+                    Thread.sleep(retryWaitTime);
+                }
+                catch (InterruptedException ie)
+                {
+                    // give up on retrying and keep the interrupt status so whoever interrupted the thread gets what they asked for
+                    Thread.currentThread().interrupt();
+                    InterruptedIOException interrupted = new InterruptedIOException("Interrupted while waiting to retry HTTP GET of " + url);
+                    interrupted.addSuppressed(e);
+                    throw interrupted;
+                }
             }
         }
     }
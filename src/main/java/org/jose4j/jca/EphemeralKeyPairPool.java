@@ -0,0 +1,228 @@
+package org.jose4j.jca;
+
+import org.jose4j.keys.EcKeyUtil;
+import org.jose4j.keys.EllipticCurves;
+import org.jose4j.keys.OctetKeyPairUtil;
+import org.jose4j.lang.ExceptionHelp;
+import org.jose4j.lang.JoseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.security.spec.ECParameterSpec;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of pre-generated, single-use ephemeral key pairs for ECDH-ES key agreement, which can be set on the
+ * {@link ProviderContext} used to produce a JWE with {@link ProviderContext#setEphemeralKeyPairPool(EphemeralKeyPairPool)}.
+ * Generating the ephemeral key pair is a significant part of the cost of ECDH-ES encryption and this
+ * moves that work off of the encrypting thread to a background one that keeps the pool topped up.
+ * <p>
+ * Key pairs are held per curve (like "P-256", "P-521" or "X25519") in a lock-free queue and each is handed
+ * out exactly once. When the pool for a curve is empty, {@link #take(String)} returns {@code null} and the caller
+ * generates the key pair inline, as it would have without the pool.
+ */
+public class EphemeralKeyPairPool
+{
+    private static final Logger log = LoggerFactory.getLogger(EphemeralKeyPairPool.class);
+
+    public static final int DEFAULT_TARGET_SIZE = 32;
+
+    private final ConcurrentMap<String, CurvePool> pools = new ConcurrentHashMap<>();
+    private final int targetSize;
+    private final Executor executor;
+
+    private volatile String keyPairGeneratorProvider;
+    private volatile SecureRandom secureRandom;
+
+    /**
+     * Creates a pool that keeps up to {@link #DEFAULT_TARGET_SIZE} key pairs per curve,
+     * which are generated on a single background daemon thread that's shared by all the pools created this way.
+     * That thread is started when first needed and is never shut down, so there's nothing to close.
+     * Use {@link #EphemeralKeyPairPool(int, Executor)} to control the thread(s) and their lifecycle.
+     */
+    public EphemeralKeyPairPool()
+    {
+        this(DEFAULT_TARGET_SIZE, SharedExecutor.INSTANCE);
+    }
+
+    /**
+     * Creates a pool that keeps up to the given number of key pairs per curve,
+     * which are generated using the given executor.
+     * @param targetSize the number of key pairs to keep on hand per curve
+     * @param executor runs the tasks that (re)fill the pool
+     */
+    public EphemeralKeyPairPool(int targetSize, Executor executor)
+    {
+        if (targetSize < 1)
+        {
+            throw new IllegalArgumentException("targetSize must be greater than zero but was " + targetSize);
+        }
+        this.targetSize = targetSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the JCA provider to be used for generating key pairs.
+     * @param keyPairGeneratorProvider the provider name or {@code null} for the system configured providers
+     */
+    public void setKeyPairGeneratorProvider(String keyPairGeneratorProvider)
+    {
+        this.keyPairGeneratorProvider = keyPairGeneratorProvider;
+    }
+
+    /**
+     * Sets the secure random generator to be used for generating key pairs.
+     * @param secureRandom the SecureRandom to use or {@code null} for a default system one.
+     */
+    public void setSecureRandom(SecureRandom secureRandom)
+    {
+        this.secureRandom = secureRandom;
+    }
+
+    /**
+     * Starts filling the pool for the given curves ahead of their first use.
+     * @param curveNames the names of the curves, such as "P-256" or "X25519"
+     */
+    public void prefill(String... curveNames)
+    {
+        for (String curveName : curveNames)
+        {
+            getCurvePool(curveName).scheduleFill();
+        }
+    }
+
+    /**
+     * Takes a key pair for the named curve out of the pool. The key pair is never given out again.
+     * @param curveName the name of the curve, such as "P-256" or "X25519"
+     * @return the key pair or {@code null}, if the pool for the curve is currently empty
+     */
+    public KeyPair take(String curveName)
+    {
+        CurvePool curvePool = getCurvePool(curveName);
+        KeyPair keyPair = curvePool.poll();
+        if (curvePool.size.get() <= targetSize / 2)
+        {
+            curvePool.scheduleFill();
+        }
+        return keyPair;
+    }
+
+    int size(String curveName)
+    {
+        CurvePool curvePool = pools.get(curveName);
+        return curvePool == null ? 0 : curvePool.size.get();
+    }
+
+    private CurvePool getCurvePool(String curveName)
+    {
+        CurvePool curvePool = pools.get(curveName);
+        if (curvePool == null)
+        {
+            CurvePool newCurvePool = new CurvePool(curveName);
+            curvePool = pools.putIfAbsent(curveName, newCurvePool);
+            curvePool = (curvePool == null) ? newCurvePool : curvePool;
+        }
+        return curvePool;
+    }
+
+    private KeyPair generate(String curveName) throws JoseException
+    {
+        ECParameterSpec spec = EllipticCurves.getSpec(curveName);
+        if (spec != null)
+        {
+            return new EcKeyUtil(keyPairGeneratorProvider, secureRandom).generateKeyPair(spec);
+        }
+
+        OctetKeyPairUtil octetKeyPairUtil = OctetKeyPairUtil.getOctetKeyPairUtil(curveName, keyPairGeneratorProvider, secureRandom);
+        if (octetKeyPairUtil == null)
+        {
+            throw new JoseException("Unknown or unsupported curve " + curveName);
+        }
+        return octetKeyPairUtil.generateKeyPair(curveName);
+    }
+
+    // created on first use of the no-arg constructor
+    private static class SharedExecutor
+    {
+        private static final Executor INSTANCE = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "jose4j-ephemeral-key-pair-pool");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private class CurvePool implements Runnable
+    {
+        private final String curveName;
+        private final Queue<KeyPair> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean filling = new AtomicBoolean();
+
+        private CurvePool(String curveName)
+        {
+            this.curveName = curveName;
+        }
+
+        KeyPair poll()
+        {
+            KeyPair keyPair = queue.poll();
+            if (keyPair != null)
+            {
+                size.decrementAndGet();
+            }
+            return keyPair;
+        }
+
+        void scheduleFill()
+        {
+            if (filling.compareAndSet(false, true))
+            {
+                try
+                {
+                    executor.execute(this);
+                }
+                catch (RuntimeException e)
+                {
+                    filling.set(false);
+                    log.debug("Unable to schedule filling the {} ephemeral key pair pool: {}", curveName, ExceptionHelp.toStringWithCauses(e));
+                }
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while (size.get() < targetSize)
+                {
+                    queue.offer(generate(curveName));
+                    size.incrementAndGet();
+                }
+            }
+            catch (JoseException | RuntimeException e)
+            {
+                log.debug("Unable to generate {} ephemeral key pairs: {}", curveName, ExceptionHelp.toStringWithCauses(e));
+            }
+            finally
+            {
+                filling.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.jose4j.jca;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small, bounded and non-blocking pool of reusable objects, like JCA engine classes ({@code KeyFactory},
+ * {@code CertificateFactory}, {@code Cipher}, {@code Mac}, etc.), grouped by a key that identifies how they
+ * were obtained (typically the algorithm and provider). Such objects aren't generally thread safe so an instance
+ * is taken from the pool for the exclusive use of the caller and then released back to the pool when done.
+ * When nothing is available, {@link #take(String)} returns {@code null} and the caller creates a new instance as usual.
+ *
+ * @param <T> the type of the pooled objects
+ */
+public class InstancePool<T>
+{
+    public static final int DEFAULT_MAX_IDLE_PER_KEY = 16;
+
+    private final ConcurrentMap<String, Idle<T>> pools = new ConcurrentHashMap<>();
+    private final int maxIdlePerKey;
+
+    public InstancePool()
+    {
+        this(DEFAULT_MAX_IDLE_PER_KEY);
+    }
+
+    /**
+     * @param maxIdlePerKey the maximum number of unused instances to retain for each key
+     */
+    public InstancePool(int maxIdlePerKey)
+    {
+        this.maxIdlePerKey = maxIdlePerKey;
+    }
+
+    /**
+     * Takes an idle instance out of the pool.
+     * @param key identifies the kind of instance
+     * @return the instance or {@code null}, if none are available
+     */
+    public T take(String key)
+    {
+        Idle<T> idle = pools.get(key);
+        return (idle == null) ? null : idle.poll();
+    }
+
+    /**
+     * Releases an instance back to the pool, making it available to subsequent callers of {@link #take(String)}.
+     * The instance is simply dropped if the pool is already holding the maximum number of idle instances for the key.
+     * @param key identifies the kind of instance
+     * @param instance the instance, which the caller must not use after releasing it
+     */
+    public void release(String key, T instance)
+    {
+        if (instance == null || maxIdlePerKey < 1)
+        {
+            return;
+        }
+
+        Idle<T> idle = pools.get(key);
+        if (idle == null)
+        {
+            Idle<T> newIdle = new Idle<>();
+            idle = pools.putIfAbsent(key, newIdle);
+            idle = (idle == null) ? newIdle : idle;
+        }
+        idle.offer(instance, maxIdlePerKey);
+    }
+
+    /**
+     * Removes all idle instances from the pool.
+     */
+    public void clear()
+    {
+        pools.clear();
+    }
+
+    /**
+     * Makes a pool key from the given parts (algorithm name, provider name, etc.) some of which may be {@code null}.
+     * @param parts the parts of the key
+     * @return the key
+     */
+    public static String key(String... parts)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts)
+        {
+            sb.append(part == null ? "" : part).append('|');
+        }
+        return sb.toString();
+    }
+
+    private static class Idle<T>
+    {
+        private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+
+        T poll()
+        {
+            T instance = queue.poll();
+            if (instance != null)
+            {
+                size.decrementAndGet();
+            }
+            return instance;
+        }
+
+        void offer(T instance, int max)
+        {
+            if (size.incrementAndGet() <= max)
+            {
+                queue.offer(instance);
+            }
+            else
+            {
+                size.decrementAndGet();
+            }
+        }
+    }
+}
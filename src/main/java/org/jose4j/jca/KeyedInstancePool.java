@@ -0,0 +1,151 @@
+package org.jose4j.jca;
+
+import java.security.Key;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small, bounded pool of objects that stay initialized with a particular long-lived key, like a {@code Cipher}
+ * kept initialized with an RSA private key or an AES key encryption key, grouped by the identity of that key
+ * (not its value) along with a string that identifies how they were obtained (typically the algorithm and provider).
+ * <p>
+ * This is the one place in jose4j where pooled instances keep a key after being released. Instances pooled
+ * by algorithm alone, like those of {@link InstancePool}, get used with a different key every time and are
+ * re-keyed with a throwaway key when released. Here the idle instances do keep their key reachable, which is what
+ * lets them be reused without the setup for that key, so how many distinct keys the pool holds instances for is
+ * bounded: when a new key comes along past that bound, the idle instances of the least recently used key are dropped.
+ *
+ * @param <T> the type of the pooled objects
+ */
+public class KeyedInstancePool<T>
+{
+    public static final int DEFAULT_MAX_KEYS = 8;
+    public static final int DEFAULT_MAX_IDLE_PER_KEY = 16;
+
+    private final int maxIdlePerKey;
+    private final Map<PoolKey, Deque<T>> pools;
+
+    public KeyedInstancePool()
+    {
+        this(DEFAULT_MAX_KEYS, DEFAULT_MAX_IDLE_PER_KEY);
+    }
+
+    /**
+     * @param maxKeys the maximum number of distinct keys to retain idle instances for
+     * @param maxIdlePerKey the maximum number of unused instances to retain for each key
+     */
+    public KeyedInstancePool(final int maxKeys, int maxIdlePerKey)
+    {
+        this.maxIdlePerKey = maxIdlePerKey;
+        this.pools = new LinkedHashMap<PoolKey, Deque<T>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PoolKey, Deque<T>> eldest)
+            {
+                return size() > maxKeys;
+            }
+        };
+    }
+
+    /**
+     * Takes an idle instance, initialized with the given key, out of the pool.
+     * @param key the key instance
+     * @param kind identifies the kind of instance
+     * @return the instance or {@code null}, if none are available
+     */
+    public synchronized T take(Key key, String kind)
+    {
+        Deque<T> idle = pools.get(new PoolKey(key, kind));
+        return (idle == null) ? null : idle.pollFirst();
+    }
+
+    /**
+     * Releases an instance, which is initialized with the given key, back to the pool.
+     * The instance is simply dropped if the pool is already holding the maximum number of idle instances for the key.
+     * @param key the key instance
+     * @param kind identifies the kind of instance
+     * @param instance the instance, which the caller must not use after releasing it
+     */
+    public synchronized void release(Key key, String kind, T instance)
+    {
+        if (instance == null || maxIdlePerKey < 1)
+        {
+            return;
+        }
+
+        PoolKey poolKey = new PoolKey(key, kind);
+        Deque<T> idle = pools.get(poolKey);
+        if (idle == null)
+        {
+            idle = new ArrayDeque<>();
+            pools.put(poolKey, idle);
+        }
+        if (idle.size() < maxIdlePerKey)
+        {
+            idle.addFirst(instance);
+        }
+    }
+
+    /**
+     * Removes all idle instances for the given key instance.
+     * @param key the key instance
+     */
+    public synchronized void remove(Key key)
+    {
+        for (Iterator<PoolKey> iterator = pools.keySet().iterator(); iterator.hasNext();)
+        {
+            if (iterator.next().key == key)
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all idle instances from the pool.
+     */
+    public synchronized void clear()
+    {
+        pools.clear();
+    }
+
+    /**
+     * @return the number of distinct keys the pool is currently holding idle instances for
+     */
+    public synchronized int keyCount()
+    {
+        return pools.size();
+    }
+
+    private static final class PoolKey
+    {
+        private final Key key;
+        private final String kind;
+
+        private PoolKey(Key key, String kind)
+        {
+            this.key = key;
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof PoolKey))
+            {
+                return false;
+            }
+            PoolKey other = (PoolKey) o;
+            return key == other.key && kind.equals(other.kind);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * System.identityHashCode(key) + kind.hashCode();
+        }
+    }
+}
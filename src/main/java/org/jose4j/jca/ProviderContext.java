@@ -50,6 +50,7 @@ import java.security.spec.AlgorithmParameterSpec;
 public class ProviderContext
 {
     private SecureRandom secureRandom;
+    private EphemeralKeyPairPool ephemeralKeyPairPool;
     private Context suppliedKeyProviderContext = new Context();
     private Context generalProviderContext = new Context();
 
@@ -94,6 +95,27 @@ public class ProviderContext
         this.secureRandom = secureRandom;
     }
 
+    /**
+     * Gets the pool of pre-generated ephemeral key pairs used for ECDH-ES key agreement.
+     *
+     * @return the pool or {@code null}, if ephemeral key pairs are generated as needed.
+     */
+    public EphemeralKeyPairPool getEphemeralKeyPairPool()
+    {
+        return ephemeralKeyPairPool;
+    }
+
+    /**
+     * Sets a pool of pre-generated ephemeral key pairs to be used for ECDH-ES key agreement when producing a JWE.
+     * Note that the pool generates key pairs with its own provider and secure random configuration.
+     *
+     * @param ephemeralKeyPairPool the pool or {@code null} (the default) to generate ephemeral key pairs as needed.
+     */
+    public void setEphemeralKeyPairPool(EphemeralKeyPairPool ephemeralKeyPairPool)
+    {
+        this.ephemeralKeyPairPool = ephemeralKeyPairPool;
+    }
+
     /**
      * Allows for a provider to be named for various operations.
      * Not all operations are relevant in any particular JOSE context.
@@ -106,6 +128,7 @@ public class ProviderContext
         private String keyAgreementProvider;
         private String cipherProvider;
         private KeyDecipherMode keyDecipherModeOverride;
+        private AesKeyWrapImplementation aesKeyWrapImplementation;
         private String signatureProvider;
         private SignatureAlgorithmOverride signatureAlgorithmOverride;
         private String macProvider;
@@ -216,6 +239,30 @@ public class ProviderContext
             this.keyDecipherModeOverride = keyDecipherModeOverride;
         }
 
+        /**
+         * Gets how AES Key Wrap (A128KW, A192KW, A256KW and the key wrapping parts of ECDH-ES+AxxxKW and PBES2) is done.
+         * @return the implementation or {@code null} for the default, which is {@link AesKeyWrapImplementation#AES_WRAP}
+         */
+        public AesKeyWrapImplementation getAesKeyWrapImplementation()
+        {
+            return aesKeyWrapImplementation;
+        }
+
+        /**
+         * Sets how AES Key Wrap is done. {@link AesKeyWrapImplementation#AES_ECB} does the RFC 3394 wrapping
+         * with jose4j's own code over an {@code AES/ECB/NoPadding} cipher from the cipher provider. Those ciphers
+         * are pooled by the identity of the key encryption key, so when the same {@code Key} instance is used again
+         * the key schedule isn't redone, and idle ones keep a bounded number of recently used key encryption keys
+         * reachable (see {@link KeyedInstancePool}). A key encryption key that's new every time, as with PBES2 or
+         * ECDH-ES+AxxxKW, doesn't benefit.
+         * The {@link #setKeyDecipherModeOverride(KeyDecipherMode)} has no bearing on it.
+         * @param aesKeyWrapImplementation the implementation
+         */
+        public void setAesKeyWrapImplementation(AesKeyWrapImplementation aesKeyWrapImplementation)
+        {
+            this.aesKeyWrapImplementation = aesKeyWrapImplementation;
+        }
+
         /**
          * Gets the JCA provider to be used for relevant {@code Signature} operations.
          * @return the name of the provider or {@code null} for the system configured providers.
@@ -369,4 +416,10 @@ public class ProviderContext
      */
     public enum KeyDecipherMode {UNWRAP, DECRYPT}
 
+    /**
+     * How AES Key Wrap is done: with the JCA {@code AESWrap} cipher or with an {@code AES/ECB/NoPadding} cipher
+     * and jose4j's implementation of the RFC 3394 algorithm.
+     */
+    public enum AesKeyWrapImplementation {AES_WRAP, AES_ECB}
+
 }
@@ -22,19 +22,32 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
 /**
+ * The algorithms that can be used for a header parameter, looked up by identifier. Whether or not a registered
+ * algorithm is actually available (which can mean creating JCA objects or even generating a key) isn't checked
+ * until the algorithm is first looked up, so only the algorithms that get used are checked.
+ * Identifiers listed, comma separated, in the {@value #AVAILABLE_ALGORITHMS_PROPERTY_NAME} system property are
+ * taken to be available without checking, which allows for a snapshot from
+ * {@link AlgorithmFactoryFactory#getAvailabilitySnapshot()} on a like runtime to be used to skip the checks entirely.
+ * Registering or unregistering an algorithm publishes a new immutable copy of the registry so lookups never lock.
  */
 public class AlgorithmFactory<A extends Algorithm>
 {
+    public static final String AVAILABLE_ALGORITHMS_PROPERTY_NAME = "org.jose4j.jwa.available-algorithms";
+
+    private static final Set<String> KNOWN_AVAILABLE = knownAvailable();
+
     private final Logger log;
 
     private String parameterName;
 
-    private final Map<String,A> algorithms = new LinkedHashMap<>();
+    private volatile Map<String,Registration<A>> algorithms = Collections.emptyMap();
 
     public AlgorithmFactory(String parameterName, Class<A> type)
     {
@@ -44,39 +57,82 @@ public class AlgorithmFactory<A extends Algorithm>
 
     public A getAlgorithm(String algorithmIdentifier) throws InvalidAlgorithmException
     {
-        A algo = algorithms.get(algorithmIdentifier);
+        return getAlgorithm(algorithmIdentifier, algorithms);
+    }
+
+    private A getAlgorithm(String algorithmIdentifier, Map<String,Registration<A>> registrations) throws InvalidAlgorithmException
+    {
+        Registration<A> registration = registrations.get(algorithmIdentifier);
 
-        if (algo == null)
+        if (registration == null || !isAvailable(registration))
         {
             throw new InvalidAlgorithmException(algorithmIdentifier + " is an unknown, unsupported or unavailable "+parameterName
                     +" algorithm (not one of " + getSupportedAlgorithms() + ").");
         }
         
-        return algo;
+        return registration.algorithm;
     }
 
     public boolean isAvailable(String algorithmIdentifier)
     {
-        return algorithms.containsKey(algorithmIdentifier);
+        Registration<A> registration = algorithms.get(algorithmIdentifier);
+        return registration != null && isAvailable(registration);
     }
 
     public Set<String> getSupportedAlgorithms()
     {
-        return Collections.unmodifiableSet(algorithms.keySet());
+        Set<String> supported = new LinkedHashSet<>();
+        for (Map.Entry<String,Registration<A>> entry : algorithms.entrySet())
+        {
+            if (isAvailable(entry.getValue()))
+            {
+                supported.add(entry.getKey());
+            }
+        }
+        return Collections.unmodifiableSet(supported);
     }
 
-    public void registerAlgorithm(A algorithm)
+    public synchronized void registerAlgorithm(A algorithm)
     {
         String algId = algorithm.getAlgorithmIdentifier();
-        if (isAvailable(algorithm))
+        Registration<A> registration = new Registration<>(algorithm);
+        if (KNOWN_AVAILABLE.contains(algId))
         {
-            algorithms.put(algId, algorithm);
-            log.debug("{} registered for {} algorithm {}", algorithm, parameterName, algId);
+            registration.available = Boolean.TRUE;
         }
-        else
+
+        Registration<A> existing = algorithms.get(algId);
+        if (existing != null && isAvailable(existing) && !isAvailable(registration))
         {
-            log.debug("{} is unavailable so will not be registered for {} algorithms.", algId, parameterName);
+            // an unavailable algorithm doesn't get to replace one that works
+            return;
         }
+
+        Map<String,Registration<A>> copy = new LinkedHashMap<>(algorithms);
+        copy.put(algId, registration);
+        algorithms = Collections.unmodifiableMap(copy);
+    }
+
+    private boolean isAvailable(Registration<A> registration)
+    {
+        Boolean available = registration.available;
+        if (available == null)
+        {
+            // checked at most a few times, if threads race to it, which is harmless
+            A algorithm = registration.algorithm;
+            available = isAvailable(algorithm);
+            registration.available = available;
+            String algId = algorithm.getAlgorithmIdentifier();
+            if (available)
+            {
+                log.debug("{} registered for {} algorithm {}", algorithm, parameterName, algId);
+            }
+            else
+            {
+                log.debug("{} is unavailable so will not be registered for {} algorithms.", algId, parameterName);
+            }
+        }
+        return available;
     }
 
     private boolean isAvailable(A algorithm)
@@ -93,8 +149,44 @@ public class AlgorithmFactory<A extends Algorithm>
     }
 
 
-    public void unregisterAlgorithm(String algorithmIdentifier)
+    public synchronized void unregisterAlgorithm(String algorithmIdentifier)
+    {
+        if (algorithms.containsKey(algorithmIdentifier))
+        {
+            Map<String,Registration<A>> copy = new LinkedHashMap<>(algorithms);
+            copy.remove(algorithmIdentifier);
+            algorithms = Collections.unmodifiableMap(copy);
+        }
+    }
+
+    private static Set<String> knownAvailable()
+    {
+        String value = System.getProperty(AVAILABLE_ALGORITHMS_PROPERTY_NAME);
+        if (value == null)
+        {
+            return Collections.emptySet();
+        }
+
+        Set<String> knownAvailable = new HashSet<>();
+        for (String algId : value.split(","))
+        {
+            algId = algId.trim();
+            if (!algId.isEmpty())
+            {
+                knownAvailable.add(algId);
+            }
+        }
+        return knownAvailable;
+    }
+
+    private static class Registration<A>
     {
-        algorithms.remove(algorithmIdentifier);
+        private final A algorithm;
+        private volatile Boolean available;
+
+        private Registration(A algorithm)
+        {
+            this.algorithm = algorithm;
+        }
     }
 }
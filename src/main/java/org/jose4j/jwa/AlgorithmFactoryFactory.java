@@ -26,6 +26,8 @@ import org.slf4j.LoggerFactory;
 
 import java.security.Security;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  */
@@ -76,8 +78,6 @@ public class AlgorithmFactoryFactory
         jwsAlgorithmFactory.registerAlgorithm(new RsaUsingShaAlgorithm.RsaPssSha384());
         jwsAlgorithmFactory.registerAlgorithm(new RsaUsingShaAlgorithm.RsaPssSha512());
 
-        log.debug("JWS signature algorithms: {}", jwsAlgorithmFactory.getSupportedAlgorithms());
-
         jweKeyMgmtModeAlgorithmFactory = new AlgorithmFactory<>(HeaderParameterNames.ALGORITHM, KeyManagementAlgorithm.class);
         jweKeyMgmtModeAlgorithmFactory.registerAlgorithm(new RsaKeyManagementAlgorithm.Rsa1_5());
         jweKeyMgmtModeAlgorithmFactory.registerAlgorithm(new RsaKeyManagementAlgorithm.RsaOaep());
@@ -97,8 +97,6 @@ public class AlgorithmFactoryFactory
         jweKeyMgmtModeAlgorithmFactory.registerAlgorithm(new AesGcmKeyEncryptionAlgorithm.Aes192Gcm());
         jweKeyMgmtModeAlgorithmFactory.registerAlgorithm(new AesGcmKeyEncryptionAlgorithm.Aes256Gcm());
 
-        log.debug("JWE key management algorithms: {}", jweKeyMgmtModeAlgorithmFactory.getSupportedAlgorithms());
-
         jweContentEncryptionAlgorithmFactory = new AlgorithmFactory<>(HeaderParameterNames.ENCRYPTION_METHOD, ContentEncryptionAlgorithm.class);
         jweContentEncryptionAlgorithmFactory.registerAlgorithm(new AesCbcHmacSha2ContentEncryptionAlgorithm.Aes128CbcHmacSha256());
         jweContentEncryptionAlgorithmFactory.registerAlgorithm(new AesCbcHmacSha2ContentEncryptionAlgorithm.Aes192CbcHmacSha384());
@@ -107,12 +105,10 @@ public class AlgorithmFactoryFactory
         jweContentEncryptionAlgorithmFactory.registerAlgorithm(new AesGcmContentEncryptionAlgorithm.Aes192Gcm());
         jweContentEncryptionAlgorithmFactory.registerAlgorithm(new AesGcmContentEncryptionAlgorithm.Aes256Gcm());
 
-        log.debug("JWE content encryption algorithms: {}", jweContentEncryptionAlgorithmFactory.getSupportedAlgorithms());
-
         compressionAlgorithmFactory = new AlgorithmFactory<>(HeaderParameterNames.ZIP, CompressionAlgorithm.class);
         compressionAlgorithmFactory.registerAlgorithm(new DeflateRFC1951CompressionAlgorithm());
 
-        log.debug("JWE compression algorithms: {}", compressionAlgorithmFactory.getSupportedAlgorithms());
+        // the availability of the algorithms isn't checked until they're used, see AlgorithmFactory
         log.debug("Initialized jose4j in {}ms", (System.currentTimeMillis() - startTime));
     }
 
@@ -140,4 +136,19 @@ public class AlgorithmFactoryFactory
     {
         return compressionAlgorithmFactory;
     }
+
+    /**
+     * Checks the availability of every algorithm and lists the available ones in a form suitable for use
+     * as the value of the {@value AlgorithmFactory#AVAILABLE_ALGORITHMS_PROPERTY_NAME} system property.
+     * @return the comma separated identifiers of all the available algorithms
+     */
+    public String getAvailabilitySnapshot()
+    {
+        Set<String> available = new LinkedHashSet<>();
+        available.addAll(jwsAlgorithmFactory.getSupportedAlgorithms());
+        available.addAll(jweKeyMgmtModeAlgorithmFactory.getSupportedAlgorithms());
+        available.addAll(jweContentEncryptionAlgorithmFactory.getSupportedAlgorithms());
+        available.addAll(compressionAlgorithmFactory.getSupportedAlgorithms());
+        return String.join(",", available);
+    }
 }
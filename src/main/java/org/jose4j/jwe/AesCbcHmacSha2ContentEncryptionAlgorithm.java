@@ -32,7 +32,9 @@ import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
@@ -86,60 +88,86 @@ public class AesCbcHmacSha2ContentEncryptionAlgorithm extends AlgorithmInfo impl
 
     ContentEncryptionParts encrypt(byte[] plaintext, byte[] aad, byte[] key, byte[] iv, Headers headers, ProviderContext providerContext) throws JoseException
     {
-        Key hmacKey = new HmacKey(ByteUtil.leftHalf(key));
-        Key encryptionKey = new AesKey(ByteUtil.rightHalf(key));
         final String cipherProvider = ContentEncryptionHelp.getCipherProvider(headers, providerContext);
-        Cipher cipher = CipherUtil.getCipher(getJavaAlgorithm(), cipherProvider);
-
+        Cipher cipher = initCipher(Cipher.ENCRYPT_MODE, key, iv, cipherProvider);
+        byte[] cipherText;
         try
         {
-            cipher.init(Cipher.ENCRYPT_MODE, encryptionKey, new IvParameterSpec(iv));
+            cipherText = cipher.doFinal(plaintext);
         }
-        catch (InvalidKeyException e)
+        catch (IllegalBlockSizeException | BadPaddingException e)
         {
-            throw new JoseException("Invalid key for " + getJavaAlgorithm(), e);
+            throw new JoseException(e.toString(), e);
         }
-        catch (InvalidAlgorithmParameterException e)
+        finally
         {
-            throw new JoseException(e.toString(), e);
+            CipherUtil.releaseCipher(getJavaAlgorithm(), cipherProvider, cipher);
         }
 
-        byte[] cipherText;
+        final String macProvider = ContentEncryptionHelp.getMacProvider(headers, providerContext);
+        byte[] authenticationTag = authenticationTag(aad, iv, cipherText, key, macProvider);
+        return new ContentEncryptionParts(iv, cipherText, authenticationTag);
+    }
+
+    public byte[] decrypt(ContentEncryptionParts contentEncryptionParts, byte[] aad, byte[] contentEncryptionKey, Headers headers, ProviderContext providerContext) throws JoseException
+    {
+        String cipherProvider = ContentEncryptionHelp.getCipherProvider(headers, providerContext);
+        checkAuthenticationTag(contentEncryptionParts, aad, contentEncryptionKey, headers, providerContext);
+
+        Cipher cipher = initCipher(Cipher.DECRYPT_MODE, contentEncryptionKey, contentEncryptionParts.getIv(), cipherProvider);
         try
         {
-            cipherText = cipher.doFinal(plaintext);
+            return cipher.doFinal(contentEncryptionParts.getCiphertext());
         }
         catch (IllegalBlockSizeException | BadPaddingException e)
         {
             throw new JoseException(e.toString(), e);
         }
-
-        final String macProvider = ContentEncryptionHelp.getMacProvider(headers, providerContext);
-        Mac mac = MacUtil.getInitializedMac(getHmacJavaAlgorithm(), hmacKey, macProvider);
-
-        byte[] al = getAdditionalAuthenticatedDataLengthBytes(aad);
-
-        byte[] authenticationTagInput = ByteUtil.concat(aad, iv, cipherText, al);
-        byte[] authenticationTag = mac.doFinal(authenticationTagInput);
-        authenticationTag = ByteUtil.subArray(authenticationTag, 0, getTagTruncationLength()); // truncate it
-
-        return new ContentEncryptionParts(iv, cipherText, authenticationTag);
+        finally
+        {
+            CipherUtil.releaseCipher(getJavaAlgorithm(), cipherProvider, cipher);
+        }
     }
 
-    public byte[] decrypt(ContentEncryptionParts contentEncryptionParts, byte[] aad, byte[] contentEncryptionKey, Headers headers, ProviderContext providerContext) throws JoseException
+    /**
+     * Decrypts into a buffer supplied by the caller rather than a newly allocated array. The authentication
+     * tag is checked before anything is decrypted so nothing is written to the buffer when the check fails.
+     * @param contentEncryptionParts the IV, ciphertext and authentication tag
+     * @param aad the additional authenticated data
+     * @param contentEncryptionKey the content encryption key
+     * @param headers the JWE headers
+     * @param providerContext the provider context
+     * @param output the buffer for the plaintext, which needs at least as many bytes after the offset as the ciphertext has
+     * @param outputOffset where in the buffer the plaintext starts
+     * @return the length of the plaintext
+     * @throws JoseException if the authentication tag check fails or the decryption otherwise can't be done
+     */
+    public int decrypt(ContentEncryptionParts contentEncryptionParts, byte[] aad, byte[] contentEncryptionKey, Headers headers, ProviderContext providerContext, byte[] output, int outputOffset) throws JoseException
     {
         String cipherProvider = ContentEncryptionHelp.getCipherProvider(headers, providerContext);
-        String macProvider = ContentEncryptionHelp.getMacProvider(headers, providerContext);
+        checkAuthenticationTag(contentEncryptionParts, aad, contentEncryptionKey, headers, providerContext);
 
-        byte[] iv = contentEncryptionParts.getIv();
         byte[] ciphertext = contentEncryptionParts.getCiphertext();
+        Cipher cipher = initCipher(Cipher.DECRYPT_MODE, contentEncryptionKey, contentEncryptionParts.getIv(), cipherProvider);
+        try
+        {
+            return cipher.doFinal(ciphertext, 0, ciphertext.length, output, outputOffset);
+        }
+        catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e)
+        {
+            throw new JoseException(e.toString(), e);
+        }
+        finally
+        {
+            CipherUtil.releaseCipher(getJavaAlgorithm(), cipherProvider, cipher);
+        }
+    }
+
+    private void checkAuthenticationTag(ContentEncryptionParts contentEncryptionParts, byte[] aad, byte[] contentEncryptionKey, Headers headers, ProviderContext providerContext) throws JoseException
+    {
+        String macProvider = ContentEncryptionHelp.getMacProvider(headers, providerContext);
         byte[] authenticationTag = contentEncryptionParts.getAuthenticationTag();
-        byte[] al = getAdditionalAuthenticatedDataLengthBytes(aad);
-        byte[] authenticationTagInput = ByteUtil.concat(aad, iv, ciphertext, al);
-        Key hmacKey = new HmacKey(ByteUtil.leftHalf(contentEncryptionKey));
-        Mac mac = MacUtil.getInitializedMac(getHmacJavaAlgorithm(), hmacKey, macProvider);
-        byte[] calculatedAuthenticationTag = mac.doFinal(authenticationTagInput);
-        calculatedAuthenticationTag = ByteUtil.subArray(calculatedAuthenticationTag, 0, getTagTruncationLength()); // truncate it
+        byte[] calculatedAuthenticationTag = authenticationTag(aad, contentEncryptionParts.getIv(), contentEncryptionParts.getCiphertext(), contentEncryptionKey, macProvider);
         boolean tagMatch = ByteUtil.secureEquals(authenticationTag, calculatedAuthenticationTag);
         if (!tagMatch)
         {
@@ -147,12 +175,18 @@ public class AesCbcHmacSha2ContentEncryptionAlgorithm extends AlgorithmInfo impl
             String encTag = base64Url.base64UrlEncode(authenticationTag);
             throw new IntegrityException("Authentication tag check failed. Message=" + encTag);
         }
+    }
 
-        Key encryptionKey = new AesKey(ByteUtil.rightHalf(contentEncryptionKey));
-        Cipher cipher = CipherUtil.getCipher(getJavaAlgorithm(), cipherProvider);
+    private Cipher initCipher(int mode, byte[] key, byte[] iv, String cipherProvider) throws JoseException
+    {
+        // ENC_KEY is the right half of the key, used in place rather than copied out
+        int half = key.length / 2;
+        Key encryptionKey = new SecretKeySpec(key, half, half, AesKey.ALGORITHM);
+        Cipher cipher = CipherUtil.takeCipher(getJavaAlgorithm(), cipherProvider);
         try
         {
-            cipher.init(Cipher.DECRYPT_MODE, encryptionKey, new IvParameterSpec(iv));
+            cipher.init(mode, encryptionKey, new IvParameterSpec(iv));
+            return cipher;
         }
         catch (InvalidKeyException e)
         {
@@ -162,14 +196,26 @@ public class AesCbcHmacSha2ContentEncryptionAlgorithm extends AlgorithmInfo impl
         {
             throw new JoseException(e.toString(), e);
         }
+    }
 
+    private byte[] authenticationTag(byte[] aad, byte[] iv, byte[] cipherText, byte[] key, String macProvider) throws JoseException
+    {
+        // MAC_KEY is the left half of the key and the MAC is computed over A || IV || E || AL
+        // by feeding each part to the Mac in turn rather than concatenating them first
+        Key hmacKey = new SecretKeySpec(key, 0, key.length / 2, HmacKey.ALGORITHM);
+        Mac mac = MacUtil.takeInitializedMac(getHmacJavaAlgorithm(), hmacKey, macProvider);
         try
         {
-            return cipher.doFinal(ciphertext);
+            mac.update(aad);
+            mac.update(iv);
+            mac.update(cipherText);
+            mac.update(getAdditionalAuthenticatedDataLengthBytes(aad));
+            byte[] tag = mac.doFinal();
+            return ByteUtil.subArray(tag, 0, getTagTruncationLength()); // truncate it
         }
-        catch (IllegalBlockSizeException | BadPaddingException e)
+        finally
         {
-            throw new JoseException(e.toString(), e);
+            MacUtil.releaseMac(getHmacJavaAlgorithm(), macProvider, mac);
         }
     }
 
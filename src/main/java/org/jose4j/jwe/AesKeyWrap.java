@@ -0,0 +1,183 @@
+package org.jose4j.jwe;
+
+import org.jose4j.jca.KeyedInstancePool;
+import org.jose4j.lang.ByteUtil;
+import org.jose4j.lang.IntegrityException;
+import org.jose4j.lang.InvalidKeyException;
+import org.jose4j.lang.JoseException;
+
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+import java.security.Key;
+import java.util.Arrays;
+
+/**
+ * The AES Key Wrap algorithm from RFC 3394 done directly with the AES block cipher ({@code AES/ECB/NoPadding}),
+ * which is used by {@link AesKeyWrapManagementAlgorithm} in place of the JCA {@code AESWrap} cipher when
+ * {@link org.jose4j.jca.ProviderContext.AesKeyWrapImplementation#AES_ECB} is selected.
+ * The block ciphers are pooled by the identity of the key encryption key they're initialized with, so a pooled
+ * one is used as is without another key schedule for the KEK. That means that idle block ciphers keep the KEK
+ * reachable, see {@link KeyedInstancePool} for how that is bounded.
+ */
+final class AesKeyWrap
+{
+    static final String ECB_ALGORITHM = "AES/ECB/NoPadding";
+
+    private static final byte[] DEFAULT_IV = {(byte)0xA6, (byte)0xA6, (byte)0xA6, (byte)0xA6, (byte)0xA6, (byte)0xA6, (byte)0xA6, (byte)0xA6};
+    private static final int SEMIBLOCK = 8;
+
+    private static final KeyedInstancePool<BlockCipher> POOL = new KeyedInstancePool<>();
+
+    private AesKeyWrap()
+    {
+    }
+
+    static byte[] wrap(Key kek, byte[] keyToWrap, String provider) throws JoseException
+    {
+        int n = keyToWrap.length / SEMIBLOCK;
+        if (keyToWrap.length % SEMIBLOCK != 0 || n < 2)
+        {
+            throw new JoseException("The key to wrap must be a multiple of 8 bytes and at least 16 bytes but was " + keyToWrap.length);
+        }
+
+        BlockCipher blockCipher = take(kek, Cipher.ENCRYPT_MODE, provider);
+        try
+        {
+            byte[] wrapped = new byte[keyToWrap.length + SEMIBLOCK];
+            System.arraycopy(keyToWrap, 0, wrapped, SEMIBLOCK, keyToWrap.length);
+            byte[] b = blockCipher.block;
+            System.arraycopy(DEFAULT_IV, 0, b, 0, SEMIBLOCK);
+
+            for (int j = 0; j <= 5; j++)
+            {
+                for (int i = 1; i <= n; i++)
+                {
+                    // B = AES(K, A | R[i]), A = MSB(64, B) ^ t, R[i] = LSB(64, B)
+                    int r = i * SEMIBLOCK;
+                    System.arraycopy(wrapped, r, b, SEMIBLOCK, SEMIBLOCK);
+                    blockCipher.apply();
+                    xorCounter(b, (long) n * j + i);
+                    System.arraycopy(b, SEMIBLOCK, wrapped, r, SEMIBLOCK);
+                }
+            }
+
+            System.arraycopy(b, 0, wrapped, 0, SEMIBLOCK);
+            return wrapped;
+        }
+        finally
+        {
+            release(kek, blockCipher, Cipher.ENCRYPT_MODE, provider);
+        }
+    }
+
+    static byte[] unwrap(Key kek, byte[] wrappedKey, String provider) throws JoseException
+    {
+        int n = wrappedKey.length / SEMIBLOCK - 1;
+        if (wrappedKey.length % SEMIBLOCK != 0 || n < 2)
+        {
+            throw new IntegrityException("The wrapped key must be a multiple of 8 bytes and at least 24 bytes but was " + wrappedKey.length);
+        }
+
+        BlockCipher blockCipher = take(kek, Cipher.DECRYPT_MODE, provider);
+        try
+        {
+            byte[] unwrapped = new byte[n * SEMIBLOCK];
+            System.arraycopy(wrappedKey, SEMIBLOCK, unwrapped, 0, unwrapped.length);
+            byte[] b = blockCipher.block;
+            System.arraycopy(wrappedKey, 0, b, 0, SEMIBLOCK);
+
+            for (int j = 5; j >= 0; j--)
+            {
+                for (int i = n; i >= 1; i--)
+                {
+                    // B = AES-1(K, (A ^ t) | R[i]), A = MSB(64, B), R[i] = LSB(64, B)
+                    int r = (i - 1) * SEMIBLOCK;
+                    xorCounter(b, (long) n * j + i);
+                    System.arraycopy(unwrapped, r, b, SEMIBLOCK, SEMIBLOCK);
+                    blockCipher.apply();
+                    System.arraycopy(b, SEMIBLOCK, unwrapped, r, SEMIBLOCK);
+                }
+            }
+
+            byte[] a = ByteUtil.subArray(b, 0, SEMIBLOCK);
+            if (!ByteUtil.secureEquals(DEFAULT_IV, a))
+            {
+                throw new IntegrityException("AES key unwrap integrity check failed.");
+            }
+            return unwrapped;
+        }
+        finally
+        {
+            release(kek, blockCipher, Cipher.DECRYPT_MODE, provider);
+        }
+    }
+
+    private static void xorCounter(byte[] a, long t)
+    {
+        for (int k = SEMIBLOCK - 1; k >= 0 && t != 0; k--)
+        {
+            a[k] ^= (byte) t;
+            t >>>= 8;
+        }
+    }
+
+    private static BlockCipher take(Key kek, int mode, String provider) throws JoseException
+    {
+        BlockCipher blockCipher = POOL.take(kek, poolKind(mode, provider));
+        if (blockCipher != null)
+        {
+            return blockCipher;
+        }
+
+        Cipher cipher = CipherUtil.getCipher(ECB_ALGORITHM, provider);
+        try
+        {
+            cipher.init(mode, kek);
+        }
+        catch (java.security.InvalidKeyException e)
+        {
+            throw new InvalidKeyException("Unable to initialize cipher (" + ECB_ALGORITHM + ") for AES key wrap/unwrap - " + e, e);
+        }
+        return new BlockCipher(cipher);
+    }
+
+    private static void release(Key kek, BlockCipher blockCipher, int mode, String provider)
+    {
+        // the block has had pieces of the key being (un)wrapped in it
+        Arrays.fill(blockCipher.block, (byte) 0);
+        POOL.release(kek, poolKind(mode, provider), blockCipher);
+    }
+
+    private static String poolKind(int mode, String provider)
+    {
+        return ECB_ALGORITHM + "|" + provider + "|" + mode;
+    }
+
+    static int pooledKeyCount()
+    {
+        return POOL.keyCount();
+    }
+
+    private static class BlockCipher
+    {
+        private final Cipher cipher;
+        private final byte[] block = new byte[16];
+
+        private BlockCipher(Cipher cipher)
+        {
+            this.cipher = cipher;
+        }
+
+        private void apply() throws JoseException
+        {
+            try
+            {
+                cipher.update(block, 0, block.length, block, 0);
+            }
+            catch (ShortBufferException e)
+            {
+                throw new JoseException("Unexpected problem with the " + ECB_ALGORITHM + " cipher.", e);
+            }
+        }
+    }
+}
@@ -16,15 +16,21 @@
 
 package org.jose4j.jwe;
 
+import org.jose4j.jca.ProviderContext;
 import org.jose4j.jwa.AlgorithmAvailability;
+import org.jose4j.jwa.CryptoPrimitive;
 import org.jose4j.jwk.OctetSequenceJsonWebKey;
+import org.jose4j.jwx.Headers;
 import org.jose4j.jwx.KeyValidationSupport;
 import org.jose4j.keys.KeyPersuasion;
 import org.jose4j.lang.ExceptionHelp;
+import org.jose4j.lang.IntegrityException;
 import org.jose4j.lang.InvalidKeyException;
+import org.jose4j.lang.JoseException;
 
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.SecretKeySpec;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
 
@@ -47,6 +53,51 @@ public class AesKeyWrapManagementAlgorithm extends WrappingKeyManagementAlgorith
         return keyByteLength;
     }
 
+    @Override
+    protected ContentEncryptionKeys manageForEnc(Key managementKey, ContentEncryptionKeyDescriptor cekDesc, byte[] contentEncryptionKey, ProviderContext providerContext) throws JoseException
+    {
+        ProviderContext.Context ctx = chooseContext(providerContext);
+        if (!useAesEcb(ctx))
+        {
+            return super.manageForEnc(managementKey, cekDesc, contentEncryptionKey, providerContext);
+        }
+
+        byte[] encryptedKey = AesKeyWrap.wrap(managementKey, contentEncryptionKey, ctx.getCipherProvider());
+        return new ContentEncryptionKeys(contentEncryptionKey, encryptedKey);
+    }
+
+    @Override
+    public CryptoPrimitive prepareForDecrypt(Key managementKey, Headers headers, ProviderContext providerContext) throws JoseException
+    {
+        ProviderContext.Context ctx = chooseContext(providerContext);
+        return useAesEcb(ctx) ? new CryptoPrimitive(managementKey) : super.prepareForDecrypt(managementKey, headers, providerContext);
+    }
+
+    @Override
+    public Key manageForDecrypt(CryptoPrimitive cryptoPrimitive, byte[] encryptedKey, ContentEncryptionKeyDescriptor cekDesc, Headers headers, ProviderContext providerContext) throws JoseException
+    {
+        if (cryptoPrimitive.getCipher() != null)
+        {
+            return super.manageForDecrypt(cryptoPrimitive, encryptedKey, cekDesc, headers, providerContext);
+        }
+
+        ProviderContext.Context ctx = chooseContext(providerContext);
+        try
+        {
+            byte[] key = AesKeyWrap.unwrap(cryptoPrimitive.getKey(), encryptedKey, ctx.getCipherProvider());
+            return new SecretKeySpec(key, cekDesc.getContentEncryptionKeyAlgorithm());
+        }
+        catch (Exception e)
+        {
+            throw new IntegrityException(getAlgorithmIdentifier() + " key unwrap/decrypt failed.", e);
+        }
+    }
+
+    private boolean useAesEcb(ProviderContext.Context ctx)
+    {
+        return ctx.getAesKeyWrapImplementation() == ProviderContext.AesKeyWrapImplementation.AES_ECB;
+    }
+
     @Override
     public void validateEncryptionKey(Key managementKey, ContentEncryptionAlgorithm contentEncryptionAlg) throws InvalidKeyException
     {
@@ -16,17 +16,37 @@
 
 package org.jose4j.jwe;
 
+import org.jose4j.jca.InstancePool;
 import org.jose4j.lang.JoseException;
 
 import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.Key;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  */
 public class CipherUtil
 {
+    // Cipher instances aren't thread safe but can be reinitialized and reused so they're pooled by algorithm and provider
+    private static final InstancePool<Cipher> CIPHER_POOL = new InstancePool<>();
+
+    // pooled ciphers are re-keyed with this before going back in the pool so the pool doesn't keep real keys reachable.
+    // The content encryption keys they're used with are new for every message so a cipher that kept its key would never
+    // get reused with it anyway, whereas ciphers that do get reused with the same long-lived key are pooled by the identity
+    // of that key in a KeyedInstancePool (see AesKeyWrap and RsaKeyManagementAlgorithm)
+    static final Key THROWAWAY_AES_KEY = new SecretKeySpec(new byte[16], "AES");
+    private static final AtomicLong THROWAWAY_GCM_COUNTER = new AtomicLong();
+    private static final AlgorithmParameterSpec THROWAWAY_IV = new IvParameterSpec(new byte[16]);
+
 //    static Cipher getCipher(String algorithm) throws JoseException
 //    {
 //        return getCipher(algorithm, null);
@@ -47,4 +67,37 @@ public class CipherUtil
             throw new JoseException("Unable to get a Cipher implementation of " + algorithm + " using provider " + provider, e);
         }
     }
+
+    static Cipher takeCipher(String algorithm, String provider) throws JoseException
+    {
+        Cipher cipher = CIPHER_POOL.take(InstancePool.key(algorithm, provider));
+        return (cipher == null) ? getCipher(algorithm, provider) : cipher;
+    }
+
+    static void releaseCipher(String algorithm, String provider, Cipher cipher)
+    {
+        // callers always init the cipher after taking it but it's re-keyed here anyway so that the
+        // content encryption key it was last used with doesn't stay reachable from the pool
+        try
+        {
+            if (algorithm.contains("/GCM/"))
+            {
+                // in encrypt mode, with an IV that's never repeated, so that the key and IV of its last encryption are
+                // forgotten too and whoever takes it next can encrypt with those again (GCM ciphers refuse to otherwise)
+                byte[] iv = new byte[12];
+                ByteBuffer.wrap(iv, 4, 8).putLong(THROWAWAY_GCM_COUNTER.incrementAndGet());
+                cipher.init(Cipher.ENCRYPT_MODE, THROWAWAY_AES_KEY, new GCMParameterSpec(128, iv));
+            }
+            else
+            {
+                cipher.init(Cipher.DECRYPT_MODE, THROWAWAY_AES_KEY, THROWAWAY_IV);
+            }
+        }
+        catch (GeneralSecurityException | RuntimeException e)
+        {
+            // it's just not put back then
+            return;
+        }
+        CIPHER_POOL.release(InstancePool.key(algorithm, provider), cipher);
+    }
 }
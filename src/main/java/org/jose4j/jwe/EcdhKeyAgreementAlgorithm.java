@@ -16,6 +16,7 @@
 
 package org.jose4j.jwe;
 
+import org.jose4j.jca.EphemeralKeyPairPool;
 import org.jose4j.jca.ProviderContext;
 import org.jose4j.jwa.AlgorithmAvailability;
 import org.jose4j.jwa.AlgorithmInfo;
@@ -41,6 +42,7 @@ import javax.crypto.KeyAgreement;
 import javax.crypto.spec.SecretKeySpec;
 import java.math.BigInteger;
 import java.security.Key;
+import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
 import java.security.PrivateKey;
@@ -82,20 +84,30 @@ public class EcdhKeyAgreementAlgorithm extends AlgorithmInfo implements KeyManag
         String keyPairGeneratorProvider = providerContext.getGeneralProviderContext().getKeyPairGeneratorProvider();
         SecureRandom secureRandom = providerContext.getSecureRandom();
 
+        EphemeralKeyPairPool ephemeralKeyPairPool = providerContext.getEphemeralKeyPairPool();
+
         PublicJsonWebKey ephemeralJwk;
 
         if (managementKey instanceof ECPublicKey)
         {
             ECPublicKey receiverKey = (ECPublicKey) managementKey;
             checkCurveAllowed(receiverKey);
-            ephemeralJwk = EcJwkGenerator.generateJwk(receiverKey.getParams(), keyPairGeneratorProvider, secureRandom);
+            ephemeralJwk = takePooledEphemeralJwk(ephemeralKeyPairPool, EllipticCurves.getName(receiverKey.getParams().getCurve()));
+            if (ephemeralJwk == null)
+            {
+                ephemeralJwk = EcJwkGenerator.generateJwk(receiverKey.getParams(), keyPairGeneratorProvider, secureRandom);
+            }
         }
         else if (XDHKeyUtil.isXECPublicKey(managementKey))
         {
             XECPublicKey receiverKey = (XECPublicKey) managementKey;
             NamedParameterSpec namedParameterSpec = (NamedParameterSpec) (receiverKey).getParams();
             String name = namedParameterSpec.getName();
-            ephemeralJwk = OkpJwkGenerator.generateJwk(name, keyPairGeneratorProvider, secureRandom);
+            ephemeralJwk = takePooledEphemeralJwk(ephemeralKeyPairPool, name);
+            if (ephemeralJwk == null)
+            {
+                ephemeralJwk = OkpJwkGenerator.generateJwk(name, keyPairGeneratorProvider, secureRandom);
+            }
         }
         else
         {
@@ -105,6 +117,24 @@ public class EcdhKeyAgreementAlgorithm extends AlgorithmInfo implements KeyManag
         return manageForEncrypt(managementKey, cekDesc, headers, ephemeralJwk, providerContext);
     }
 
+    private PublicJsonWebKey takePooledEphemeralJwk(EphemeralKeyPairPool ephemeralKeyPairPool, String curveName) throws JoseException
+    {
+        if (ephemeralKeyPairPool == null || curveName == null)
+        {
+            return null;
+        }
+
+        KeyPair keyPair = ephemeralKeyPairPool.take(curveName);
+        if (keyPair == null)
+        {
+            return null;
+        }
+
+        PublicJsonWebKey ephemeralJwk = PublicJsonWebKey.Factory.newPublicJwk(keyPair.getPublic());
+        ephemeralJwk.setPrivateKey(keyPair.getPrivate());
+        return ephemeralJwk;
+    }
+
     private void checkCurveAllowed(ECKey receiverKey) throws InvalidKeyException
     {
         ECParameterSpec paramSpec = receiverKey.getParams();
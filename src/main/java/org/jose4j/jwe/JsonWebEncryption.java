@@ -30,11 +30,20 @@ import org.jose4j.lang.InvalidAlgorithmException;
 import org.jose4j.lang.InvalidKeyException;
 import org.jose4j.lang.JoseException;
 import org.jose4j.lang.StringUtil;
+import org.jose4j.metrics.JoseMetrics;
+import org.jose4j.metrics.Timing;
 import org.jose4j.zip.CompressionAlgorithm;
 import org.jose4j.zip.CompressionAlgorithmIdentifiers;
+import org.jose4j.zip.DeflateRFC1951CompressionAlgorithm;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyAgreement;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.security.Key;
 
 /**
@@ -49,6 +58,10 @@ public class JsonWebEncryption extends JsonWebStructure
                     KeyManagementAlgorithmIdentifiers.PBES2_HS384_A192KW,
                     KeyManagementAlgorithmIdentifiers.PBES2_HS512_A256KW);
 
+    public static final int DEFAULT_STREAM_SPOOL_THRESHOLD = 1048576;
+    public static final long DEFAULT_MAX_STREAM_CIPHERTEXT_LENGTH = 268435456L;
+    private static final int MAX_STREAMED_PART_LENGTH = 262144;
+
     private Base64Url base64url = new Base64Url();
     
     private String plaintextCharEncoding = StringUtil.UTF_8;
@@ -63,6 +76,10 @@ public class JsonWebEncryption extends JsonWebStructure
     private AlgorithmConstraints contentEncryptionAlgorithmConstraints = AlgorithmConstraints.NO_CONSTRAINTS;
 
     private CryptoPrimitive decryptingPrimitive;
+    private boolean usePooledDecryptingPrimitives;
+
+    private int streamSpoolThreshold = DEFAULT_STREAM_SPOOL_THRESHOLD;
+    private long maxStreamCiphertextLength = DEFAULT_MAX_STREAM_CIPHERTEXT_LENGTH;
 
     public JsonWebEncryption()
     {
@@ -140,6 +157,26 @@ public class JsonWebEncryption extends JsonWebStructure
         this.contentEncryptionAlgorithmConstraints = contentEncryptionAlgorithmConstraints;
     }
 
+    /**
+     * Sets how much ciphertext {@link #decrypt(InputStream, OutputStream)} holds in memory, while the authentication
+     * tag is being checked, before moving it to a temporary file.
+     * @param streamSpoolThreshold the size in bytes, which is 1048576 (1 MiB) by default
+     */
+    public void setStreamSpoolThreshold(int streamSpoolThreshold)
+    {
+        this.streamSpoolThreshold = streamSpoolThreshold;
+    }
+
+    /**
+     * Sets the largest ciphertext that {@link #decrypt(InputStream, OutputStream)} will accept, which bounds how much
+     * gets spooled to memory and the temporary file before the authentication tag can be checked.
+     * @param maxStreamCiphertextLength the size in bytes of the decoded ciphertext, which is 268435456 (256 MiB) by default
+     */
+    public void setMaxStreamCiphertextLength(long maxStreamCiphertextLength)
+    {
+        this.maxStreamCiphertextLength = maxStreamCiphertextLength;
+    }
+
     public ContentEncryptionAlgorithm getContentEncryptionAlgorithm() throws InvalidAlgorithmException
     {
         String encValue = getEncryptionMethodHeaderParameter();
@@ -226,6 +263,23 @@ public class JsonWebEncryption extends JsonWebStructure
         return decryptingPrimitive;
     }
 
+    /**
+     * Sets whether or not decryption can use an already initialized key decrypting primitive from a pool shared with
+     * other {@code JsonWebEncryption} instances, rather than creating and initializing a new one. This is off by default
+     * and currently only applies to the RSA key management algorithms (RSA-OAEP, RSA-OAEP-256, and RSA1_5), where getting and
+     * initializing the {@link Cipher} for each JWE is a noticeable cost when the same long-lived private key is used over and over.
+     * The pooled primitives are matched to the key instance, so the same {@code Key} object needs to be set for reuse to happen,
+     * and the idle ones stay initialized with (and so keep a reference to) the key they were used with, for a bounded number
+     * of the most recently used keys.
+     * It has no effect when {@link #prepareDecryptingPrimitive()} is used. With a {@link org.jose4j.jwt.consumer.JwtConsumer},
+     * it can be turned on from a {@link org.jose4j.jwt.consumer.JweCustomizer}.
+     * @param usePooledDecryptingPrimitives true to use pooled key decrypting primitives
+     */
+    public void setUsePooledDecryptingPrimitives(boolean usePooledDecryptingPrimitives)
+    {
+        this.usePooledDecryptingPrimitives = usePooledDecryptingPrimitives;
+    }
+
     private CryptoPrimitive createDecryptingPrimitive() throws JoseException
     {
         KeyManagementAlgorithm keyManagementModeAlg = getKeyManagementModeAlgorithm();
@@ -240,6 +294,28 @@ public class JsonWebEncryption extends JsonWebStructure
     }
 
     private void decrypt() throws JoseException
+    {
+        Timing timing = Timing.start(JoseMetrics.Operation.DECRYPTION);
+        if (timing == null)
+        {
+            doDecrypt();
+            return;
+        }
+
+        boolean success = false;
+        try
+        {
+            doDecrypt();
+            success = true;
+        }
+        finally
+        {
+            timing.setSizes(ciphertext == null ? -1 : ciphertext.length, plaintext == null ? -1 : plaintext.length);
+            timing.end(getAlgorithmHeaderValue(), success);
+        }
+    }
+
+    private void doDecrypt() throws JoseException
     {
         KeyManagementAlgorithm keyManagementModeAlg = getKeyManagementModeAlgorithm();
         ContentEncryptionAlgorithm contentEncryptionAlg = getContentEncryptionAlgorithm();
@@ -248,9 +324,7 @@ public class JsonWebEncryption extends JsonWebStructure
 
         checkCrit();
 
-        CryptoPrimitive cryptoPrimitive = (decryptingPrimitive == null) ? createDecryptingPrimitive() : decryptingPrimitive;
-
-        Key cek = keyManagementModeAlg.manageForDecrypt(cryptoPrimitive, getEncryptedKey(), contentEncryptionKeyDesc, getHeaders(), getProviderCtx());
+        Key cek = manageForDecrypt(keyManagementModeAlg, contentEncryptionKeyDesc);
 
         ContentEncryptionParts contentEncryptionParts = new ContentEncryptionParts(iv, ciphertext, getIntegrity());
         byte[] aad = getEncodedHeaderAsciiBytesForAdditionalAuthenticatedData();
@@ -264,6 +338,26 @@ public class JsonWebEncryption extends JsonWebStructure
         setPlaintext(decrypted);
     }
 
+    private Key manageForDecrypt(KeyManagementAlgorithm keyManagementModeAlg, ContentEncryptionKeyDescriptor contentEncryptionKeyDesc) throws JoseException
+    {
+        if (decryptingPrimitive == null && usePooledDecryptingPrimitives && keyManagementModeAlg instanceof RsaKeyManagementAlgorithm)
+        {
+            RsaKeyManagementAlgorithm rsaKeyManagementAlg = (RsaKeyManagementAlgorithm) keyManagementModeAlg;
+            if (isDoKeyValidation())
+            {
+                keyManagementModeAlg.validateDecryptionKey(getKey(), getContentEncryptionAlgorithm());
+            }
+
+            RsaKeyManagementAlgorithm.PooledCipher pooledCipher = rsaKeyManagementAlg.takeDecryptingCipher(getKey(), getProviderCtx());
+            Key cek = keyManagementModeAlg.manageForDecrypt(pooledCipher.getCryptoPrimitive(), getEncryptedKey(), contentEncryptionKeyDesc, getHeaders(), getProviderCtx());
+            rsaKeyManagementAlg.releaseDecryptingCipher(pooledCipher);
+            return cek;
+        }
+
+        CryptoPrimitive cryptoPrimitive = (decryptingPrimitive == null) ? createDecryptingPrimitive() : decryptingPrimitive;
+        return keyManagementModeAlg.manageForDecrypt(cryptoPrimitive, getEncryptedKey(), contentEncryptionKeyDesc, getHeaders(), getProviderCtx());
+    }
+
     private void checkCek(ContentEncryptionAlgorithm contentEncryptionAlg, ContentEncryptionKeyDescriptor contentEncryptionKeyDesc, byte[] rawCek)
             throws InvalidKeyException
     {
@@ -295,7 +389,21 @@ public class JsonWebEncryption extends JsonWebStructure
             AlgorithmFactoryFactory factoryFactory = AlgorithmFactoryFactory.getInstance();
             AlgorithmFactory<CompressionAlgorithm> zipAlgFactory = factoryFactory.getCompressionAlgorithmFactory();
             CompressionAlgorithm compressionAlgorithm = zipAlgFactory.getAlgorithm(zipHeaderValue);
-            data = compressionAlgorithm.decompress(data);
+            Timing timing = Timing.start(JoseMetrics.Operation.DECOMPRESSION);
+            byte[] decompressed = null;
+            try
+            {
+                decompressed = compressionAlgorithm.decompress(data);
+            }
+            finally
+            {
+                if (timing != null)
+                {
+                    timing.setSizes(data.length, decompressed == null ? -1 : decompressed.length);
+                    timing.end(zipHeaderValue, decompressed != null);
+                }
+            }
+            data = decompressed;
         }
         return data;
     }
@@ -314,6 +422,28 @@ public class JsonWebEncryption extends JsonWebStructure
     }
 
     public String getCompactSerialization() throws JoseException
+    {
+        Timing timing = Timing.start(JoseMetrics.Operation.ENCRYPTION);
+        if (timing == null)
+        {
+            return encrypt();
+        }
+
+        boolean success = false;
+        try
+        {
+            String compactSerialization = encrypt();
+            success = true;
+            return compactSerialization;
+        }
+        finally
+        {
+            timing.setSizes(plaintext == null ? -1 : plaintext.length, ciphertext == null ? -1 : ciphertext.length);
+            timing.end(getAlgorithmHeaderValue(), success);
+        }
+    }
+
+    private String encrypt() throws JoseException
     {
         KeyManagementAlgorithm keyManagementModeAlg = getKeyManagementModeAlgorithm();
         ContentEncryptionAlgorithm contentEncryptionAlg = getContentEncryptionAlgorithm();
@@ -356,6 +486,330 @@ public class JsonWebEncryption extends JsonWebStructure
         return CompactSerializer.serialize(getEncodedHeader(), encodedEncryptedKey, encodedIv, encodedCiphertext, encodedTag);
     }
 
+    /**
+     * Encrypts what's read from the plaintext stream and writes the JWE compact serialization to the output stream
+     * as it goes, a buffer at a time, so that neither the whole plaintext, ciphertext nor serialization are held in memory.
+     * The key, headers, etc. are set up the same as they are for {@link #getCompactSerialization()}. Only the AES GCM
+     * and AES CBC HMAC SHA2 content encryption algorithms can be used this way. Neither stream is closed.
+     * @param plaintext the content to encrypt
+     * @param compactSerialization where the JWE compact serialization is written
+     * @throws JoseException if the encryption can't be done
+     * @throws IOException if there's a problem reading or writing one of the streams
+     */
+    public void encrypt(InputStream plaintext, OutputStream compactSerialization) throws JoseException, IOException
+    {
+        Timing timing = Timing.start(JoseMetrics.Operation.ENCRYPTION);
+        if (timing == null)
+        {
+            encryptStream(plaintext, compactSerialization);
+            return;
+        }
+
+        boolean success = false;
+        try
+        {
+            encryptStream(plaintext, compactSerialization);
+            success = true;
+        }
+        finally
+        {
+            timing.end(getAlgorithmHeaderValue(), success);
+        }
+    }
+
+    private void encryptStream(InputStream plaintext, OutputStream compactSerialization) throws JoseException, IOException
+    {
+        KeyManagementAlgorithm keyManagementModeAlg = getKeyManagementModeAlgorithm();
+        ContentEncryptionAlgorithm contentEncryptionAlg = getContentEncryptionAlgorithm();
+        StreamingContentEncryption streamingContentEncryption = new StreamingContentEncryption(contentEncryptionAlg, getStreamBufferSize(), streamSpoolThreshold);
+        DeflateRFC1951CompressionAlgorithm compressionAlgorithm = getStreamingCompressionAlgorithm();
+
+        ContentEncryptionKeyDescriptor contentEncryptionKeyDesc = contentEncryptionAlg.getContentEncryptionKeyDescriptor();
+        Key managementKey = getKey();
+        if (isDoKeyValidation())
+        {
+            keyManagementModeAlg.validateEncryptionKey(getKey(), contentEncryptionAlg);
+        }
+
+        ContentEncryptionKeys contentEncryptionKeys = keyManagementModeAlg.manageForEncrypt(managementKey, contentEncryptionKeyDesc, getHeaders(), contentEncryptionKey, getProviderCtx());
+        setContentEncryptionKey(contentEncryptionKeys.getContentEncryptionKey());
+        encryptedKey = contentEncryptionKeys.getEncryptedKey();
+
+        byte[] aad = getEncodedHeaderAsciiBytesForAdditionalAuthenticatedData();
+        byte[] contentEncryptionKey = contentEncryptionKeys.getContentEncryptionKey();
+        checkCek(contentEncryptionAlg, contentEncryptionKeyDesc, contentEncryptionKey);
+
+        byte[] iv = InitializationVectorHelp.iv(streamingContentEncryption.getIvByteLength(), getIv(), getProviderCtx().getSecureRandom());
+        setIv(iv);
+
+        String cipherProvider = ContentEncryptionHelp.getCipherProvider(getHeaders(), getProviderCtx());
+        String macProvider = ContentEncryptionHelp.getMacProvider(getHeaders(), getProviderCtx());
+
+        writeParts(compactSerialization, getEncodedHeader(), base64url.base64UrlEncode(encryptedKey), base64url.base64UrlEncode(iv), "");
+
+        byte[] tag;
+        OutputStream ciphertextEncoder = java.util.Base64.getUrlEncoder().withoutPadding().wrap(new NonClosingOutputStream(compactSerialization));
+        InputStream content = (compressionAlgorithm == null) ? plaintext : compressionAlgorithm.compressing(plaintext);
+        try
+        {
+            tag = streamingContentEncryption.encrypt(content, ciphertextEncoder, aad, contentEncryptionKey, iv, cipherProvider, macProvider);
+        }
+        finally
+        {
+            if (compressionAlgorithm != null)
+            {
+                content.close();
+            }
+        }
+        ciphertextEncoder.close();
+
+        writeParts(compactSerialization, "", base64url.base64UrlEncode(tag));
+    }
+
+    /**
+     * Reads a JWE compact serialization from the input stream, decrypts it and writes the plaintext to the output stream,
+     * a buffer at a time. The key, algorithm constraints, etc. are set up the same as they are for {@link #getPlaintextBytes()}.
+     * No plaintext is written unless the authentication tag is valid: the ciphertext is held until the
+     * tag has been checked, in memory up to the {@link #setStreamSpoolThreshold(int) spool threshold} and in a temporary
+     * file beyond that, and then decrypted. The ciphertext can be no longer than the
+     * {@link #setMaxStreamCiphertextLength(long) maximum length} and compressed content can decompress to no more than
+     * the {@value org.jose4j.zip.DeflateRFC1951CompressionAlgorithm#STREAM_DECOMPRESS_MAX_BYTES_PROPERTY_NAME} limit.
+     * Only the AES GCM and AES CBC HMAC SHA2 content encryption algorithms can be used this way. Neither stream is closed.
+     * @param compactSerialization the JWE compact serialization
+     * @param plaintext where the decrypted content is written
+     * @throws JoseException if the JWE is invalid or can't be decrypted
+     * @throws IOException if there's a problem reading or writing one of the streams
+     */
+    public void decrypt(InputStream compactSerialization, OutputStream plaintext) throws JoseException, IOException
+    {
+        Timing timing = Timing.start(JoseMetrics.Operation.DECRYPTION);
+        if (timing == null)
+        {
+            decryptStream(compactSerialization, plaintext);
+            return;
+        }
+
+        boolean success = false;
+        try
+        {
+            decryptStream(compactSerialization, plaintext);
+            success = true;
+        }
+        finally
+        {
+            timing.end(getAlgorithmHeaderValue(), success);
+        }
+    }
+
+    private void decryptStream(InputStream compactSerialization, OutputStream plaintext) throws JoseException, IOException
+    {
+        BufferedInputStream in = new BufferedInputStream(compactSerialization, getStreamBufferSize());
+        setEncodedHeader(readPart(in, true));
+        encryptedKey = base64url.base64UrlDecode(readPart(in, true));
+        setEncodedIv(readPart(in, true));
+
+        KeyManagementAlgorithm keyManagementModeAlg = getKeyManagementModeAlgorithm();
+        ContentEncryptionAlgorithm contentEncryptionAlg = getContentEncryptionAlgorithm();
+        StreamingContentEncryption streamingContentEncryption = new StreamingContentEncryption(contentEncryptionAlg, getStreamBufferSize(), streamSpoolThreshold);
+        DeflateRFC1951CompressionAlgorithm compressionAlgorithm = getStreamingCompressionAlgorithm();
+
+        ContentEncryptionKeyDescriptor contentEncryptionKeyDesc = contentEncryptionAlg.getContentEncryptionKeyDescriptor();
+
+        checkCrit();
+
+        Key cek = manageForDecrypt(keyManagementModeAlg, contentEncryptionKeyDesc);
+        byte[] rawCek = cek.getEncoded();
+        checkCek(contentEncryptionAlg, contentEncryptionKeyDesc, rawCek);
+
+        byte[] aad = getEncodedHeaderAsciiBytesForAdditionalAuthenticatedData();
+        String cipherProvider = ContentEncryptionHelp.getCipherProvider(getHeaders(), getProviderCtx());
+        String macProvider = ContentEncryptionHelp.getMacProvider(getHeaders(), getProviderCtx());
+
+        try (StreamingContentEncryption.Decryption decryption = streamingContentEncryption.startDecryption(aad, rawCek, iv, cipherProvider, macProvider))
+        {
+            DelimitedInputStream ciphertextPart = new DelimitedInputStream(in);
+            InputStream ciphertextDecoder = java.util.Base64.getUrlDecoder().wrap(ciphertextPart);
+            byte[] buffer = new byte[getStreamBufferSize()];
+            long ciphertextLength = 0;
+            int read;
+            while ((read = ciphertextDecoder.read(buffer)) != -1)
+            {
+                ciphertextLength += read;
+                if (ciphertextLength > maxStreamCiphertextLength)
+                {
+                    throw new JoseException("JWE ciphertext is longer than the maximum " + maxStreamCiphertextLength + " bytes allowed when streaming.");
+                }
+                decryption.update(buffer, 0, read);
+            }
+
+            if (!ciphertextPart.isDelimited())
+            {
+                throw new JoseException("A JWE Compact Serialization must have exactly " + COMPACT_SERIALIZATION_PARTS + " parts separated by period ('.') characters");
+            }
+            if (ciphertextLength == 0)
+            {
+                checkNotEmptyPart(null, "Encoded JWE Ciphertext");
+            }
+
+            String encodedAuthenticationTag = readPart(in, false);
+            checkNotEmptyPart(encodedAuthenticationTag, "Encoded JWE Authentication Tag");
+            byte[] tag = base64url.base64UrlDecode(encodedAuthenticationTag);
+            setIntegrity(tag);
+
+            if (compressionAlgorithm == null)
+            {
+                decryption.finish(tag, plaintext);
+            }
+            else
+            {
+                Timing timing = Timing.start(JoseMetrics.Operation.DECOMPRESSION);
+                boolean success = false;
+                try
+                {
+                    try (OutputStream decompressing = compressionAlgorithm.decompressing(plaintext))
+                    {
+                        decryption.finish(tag, decompressing);
+                    }
+                    success = true;
+                }
+                finally
+                {
+                    if (timing != null)
+                    {
+                        timing.end(getHeaders().getStringHeaderValue(HeaderParameterNames.ZIP), success);
+                    }
+                }
+            }
+        }
+    }
+
+    private DeflateRFC1951CompressionAlgorithm getStreamingCompressionAlgorithm() throws JoseException
+    {
+        String zipHeaderValue = getHeaders().getStringHeaderValue(HeaderParameterNames.ZIP);
+        if (zipHeaderValue == null)
+        {
+            return null;
+        }
+
+        AlgorithmFactoryFactory factoryFactory = AlgorithmFactoryFactory.getInstance();
+        AlgorithmFactory<CompressionAlgorithm> zipAlgFactory = factoryFactory.getCompressionAlgorithmFactory();
+        CompressionAlgorithm compressionAlgorithm = zipAlgFactory.getAlgorithm(zipHeaderValue);
+        if (!(compressionAlgorithm instanceof DeflateRFC1951CompressionAlgorithm))
+        {
+            throw new JoseException("Streaming isn't supported with the " + zipHeaderValue + " compression algorithm.");
+        }
+        return (DeflateRFC1951CompressionAlgorithm) compressionAlgorithm;
+    }
+
+    private void writeParts(OutputStream out, String... parts) throws IOException
+    {
+        for (int i = 0; i < parts.length; i++)
+        {
+            if (i > 0)
+            {
+                out.write('.');
+            }
+            out.write(StringUtil.getBytesAscii(parts[i]));
+        }
+    }
+
+    private String readPart(InputStream in, boolean delimited) throws JoseException, IOException
+    {
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '.')
+        {
+            if (part.size() == MAX_STREAMED_PART_LENGTH)
+            {
+                throw new JoseException("JWE Compact Serialization part is longer than the maximum " + MAX_STREAMED_PART_LENGTH + " characters allowed when streaming.");
+            }
+            part.write(b);
+        }
+
+        if ((b == '.') != delimited)
+        {
+            throw new JoseException("A JWE Compact Serialization must have exactly " + COMPACT_SERIALIZATION_PARTS + " parts separated by period ('.') characters");
+        }
+        return StringUtil.newStringUsAscii(part.toByteArray());
+    }
+
+    private static class DelimitedInputStream extends InputStream
+    {
+        private final InputStream in;
+        private boolean delimited;
+
+        private DelimitedInputStream(BufferedInputStream in)
+        {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (delimited)
+            {
+                return -1;
+            }
+
+            int b = in.read();
+            if (b == '.')
+            {
+                delimited = true;
+                return -1;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException
+        {
+            if (delimited)
+            {
+                return -1;
+            }
+
+            // read ahead a buffer's worth and then go back to just after the period, if there is one in it
+            in.mark(length);
+            int read = in.read(bytes, offset, length);
+            for (int i = 0; i < read; i++)
+            {
+                if (bytes[offset + i] == '.')
+                {
+                    in.reset();
+                    in.skip(i + 1);
+                    delimited = true;
+                    return (i == 0) ? -1 : i;
+                }
+            }
+            return read;
+        }
+
+        boolean isDelimited()
+        {
+            return delimited;
+        }
+    }
+
+    private static class NonClosingOutputStream extends FilterOutputStream
+    {
+        private NonClosingOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            flush();
+        }
+    }
+
     public byte[] getContentEncryptionKey()
     {
         return contentEncryptionKey;
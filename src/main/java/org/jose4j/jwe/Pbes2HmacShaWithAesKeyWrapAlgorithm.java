@@ -20,6 +20,7 @@ import org.jose4j.base64url.Base64Url;
 import org.jose4j.jca.ProviderContext;
 import org.jose4j.jwa.AlgorithmInfo;
 import org.jose4j.jwa.CryptoPrimitive;
+import org.jose4j.jwe.kdf.DerivedKeyCache;
 import org.jose4j.jwe.kdf.PasswordBasedKeyDerivationFunction2;
 import org.jose4j.jwx.HeaderParameterNames;
 import org.jose4j.jwx.Headers;
@@ -196,6 +197,16 @@ public class Pbes2HmacShaWithAesKeyWrapAlgorithm  extends AlgorithmInfo implemen
         this.maxIterationCount = maxIterationCount;
     }
 
+    /**
+     * Sets a cache of PBKDF2 derived keys, so that decrypting (or encrypting with) the same password, p2s and p2c
+     * more than once only pays for the key derivation the first time. There's no cache by default.
+     * @param derivedKeyCache the cache or {@code null} to not use one
+     */
+    public void setDerivedKeyCache(DerivedKeyCache derivedKeyCache)
+    {
+        pbkdf2.setDerivedKeyCache(derivedKeyCache);
+    }
+
     public static class HmacSha256Aes128 extends Pbes2HmacShaWithAesKeyWrapAlgorithm
     {
         public HmacSha256Aes128()
@@ -16,6 +16,7 @@
 
 package org.jose4j.jwe;
 
+import org.jose4j.jca.KeyedInstancePool;
 import org.jose4j.jca.ProviderContext;
 import org.jose4j.jwa.CryptoPrimitive;
 import org.jose4j.jwk.JsonWebKey;
@@ -41,6 +42,10 @@ import java.security.spec.MGF1ParameterSpec;
  */
 public class RsaKeyManagementAlgorithm extends WrappingKeyManagementAlgorithm implements KeyManagementAlgorithm
 {
+    // decrypting ciphers kept initialized with the private key they were used with and pooled by the identity of that key,
+    // for a bounded number of keys, see JsonWebEncryption.setUsePooledDecryptingPrimitives
+    private final KeyedInstancePool<PooledCipher> decryptingCipherPool = new KeyedInstancePool<>();
+
     public RsaKeyManagementAlgorithm(String javaAlg, String alg)
     {
         super(javaAlg, alg);
@@ -48,6 +53,54 @@ public class RsaKeyManagementAlgorithm extends WrappingKeyManagementAlgorithm im
         setKeyPersuasion(KeyPersuasion.ASYMMETRIC);
     }
 
+    PooledCipher takeDecryptingCipher(Key managementKey, ProviderContext providerContext) throws JoseException
+    {
+        String kind = decryptingCipherKind(providerContext);
+        PooledCipher pooledCipher = decryptingCipherPool.take(managementKey, kind);
+        if (pooledCipher != null)
+        {
+            return pooledCipher;
+        }
+
+        CryptoPrimitive cryptoPrimitive = prepareForDecrypt(managementKey, null, providerContext);
+        return new PooledCipher(managementKey, cryptoPrimitive, kind);
+    }
+
+    void releaseDecryptingCipher(PooledCipher pooledCipher)
+    {
+        decryptingCipherPool.release(pooledCipher.key, pooledCipher.kind, pooledCipher);
+    }
+
+    int decryptingCipherPoolKeyCount()
+    {
+        return decryptingCipherPool.keyCount();
+    }
+
+    private String decryptingCipherKind(ProviderContext providerContext)
+    {
+        ProviderContext.Context ctx = chooseContext(providerContext);
+        return ctx.getCipherProvider() + "|" + ctx.getKeyDecipherModeOverride();
+    }
+
+    static class PooledCipher
+    {
+        private final Key key;
+        private final CryptoPrimitive cryptoPrimitive;
+        private final String kind;
+
+        private PooledCipher(Key key, CryptoPrimitive cryptoPrimitive, String kind)
+        {
+            this.key = key;
+            this.cryptoPrimitive = cryptoPrimitive;
+            this.kind = kind;
+        }
+
+        CryptoPrimitive getCryptoPrimitive()
+        {
+            return cryptoPrimitive;
+        }
+    }
+
     @Override
     public void validateEncryptionKey(Key managementKey, ContentEncryptionAlgorithm contentEncryptionAlg) throws InvalidKeyException
     {
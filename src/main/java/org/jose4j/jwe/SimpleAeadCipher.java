@@ -16,11 +16,13 @@
 package org.jose4j.jwe;
 
 import java.security.InvalidAlgorithmParameterException;
+import java.nio.ByteBuffer;
 import java.security.Key;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.GCMParameterSpec;
 
 import org.jose4j.keys.AesKey;
@@ -49,11 +51,16 @@ public class SimpleAeadCipher
     public Cipher getInitialisedCipher(Key key, byte[] iv, int mode, String provider) throws JoseException
     {
         Cipher cipher = CipherUtil.getCipher(algorithm, provider);
+        init(cipher, key, iv, mode);
+        return cipher;
+    }
+
+    private void init(Cipher cipher, Key key, byte[] iv, int mode) throws JoseException
+    {
         try
         {
             GCMParameterSpec parameterSpec = new GCMParameterSpec(ByteUtil.bitLength(tagByteLength), iv);
             cipher.init(mode, key, parameterSpec);
-            return cipher;
         }
         catch (java.security.InvalidKeyException e)
         {
@@ -65,26 +72,77 @@ public class SimpleAeadCipher
         }
     }
 
-    public CipherOutput encrypt(Key key, byte[] iv, byte[] plaintext, byte[] aad, String provider) throws JoseException
+    private Cipher takeInitialisedCipher(Key key, byte[] iv, int mode, String provider) throws JoseException
     {
-        Cipher cipher = getInitialisedCipher(key, iv, Cipher.ENCRYPT_MODE, provider);
-        updateAad(cipher, aad);
+        Cipher cipher = CipherUtil.takeCipher(algorithm, provider);
+        init(cipher, key, iv, mode);
+        return cipher;
+    }
 
-        byte[] cipherOutput;
+    public CipherOutput encrypt(Key key, byte[] iv, byte[] plaintext, byte[] aad, String provider) throws JoseException
+    {
+        Cipher cipher = takeInitialisedCipher(key, iv, Cipher.ENCRYPT_MODE, provider);
         try
         {
-            cipherOutput = cipher.doFinal(plaintext);
+            updateAad(cipher, aad);
+
+            // the ciphertext goes straight into its own plaintext sized array and only whatever comes out of doFinal
+            // (the last partial block, if the cipher held it back, and the tag) is split between the two
+            CipherOutput result = new CipherOutput();
+            result.ciphertext = new byte[plaintext.length];
+            result.tag = new byte[tagByteLength];
+            int length = cipher.update(plaintext, 0, plaintext.length, result.ciphertext, 0);
+            byte[] last = new byte[cipher.getOutputSize(0)];
+            int lastLength = cipher.doFinal(last, 0);
+            int tagOffset = lastLength - tagByteLength;
+            if (tagOffset < 0 || length + tagOffset != plaintext.length)
+            {
+                throw new JoseException("Unexpected " + algorithm + " output length " + (length + lastLength) + " for " + plaintext.length + " bytes of plaintext.");
+            }
+
+            System.arraycopy(last, 0, result.ciphertext, length, tagOffset);
+            System.arraycopy(last, tagOffset, result.tag, 0, tagByteLength);
+            return result;
         }
-        catch (IllegalBlockSizeException | BadPaddingException e)
+        catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e)
         {
             throw new JoseException(e.toString(), e);
         }
+        finally
+        {
+            CipherUtil.releaseCipher(algorithm, provider, cipher);
+        }
+    }
 
-        CipherOutput result = new CipherOutput();
-        int tagIndex = cipherOutput.length - tagByteLength;
-        result.ciphertext = ByteUtil.subArray(cipherOutput, 0, tagIndex);
-        result.tag = ByteUtil.subArray(cipherOutput, tagIndex, tagByteLength);
-        return result;
+    /**
+     * Encrypts the remaining bytes of the plaintext buffer and writes the ciphertext followed by the
+     * authentication tag to the output buffer, which needs room for the plaintext length plus the tag length.
+     * The output can share the same backing array as the input to encrypt in place.
+     * @param key the key
+     * @param iv the initialization vector
+     * @param plaintext the plaintext
+     * @param aad the additional authenticated data or {@code null}
+     * @param output receives the ciphertext and tag
+     * @param provider the provider name or {@code null}
+     * @return the number of bytes written to the output
+     * @throws JoseException if the encryption can't be done
+     */
+    public int encrypt(Key key, byte[] iv, ByteBuffer plaintext, byte[] aad, ByteBuffer output, String provider) throws JoseException
+    {
+        Cipher cipher = takeInitialisedCipher(key, iv, Cipher.ENCRYPT_MODE, provider);
+        try
+        {
+            updateAad(cipher, aad);
+            return cipher.doFinal(plaintext, output);
+        }
+        catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e)
+        {
+            throw new JoseException(e.toString(), e);
+        }
+        finally
+        {
+            CipherUtil.releaseCipher(algorithm, provider, cipher);
+        }
     }
 
     private void updateAad(Cipher cipher, byte[] aad)
@@ -97,9 +155,15 @@ public class SimpleAeadCipher
 
     public byte[] decrypt(Key key, byte[] iv, byte[] ciphertext, byte[] tag, byte[] aad, String provider) throws JoseException
     {
-        Cipher cipher = getInitialisedCipher(key, iv, Cipher.DECRYPT_MODE, provider);
-        return decrypt(ciphertext, tag, aad, cipher);
-
+        Cipher cipher = takeInitialisedCipher(key, iv, Cipher.DECRYPT_MODE, provider);
+        try
+        {
+            return decrypt(ciphertext, tag, aad, cipher);
+        }
+        finally
+        {
+            CipherUtil.releaseCipher(algorithm, provider, cipher);
+        }
     }
 
     public byte[] decrypt(byte[] ciphertext, byte[] tag, byte[] aad, Cipher cipher) throws JoseException {
@@ -107,12 +171,48 @@ public class SimpleAeadCipher
 
         try
         {
-            return cipher.doFinal(ByteUtil.concat(ciphertext,tag));
+            // the ciphertext and tag are given to the cipher one after the other rather than concatenated first
+            byte[] plaintext = new byte[ciphertext.length];
+            int length = cipher.update(ciphertext, 0, ciphertext.length, plaintext, 0);
+            length += cipher.doFinal(tag, 0, tag.length, plaintext, length);
+            return (length == plaintext.length) ? plaintext : ByteUtil.subArray(plaintext, 0, length);
+        }
+        catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e)
+        {
+            throw new JoseException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Decrypts the remaining bytes of the input buffer, which are the ciphertext followed by the
+     * authentication tag, and writes the plaintext to the output buffer. The output can share the same
+     * backing array as the input to decrypt in place. Nothing should be made of the content of the output
+     * buffer if this throws an exception.
+     * @param key the key
+     * @param iv the initialization vector
+     * @param ciphertextAndTag the ciphertext and tag
+     * @param aad the additional authenticated data or {@code null}
+     * @param output receives the plaintext
+     * @param provider the provider name or {@code null}
+     * @return the number of bytes written to the output
+     * @throws JoseException if the tag check fails or the decryption otherwise can't be done
+     */
+    public int decrypt(Key key, byte[] iv, ByteBuffer ciphertextAndTag, byte[] aad, ByteBuffer output, String provider) throws JoseException
+    {
+        Cipher cipher = takeInitialisedCipher(key, iv, Cipher.DECRYPT_MODE, provider);
+        try
+        {
+            updateAad(cipher, aad);
+            return cipher.doFinal(ciphertextAndTag, output);
         }
-        catch (IllegalBlockSizeException | BadPaddingException e)
+        catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e)
         {
             throw new JoseException(e.toString(), e);
         }
+        finally
+        {
+            CipherUtil.releaseCipher(algorithm, provider, cipher);
+        }
     }
 
     public boolean isAvailable(Logger log, int keyByteLength, int ivByteLength, String joseAlg)
@@ -0,0 +1,562 @@
+package org.jose4j.jwe;
+
+import org.jose4j.base64url.Base64Url;
+import org.jose4j.keys.AesKey;
+import org.jose4j.keys.HmacKey;
+import org.jose4j.lang.ByteUtil;
+import org.jose4j.lang.HashUtil;
+import org.jose4j.lang.IntegrityException;
+import org.jose4j.lang.JoseException;
+import org.jose4j.mac.MacUtil;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Does JWE content encryption and decryption a buffer at a time for the AES GCM and AES CBC HMAC SHA2
+ * content encryption algorithms, which is what backs the streaming methods of {@link JsonWebEncryption}.
+ * <p>
+ * Decryption is verify-then-release: the ciphertext is held (in memory up to a threshold and in a temporary
+ * file beyond that) while the authentication tag is computed and no plaintext is written out until the tag
+ * has been checked. The temporary file only ever has ciphertext in it. Because JCA GCM decryption itself
+ * holds on to everything until the end, the GCM tag is checked by running the plaintext, which is obtained
+ * a buffer at a time with AES in counter mode, back through a GCM encryption and comparing the tags.
+ * After the tag checks out, the held ciphertext is decrypted, again using counter mode for GCM. So that what gets
+ * decrypted is what was authenticated, the temporary file is read back a chunk at a time and each chunk is checked
+ * against a SHA-256 hash, kept in memory, of what was written before any of it is decrypted. A file that was
+ * changed or truncated in the meantime fails with an {@link IntegrityException}.
+ */
+class StreamingContentEncryption
+{
+    private static final String AES_CTR = "AES/CTR/NoPadding";
+    private static final int GCM_IV_BYTE_LENGTH = 12;
+    private static final int GCM_TAG_BYTE_LENGTH = 16;
+    private static final int AES_BLOCK_BYTE_LENGTH = 16;
+
+    private final ContentEncryptionAlgorithm contentEncryptionAlg;
+    private final AesCbcHmacSha2ContentEncryptionAlgorithm cbcHmacAlg;
+    private final int bufferSize;
+    private final int spoolThreshold;
+
+    StreamingContentEncryption(ContentEncryptionAlgorithm contentEncryptionAlg, int bufferSize, int spoolThreshold) throws JoseException
+    {
+        if (contentEncryptionAlg instanceof AesCbcHmacSha2ContentEncryptionAlgorithm)
+        {
+            cbcHmacAlg = (AesCbcHmacSha2ContentEncryptionAlgorithm) contentEncryptionAlg;
+        }
+        else if (contentEncryptionAlg instanceof AesGcmContentEncryptionAlgorithm)
+        {
+            cbcHmacAlg = null;
+        }
+        else
+        {
+            throw new JoseException("Streaming encryption and decryption isn't supported with the "
+                    + contentEncryptionAlg.getAlgorithmIdentifier() + " content encryption algorithm.");
+        }
+
+        this.contentEncryptionAlg = contentEncryptionAlg;
+        this.bufferSize = bufferSize;
+        this.spoolThreshold = spoolThreshold;
+    }
+
+    int getIvByteLength()
+    {
+        return isGcm() ? GCM_IV_BYTE_LENGTH : AesCbcHmacSha2ContentEncryptionAlgorithm.IV_BYTE_LENGTH;
+    }
+
+    /**
+     * Encrypts all of the plaintext and writes the ciphertext.
+     * @return the authentication tag
+     */
+    byte[] encrypt(InputStream plaintext, OutputStream ciphertext, byte[] aad, byte[] cek, byte[] iv,
+                   String cipherProvider, String macProvider) throws JoseException, IOException
+    {
+        byte[] buffer = new byte[bufferSize];
+        int read;
+
+        if (isGcm())
+        {
+            Cipher cipher = initCipher(SimpleAeadCipher.GCM_TRANSFORMATION_NAME, Cipher.ENCRYPT_MODE, new AesKey(cek), gcmSpec(iv), cipherProvider);
+            cipher.updateAAD(aad);
+            byte[] output = outputBuffer(cipher);
+            try
+            {
+                while ((read = plaintext.read(buffer)) != -1)
+                {
+                    ciphertext.write(output, 0, cipher.update(buffer, 0, read, output, 0));
+                }
+                int length = cipher.doFinal(output, 0);
+                int tagOffset = length - GCM_TAG_BYTE_LENGTH;
+                ciphertext.write(output, 0, tagOffset);
+                return ByteUtil.subArray(output, tagOffset, GCM_TAG_BYTE_LENGTH);
+            }
+            catch (GeneralSecurityException e)
+            {
+                throw new JoseException(e.toString(), e);
+            }
+        }
+
+        Cipher cipher = initCipher(cbcHmacAlg.getJavaAlgorithm(), Cipher.ENCRYPT_MODE, cbcEncryptionKey(cek), new IvParameterSpec(iv), cipherProvider);
+        Mac mac = initMac(aad, cek, iv, macProvider);
+        byte[] output = outputBuffer(cipher);
+        try
+        {
+            int length;
+            while ((read = plaintext.read(buffer)) != -1)
+            {
+                length = cipher.update(buffer, 0, read, output, 0);
+                mac.update(output, 0, length);
+                ciphertext.write(output, 0, length);
+            }
+            length = cipher.doFinal(output, 0);
+            mac.update(output, 0, length);
+            ciphertext.write(output, 0, length);
+            return cbcHmacTag(mac, aad);
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new JoseException(e.toString(), e);
+        }
+        finally
+        {
+            MacUtil.releaseMac(cbcHmacAlg.getHmacJavaAlgorithm(), macProvider, mac);
+        }
+    }
+
+    Decryption startDecryption(byte[] aad, byte[] cek, byte[] iv, String cipherProvider, String macProvider) throws JoseException
+    {
+        return new Decryption(aad, cek, iv, cipherProvider, macProvider);
+    }
+
+    private boolean isGcm()
+    {
+        return cbcHmacAlg == null;
+    }
+
+    private Key cbcEncryptionKey(byte[] cek)
+    {
+        int half = cek.length / 2;
+        return new SecretKeySpec(cek, half, half, AesKey.ALGORITHM);
+    }
+
+    private Mac initMac(byte[] aad, byte[] cek, byte[] iv, String macProvider) throws JoseException
+    {
+        Key hmacKey = new SecretKeySpec(cek, 0, cek.length / 2, HmacKey.ALGORITHM);
+        Mac mac = MacUtil.takeInitializedMac(cbcHmacAlg.getHmacJavaAlgorithm(), hmacKey, macProvider);
+        mac.update(aad);
+        mac.update(iv);
+        return mac;
+    }
+
+    private byte[] cbcHmacTag(Mac mac, byte[] aad)
+    {
+        mac.update(ByteUtil.getBytes((long) ByteUtil.bitLength(aad)));
+        return ByteUtil.subArray(mac.doFinal(), 0, cbcHmacAlg.getTagTruncationLength());
+    }
+
+    private GCMParameterSpec gcmSpec(byte[] iv)
+    {
+        return new GCMParameterSpec(ByteUtil.bitLength(GCM_TAG_BYTE_LENGTH), iv);
+    }
+
+    private IvParameterSpec ctrSpec(byte[] iv) throws JoseException
+    {
+        if (iv.length != GCM_IV_BYTE_LENGTH)
+        {
+            throw new JoseException("Streaming decryption with " + contentEncryptionAlg.getAlgorithmIdentifier()
+                    + " needs a " + ByteUtil.bitLength(GCM_IV_BYTE_LENGTH) + " bit IV but got " + ByteUtil.bitLength(iv) + ".");
+        }
+
+        // with a 96 bit IV, GCM encrypts the plaintext in counter mode starting from IV || 0x00000002
+        byte[] counter = new byte[AES_BLOCK_BYTE_LENGTH];
+        System.arraycopy(iv, 0, counter, 0, GCM_IV_BYTE_LENGTH);
+        counter[AES_BLOCK_BYTE_LENGTH - 1] = 2;
+        return new IvParameterSpec(counter);
+    }
+
+    private byte[] outputBuffer(Cipher cipher)
+    {
+        // room for a full buffer plus whatever the cipher holds back between updates
+        return new byte[cipher.getOutputSize(bufferSize) + 2 * AES_BLOCK_BYTE_LENGTH];
+    }
+
+    private Cipher initCipher(String algorithm, int mode, Key key, AlgorithmParameterSpec spec, String provider) throws JoseException
+    {
+        Cipher cipher = CipherUtil.getCipher(algorithm, provider);
+        try
+        {
+            cipher.init(mode, key, spec);
+        }
+        catch (java.security.InvalidKeyException e)
+        {
+            throw new JoseException("Invalid key for " + algorithm, e);
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw new JoseException(e.toString(), e);
+        }
+        return cipher;
+    }
+
+    class Decryption implements Closeable
+    {
+        private final byte[] cek;
+        private final byte[] iv;
+        private final byte[] aad;
+        private final String cipherProvider;
+        private final String macProvider;
+        private final Spool spool = new Spool(spoolThreshold);
+
+        private Mac mac;
+        private Cipher counterMode;
+        private Cipher tagCalculator;
+        private byte[] plaintextBuffer;
+        private byte[] scratch;
+
+        private Decryption(byte[] aad, byte[] cek, byte[] iv, String cipherProvider, String macProvider) throws JoseException
+        {
+            this.aad = aad;
+            this.cek = cek;
+            this.iv = iv;
+            this.cipherProvider = cipherProvider;
+            this.macProvider = macProvider;
+
+            if (isGcm())
+            {
+                AesKey key = new AesKey(cek);
+                counterMode = initCipher(AES_CTR, Cipher.DECRYPT_MODE, key, ctrSpec(iv), cipherProvider);
+                tagCalculator = initCipher(SimpleAeadCipher.GCM_TRANSFORMATION_NAME, Cipher.ENCRYPT_MODE, key, gcmSpec(iv), cipherProvider);
+                tagCalculator.updateAAD(aad);
+                plaintextBuffer = outputBuffer(counterMode);
+                scratch = outputBuffer(tagCalculator);
+            }
+            else
+            {
+                mac = initMac(aad, cek, iv, macProvider);
+            }
+        }
+
+        /**
+         * Takes the next part of the ciphertext, which is held until {@link #finish(byte[], OutputStream)}.
+         */
+        void update(byte[] ciphertext, int offset, int length) throws JoseException, IOException
+        {
+            spool.write(ciphertext, offset, length);
+            if (isGcm())
+            {
+                try
+                {
+                    int plaintextLength = counterMode.update(ciphertext, offset, length, plaintextBuffer, 0);
+                    tagCalculator.update(plaintextBuffer, 0, plaintextLength, scratch, 0);
+                }
+                catch (ShortBufferException e)
+                {
+                    throw new JoseException(e.toString(), e);
+                }
+            }
+            else
+            {
+                mac.update(ciphertext, offset, length);
+            }
+        }
+
+        /**
+         * Checks the authentication tag and, only if it's good, decrypts and writes out the plaintext.
+         */
+        void finish(byte[] authenticationTag, OutputStream plaintext) throws JoseException, IOException
+        {
+            byte[] calculatedTag;
+            if (isGcm())
+            {
+                try
+                {
+                    int length = tagCalculator.doFinal(scratch, 0);
+                    calculatedTag = ByteUtil.subArray(scratch, length - GCM_TAG_BYTE_LENGTH, GCM_TAG_BYTE_LENGTH);
+                }
+                catch (IllegalBlockSizeException | BadPaddingException | ShortBufferException e)
+                {
+                    throw new JoseException(e.toString(), e);
+                }
+            }
+            else
+            {
+                calculatedTag = cbcHmacTag(mac, aad);
+            }
+
+            if (!ByteUtil.secureEquals(authenticationTag, calculatedTag))
+            {
+                Base64Url base64Url = new Base64Url();
+                String encTag = base64Url.base64UrlEncode(authenticationTag);
+                throw new IntegrityException("Authentication tag check failed. Message=" + encTag);
+            }
+
+            Cipher cipher = isGcm()
+                    ? initCipher(AES_CTR, Cipher.DECRYPT_MODE, new AesKey(cek), ctrSpec(iv), cipherProvider)
+                    : initCipher(cbcHmacAlg.getJavaAlgorithm(), Cipher.DECRYPT_MODE, cbcEncryptionKey(cek), new IvParameterSpec(iv), cipherProvider);
+            byte[] buffer = new byte[bufferSize];
+            byte[] output = outputBuffer(cipher);
+            try (InputStream ciphertext = spool.getInputStream())
+            {
+                int read;
+                while ((read = ciphertext.read(buffer)) != -1)
+                {
+                    plaintext.write(output, 0, cipher.update(buffer, 0, read, output, 0));
+                }
+                plaintext.write(output, 0, cipher.doFinal(output, 0));
+            }
+            catch (SpoolChangedException e)
+            {
+                throw new IntegrityException(e.getMessage(), e);
+            }
+            catch (GeneralSecurityException e)
+            {
+                throw new JoseException(e.toString(), e);
+            }
+            finally
+            {
+                Arrays.fill(output, (byte) 0);
+            }
+        }
+
+        Spool getSpool()
+        {
+            return spool;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (mac != null)
+            {
+                MacUtil.releaseMac(cbcHmacAlg.getHmacJavaAlgorithm(), macProvider, mac);
+                mac = null;
+            }
+            if (plaintextBuffer != null)
+            {
+                Arrays.fill(plaintextBuffer, (byte) 0);
+                Arrays.fill(scratch, (byte) 0);
+            }
+            spool.close();
+        }
+    }
+
+    /**
+     * Holds ciphertext in memory up to the threshold and in a temporary file beyond it. What goes into the file is
+     * hashed a chunk at a time and reading it back fails when a chunk doesn't match.
+     */
+    static class Spool implements Closeable
+    {
+        static final int CHUNK_SIZE = 65536;
+
+        private final int threshold;
+        private Memory memory = new Memory();
+        private Path file;
+        private OutputStream fileOutputStream;
+        private MessageDigest digest;
+        private List<byte[]> chunkHashes;
+        private int chunkFill;
+
+        Spool(int threshold)
+        {
+            this.threshold = threshold;
+        }
+
+        void write(byte[] bytes, int offset, int length) throws IOException
+        {
+            if (fileOutputStream == null && memory.size() + length > threshold)
+            {
+                file = Files.createTempFile("jose4j-", ".ciphertext");
+                fileOutputStream = new BufferedOutputStream(Files.newOutputStream(file));
+                digest = HashUtil.getMessageDigest(HashUtil.SHA_256);
+                chunkHashes = new ArrayList<>();
+                memory.writeTo(this);
+                memory = null;
+            }
+
+            if (fileOutputStream != null)
+            {
+                writeToFile(bytes, offset, length);
+            }
+            else
+            {
+                memory.write(bytes, offset, length);
+            }
+        }
+
+        private void writeToFile(byte[] bytes, int offset, int length) throws IOException
+        {
+            while (length > 0)
+            {
+                int n = Math.min(length, CHUNK_SIZE - chunkFill);
+                fileOutputStream.write(bytes, offset, n);
+                digest.update(bytes, offset, n);
+                chunkFill += n;
+                if (chunkFill == CHUNK_SIZE)
+                {
+                    chunkHashes.add(digest.digest());
+                    chunkFill = 0;
+                }
+                offset += n;
+                length -= n;
+            }
+        }
+
+        boolean isInFile()
+        {
+            return file != null;
+        }
+
+        Path getFile()
+        {
+            return file;
+        }
+
+        InputStream getInputStream() throws IOException
+        {
+            if (fileOutputStream == null)
+            {
+                return memory.getInputStream();
+            }
+
+            fileOutputStream.close();
+            if (chunkFill > 0)
+            {
+                chunkHashes.add(digest.digest());
+                chunkFill = 0;
+            }
+            return new CheckedInputStream(Files.newInputStream(file), chunkHashes);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if (file != null)
+            {
+                fileOutputStream.close();
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Reads the spool file back a whole chunk at a time, handing out none of a chunk until its hash has been checked.
+     */
+    private static class CheckedInputStream extends InputStream
+    {
+        private final InputStream in;
+        private final List<byte[]> chunkHashes;
+        private final MessageDigest digest = HashUtil.getMessageDigest(HashUtil.SHA_256);
+        private final byte[] chunk = new byte[Spool.CHUNK_SIZE];
+        private int chunkIndex;
+        private int position;
+        private int limit;
+
+        private CheckedInputStream(InputStream in, List<byte[]> chunkHashes)
+        {
+            this.in = in;
+            this.chunkHashes = chunkHashes;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            byte[] one = new byte[1];
+            return (read(one, 0, 1) == -1) ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            if (position == limit && !nextChunk())
+            {
+                return -1;
+            }
+
+            int n = Math.min(len, limit - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private boolean nextChunk() throws IOException
+        {
+            int length = 0;
+            int read;
+            while (length < chunk.length && (read = in.read(chunk, length, chunk.length - length)) != -1)
+            {
+                length += read;
+            }
+
+            if (length == 0)
+            {
+                if (chunkIndex != chunkHashes.size())
+                {
+                    throw new SpoolChangedException("The spooled ciphertext was truncated after its authentication tag was checked.");
+                }
+                return false;
+            }
+
+            digest.update(chunk, 0, length);
+            if (chunkIndex >= chunkHashes.size() || !MessageDigest.isEqual(chunkHashes.get(chunkIndex), digest.digest()))
+            {
+                throw new SpoolChangedException("The spooled ciphertext changed after its authentication tag was checked.");
+            }
+
+            chunkIndex++;
+            position = 0;
+            limit = length;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            Arrays.fill(chunk, (byte) 0);
+            in.close();
+        }
+    }
+
+    private static class SpoolChangedException extends IOException
+    {
+        private SpoolChangedException(String message)
+        {
+            super(message);
+        }
+    }
+
+    private static class Memory extends ByteArrayOutputStream
+    {
+        InputStream getInputStream()
+        {
+            // reads the held bytes directly rather than from the copy toByteArray() would make
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+
+        void writeTo(Spool spool) throws IOException
+        {
+            spool.writeToFile(buf, 0, count);
+        }
+    }
+}
@@ -124,7 +124,7 @@ public abstract class WrappingKeyManagementAlgorithm extends AlgorithmInfo imple
         return new CryptoPrimitive(cipher);
     }
 
-    private ProviderContext.Context chooseContext(ProviderContext providerContext)
+    ProviderContext.Context chooseContext(ProviderContext providerContext)
     {
         return useSuppliedKeyProviderContext ? providerContext.getSuppliedKeyProviderContext() : providerContext.getGeneralProviderContext();
     }
@@ -18,10 +18,11 @@ package org.jose4j.jwe.kdf;
 
 import org.jose4j.lang.ByteUtil;
 import org.jose4j.lang.HashUtil;
+import org.jose4j.lang.UncheckedJoseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
+import java.security.DigestException;
 import java.security.MessageDigest;
 
 /**
@@ -85,10 +86,18 @@ public class ConcatKeyDerivationFunction implements ConcatenationKeyDerivationFu
             log.trace("otherInfo: {}", ByteUtil.toDebugString(otherInfo));
         }
 
-        ByteArrayOutputStream derivedByteOutputStream = new ByteArrayOutputStream();
+        int keyDateLenInBytes = ByteUtil.byteLength(keydatalen);
+        byte[] derivedKeyMaterial = new byte[keyDateLenInBytes];
+        byte[] counterBytes = new byte[4];
+        byte[] digest = null;
+        int digestByteLength = messageDigest.getDigestLength();
+        int offset = 0;
         for (int i = 1; i <= reps; i++)
         {
-            byte[] counterBytes = ByteUtil.getBytes(i);
+            counterBytes[0] = (byte) (i >>> 24);
+            counterBytes[1] = (byte) (i >>> 16);
+            counterBytes[2] = (byte) (i >>> 8);
+            counterBytes[3] = (byte) i;
 
             if (traceLog())
             {
@@ -101,19 +110,27 @@ public class ConcatKeyDerivationFunction implements ConcatenationKeyDerivationFu
             messageDigest.update(counterBytes);
             messageDigest.update(sharedSecret);
             messageDigest.update(otherInfo);
-            byte[] digest = messageDigest.digest();
-            if (traceLog()) { log.trace(" k({}): {}", i, ByteUtil.toDebugString(digest));}
-            derivedByteOutputStream.write(digest, 0, digest.length);
-        }
 
-        int keyDateLenInBytes = ByteUtil.byteLength(keydatalen);
-        byte[] derivedKeyMaterial = derivedByteOutputStream.toByteArray();
-        if (traceLog()) { log.trace("derived key material: {}", ByteUtil.toDebugString(derivedKeyMaterial));}
-        if (derivedKeyMaterial.length != keyDateLenInBytes)
-        {
-            byte[] newKeyMaterial  = ByteUtil.subArray(derivedKeyMaterial, 0, keyDateLenInBytes);
-            if (traceLog()) {log.trace("first {} bits of derived key material: {}", keydatalen, ByteUtil.toDebugString(newKeyMaterial));}
-            derivedKeyMaterial = newKeyMaterial;
+            // full hash outputs go straight into the key material and only a final partial one is copied
+            int remaining = keyDateLenInBytes - offset;
+            try
+            {
+                if (remaining >= digestByteLength)
+                {
+                    offset += messageDigest.digest(derivedKeyMaterial, offset, digestByteLength);
+                }
+                else
+                {
+                    digest = (digest == null) ? new byte[digestByteLength] : digest;
+                    messageDigest.digest(digest, 0, digestByteLength);
+                    System.arraycopy(digest, 0, derivedKeyMaterial, offset, remaining);
+                    offset += remaining;
+                }
+            }
+            catch (DigestException e)
+            {
+                throw new UncheckedJoseException("Unexpected problem with the " + messageDigest.getAlgorithm() + " digest.", e);
+            }
         }
 
         if (traceLog()) { log.trace("final derived key material: {}", ByteUtil.toDebugString(derivedKeyMaterial)); }
@@ -0,0 +1,101 @@
+package org.jose4j.jwe.kdf;
+
+import org.jose4j.base64url.Base64Url;
+import org.jose4j.keys.HmacKey;
+import org.jose4j.lang.ByteUtil;
+import org.jose4j.lang.JoseException;
+import org.jose4j.mac.MacUtil;
+
+import javax.crypto.Mac;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of PBKDF2 derived keys, which can be given to
+ * {@link PasswordBasedKeyDerivationFunction2#setDerivedKeyCache(DerivedKeyCache)} (or to
+ * {@code Pbes2HmacShaWithAesKeyWrapAlgorithm.setDerivedKeyCache}) so that repeatedly deriving a key from the same
+ * password, salt, iteration count and length, such as when decrypting the same stored PBES2 JWE more than once,
+ * doesn't redo the deliberately expensive derivation.
+ * <p>
+ * Neither the passwords nor a plain digest of them are retained. Entries are keyed by an HMAC of the inputs
+ * under a random secret that's generated for and held only by the cache instance.
+ * Note that the cache does, by design, retain the derived keys themselves in memory.
+ */
+public class DerivedKeyCache
+{
+    public static final int DEFAULT_MAX_SIZE = 100;
+
+    private final Map<String, byte[]> cache;
+    private final HmacKey cacheKeySecret = new HmacKey(ByteUtil.randomBytes(32));
+
+    /**
+     * Creates a cache that holds up to {@link #DEFAULT_MAX_SIZE} derived keys.
+     */
+    public DerivedKeyCache()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache that holds up to {@code maxSize} derived keys.
+     * @param maxSize the maximum number of derived keys to retain; the least recently used are evicted first.
+     */
+    public DerivedKeyCache(final int maxSize)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("maxSize must be greater than zero but was " + maxSize);
+        }
+
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, byte[]>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest)
+            {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    public int size()
+    {
+        return cache.size();
+    }
+
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    byte[] get(String cacheKey)
+    {
+        byte[] derivedKey = cache.get(cacheKey);
+        return (derivedKey == null) ? null : derivedKey.clone();
+    }
+
+    void put(String cacheKey, byte[] derivedKey)
+    {
+        cache.put(cacheKey, derivedKey.clone());
+    }
+
+    String cacheKey(String hmacAlgorithm, byte[] password, byte[] salt, int iterationCount, int dkLen) throws JoseException
+    {
+        Mac mac = MacUtil.takeInitializedMac(MacUtil.HMAC_SHA256, cacheKeySecret, null);
+        try
+        {
+            // lengths are included so that the boundaries between the variable length inputs are unambiguous
+            mac.update(ByteUtil.getBytes(password.length));
+            mac.update(password);
+            mac.update(ByteUtil.getBytes(salt.length));
+            mac.update(salt);
+            mac.update(ByteUtil.getBytes(iterationCount));
+            mac.update(ByteUtil.getBytes(dkLen));
+            return hmacAlgorithm + "|" + Base64Url.encode(mac.doFinal());
+        }
+        finally
+        {
+            MacUtil.releaseMac(MacUtil.HMAC_SHA256, null, mac);
+        }
+    }
+}
@@ -17,15 +17,36 @@
 package org.jose4j.jwe.kdf;
 
 import org.jose4j.base64url.Base64Url;
+import org.jose4j.jca.InstancePool;
 import org.jose4j.lang.ByteUtil;
 import org.jose4j.lang.StringUtil;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  */
 public class KdfUtil
 {
+    private static final int OTHER_INFO_CACHE_SIZE = 64;
+
+    // the KDF instances hold a MessageDigest so they're reused rather than made new for each message
+    private static final InstancePool<ConcatenationKeyDerivationFunctionWithSha256> KDF_POOL = new InstancePool<>();
+
+    // the otherInfo for a given alg/enc, apu, apv and key length doesn't change, and is usually the same from one message to the next
+    private static final Map<String, byte[]> OTHER_INFO_CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, byte[]>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest)
+                {
+                    return size() > OTHER_INFO_CACHE_SIZE;
+                }
+            });
+
     private Base64Url base64Url = new Base64Url();;
-    private ConcatenationKeyDerivationFunctionWithSha256 kdf;
+    private String provider;
 
     public KdfUtil()
     {
@@ -34,20 +55,56 @@ public class KdfUtil
 
     public KdfUtil(String provider)
     {
-        kdf = ConcatKeyDerivationFunctionFactory.make(provider);
+        this.provider = provider;
     }
 
     public byte[] kdf(byte[] sharedSecret, int keydatalen, String algorithmId, String partyUInfo, String partyVInfo)
     {
-        byte[] algorithmIdBytes = prependDatalen(StringUtil.getBytesUtf8(algorithmId));
-        byte[] partyUInfoBytes = getDatalenDataFormat(partyUInfo);
-        byte[] partyVInfoBytes = getDatalenDataFormat(partyVInfo);
-        byte[] suppPubInfo = ByteUtil.getBytes(keydatalen);
-        byte[] suppPrivInfo =  ByteUtil.EMPTY_BYTES;
+        byte[] otherInfo = getOtherInfo(keydatalen, algorithmId, partyUInfo, partyVInfo);
 
-        byte[] otherInfo = ByteUtil.concat(algorithmIdBytes, partyUInfoBytes, partyVInfoBytes, suppPubInfo, suppPrivInfo);
+        String poolKey = InstancePool.key(provider);
+        ConcatenationKeyDerivationFunctionWithSha256 kdf = KDF_POOL.take(poolKey);
+        if (kdf == null)
+        {
+            kdf = ConcatKeyDerivationFunctionFactory.make(provider);
+        }
+
+        byte[] derived = kdf.kdf(sharedSecret, keydatalen, otherInfo);
+        KDF_POOL.release(poolKey, kdf);
+        return derived;
+    }
 
-        return kdf.kdf(sharedSecret, keydatalen, otherInfo);
+    byte[] getOtherInfo(int keydatalen, String algorithmId, String partyUInfo, String partyVInfo)
+    {
+        String cacheKey = cacheKey(keydatalen, algorithmId, partyUInfo, partyVInfo);
+        byte[] otherInfo = OTHER_INFO_CACHE.get(cacheKey);
+        if (otherInfo == null)
+        {
+            byte[] algorithmIdBytes = prependDatalen(StringUtil.getBytesUtf8(algorithmId));
+            byte[] partyUInfoBytes = getDatalenDataFormat(partyUInfo);
+            byte[] partyVInfoBytes = getDatalenDataFormat(partyVInfo);
+            byte[] suppPubInfo = ByteUtil.getBytes(keydatalen);
+            byte[] suppPrivInfo =  ByteUtil.EMPTY_BYTES;
+
+            otherInfo = ByteUtil.concat(algorithmIdBytes, partyUInfoBytes, partyVInfoBytes, suppPubInfo, suppPrivInfo);
+            OTHER_INFO_CACHE.put(cacheKey, otherInfo);
+        }
+        return otherInfo;
+    }
+
+    private static String cacheKey(int keydatalen, String... values)
+    {
+        // each value is length prefixed so different values can't run together into the same key
+        StringBuilder sb = new StringBuilder().append(keydatalen);
+        for (String value : values)
+        {
+            sb.append('|');
+            if (value != null)
+            {
+                sb.append(value.length()).append(':').append(value);
+            }
+        }
+        return sb.toString();
     }
 
     byte[] prependDatalen(byte[] data)
@@ -17,13 +17,12 @@
 package org.jose4j.jwe.kdf;
 
 import org.jose4j.keys.HmacKey;
-import org.jose4j.lang.ByteUtil;
 import org.jose4j.lang.JoseException;
 import org.jose4j.lang.UncheckedJoseException;
 import org.jose4j.mac.MacUtil;
 
 import javax.crypto.Mac;
-import java.io.ByteArrayOutputStream;
+import javax.crypto.ShortBufferException;
 
 /**
  * An implementation of PBKDF2 from RFC 2898 using HMAC as the underlying pseudorandom function.
@@ -31,6 +30,7 @@ import java.io.ByteArrayOutputStream;
 public class PasswordBasedKeyDerivationFunction2
 {
     private String hmacAlgorithm;
+    private DerivedKeyCache derivedKeyCache;
 
     public PasswordBasedKeyDerivationFunction2(String hmacAlgorithm)
     {
@@ -42,8 +42,36 @@ public class PasswordBasedKeyDerivationFunction2
         return derive(password, salt, iterationCount, dkLen, null);
     }
 
+    /**
+     * Sets a cache of derived keys to consult and populate, which is off ({@code null}) by default.
+     * @param derivedKeyCache the cache or {@code null} to not use one
+     */
+    public void setDerivedKeyCache(DerivedKeyCache derivedKeyCache)
+    {
+        this.derivedKeyCache = derivedKeyCache;
+    }
+
     public byte[] derive(byte[] password, byte[] salt, int iterationCount, int dkLen, String provider) throws JoseException
     {
+        DerivedKeyCache cache = derivedKeyCache;
+        if (cache == null)
+        {
+            return pbkdf2(password, salt, iterationCount, dkLen, provider);
+        }
+
+        String cacheKey = cache.cacheKey(hmacAlgorithm, password, salt, iterationCount, dkLen);
+        byte[] derivedKey = cache.get(cacheKey);
+        if (derivedKey == null)
+        {
+            derivedKey = pbkdf2(password, salt, iterationCount, dkLen, provider);
+            cache.put(cacheKey, derivedKey);
+        }
+        return derivedKey;
+    }
+
+    private byte[] pbkdf2(byte[] password, byte[] salt, int iterationCount, int dkLen, String provider) throws JoseException
+    {
+        // not from the shared pool, which would keep the password keyed Mac around
         Mac prf = MacUtil.getInitializedMac(hmacAlgorithm, new HmacKey(password), provider);
         int hLen = prf.getMacLength();
 
@@ -98,47 +126,48 @@ public class PasswordBasedKeyDerivationFunction2
         //
         //               DK = T_1 || T_2 ||  ...  || T_l<0..r-1>
         //
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        byte[] derivedKey = new byte[dkLen];
+        byte[] u = new byte[hLen];
+        byte[] t = new byte[hLen];
+        byte[] blockIndexBytes = new byte[4];
         for (int i = 0; i < l; i++)
         {
-            byte[] block = f(salt, iterationCount, i + 1, prf);
-            if (i == (l - 1))
-            {
-                block = ByteUtil.subArray(block, 0, r);
-            }
-            byteArrayOutputStream.write(block, 0, block.length);
+            f(salt, iterationCount, i + 1, prf, blockIndexBytes, u, t);
+            System.arraycopy(t, 0, derivedKey, i * hLen, (i == (l - 1)) ? r : hLen);
         }
 
         //  5. Output the derived key DK.
-        return byteArrayOutputStream.toByteArray();
+        return derivedKey;
     }
 
-    byte[] f(byte[] salt, int iterationCount, int blockIndex, Mac prf)
+    // writes F (P, S, c, i) into t, reusing the HMAC state and the given buffers for every iteration
+    void f(byte[] salt, int iterationCount, int blockIndex, Mac prf, byte[] blockIndexBytes, byte[] u, byte[] t)
     {
-        byte[] currentU;
-        byte[] lastU = null;
-        byte[] xorU = null;
+        blockIndexBytes[0] = (byte) (blockIndex >>> 24);
+        blockIndexBytes[1] = (byte) (blockIndex >>> 16);
+        blockIndexBytes[2] = (byte) (blockIndex >>> 8);
+        blockIndexBytes[3] = (byte) blockIndex;
 
-        for (int i = 1; i <= iterationCount; i++)
+        try
         {
-            byte[] inputBytes;
-            if (i == 1)
-            {
-                inputBytes = ByteUtil.concat(salt, ByteUtil.getBytes(blockIndex));
-                currentU = prf.doFinal(inputBytes);
-                xorU = currentU;
-            }
-            else
+            prf.update(salt);
+            prf.update(blockIndexBytes);
+            prf.doFinal(u, 0);
+            System.arraycopy(u, 0, t, 0, u.length);
+
+            for (int i = 2; i <= iterationCount; i++)
             {
-                currentU = prf.doFinal(lastU);
-                for (int j = 0; j < currentU.length; j++)
+                prf.update(u);
+                prf.doFinal(u, 0);
+                for (int j = 0; j < u.length; j++)
                 {
-                    xorU[j] = (byte) (currentU[j] ^ xorU[j]);
+                    t[j] ^= u[j];
                 }
             }
-
-            lastU = currentU;
         }
-        return xorU;
+        catch (ShortBufferException e)
+        {
+            throw new UncheckedJoseException("Unexpected problem computing PBKDF2 block " + blockIndex, e);
+        }
     }
 }
@@ -16,6 +16,7 @@
 package org.jose4j.jwk;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
@@ -23,8 +24,12 @@ import java.util.concurrent.locks.ReentrantLock;
 import org.jose4j.http.SimpleResponse;
 import org.jose4j.jwk.cache.JwksCache;
 import org.jose4j.jwk.cache.InMemoryJwksCache;
+import org.jose4j.jwk.cache.ParsedJwkCache;
 import org.jose4j.lang.ExceptionHelp;
 import org.jose4j.lang.JoseException;
+import org.jose4j.metrics.JoseMetrics;
+import org.jose4j.metrics.Metrics;
+import org.jose4j.metrics.Timing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,8 +53,10 @@ extends AbstractHttpsJwks
     private volatile long defaultCacheDuration = 3600;  // seconds
     private volatile long retainCacheOnErrorDurationMills = 0;
     private volatile JwksCache cache = new InMemoryJwksCache();
+    private volatile ParsedJwkCache parsedJwkCache = new ParsedJwkCache();
 
-    // used to stop multiple threads from refreshing in parallel
+    // used to stop multiple threads from refreshing in parallel, it's held across the HTTP request but being
+    // a j.u.c. lock, rather than a monitor, the threads waiting on it don't pin a carrier when they're virtual
     private final ReentrantLock refreshLock = new ReentrantLock();
     
     private long refreshReprieveThreshold = 300L;
@@ -131,6 +138,17 @@ extends AbstractHttpsJwks
         }
     }
 
+    /**
+     * Sets the cache of already built JWKs that is used, when refreshing the JWKS content, to reuse the keys
+     * (and their underlying JCA key objects) that haven't changed since the last refresh rather than rebuilding them.
+     * By default each instance uses its own {@link ParsedJwkCache}.
+     * @param parsedJwkCache the cache to use or {@code null} to build every key anew on each refresh
+     */
+    public void setParsedJwkCache(ParsedJwkCache parsedJwkCache)
+    {
+        this.parsedJwkCache = parsedJwkCache;
+    }
+
     /**
      * Gets the JSON Web Keys from the JWKS endpoint location or from local cache, if appropriate.
      * @return a list of JsonWebKeys
@@ -141,11 +159,20 @@ extends AbstractHttpsJwks
     {
         final long now = System.currentTimeMillis();
         JwksCache.Entry entry = getCacheEntry();
+        JoseMetrics metrics = Metrics.get();
         if (entry.getExpiresAt() > now)
         {
             // common case: keys are still good
+            if (metrics != null)
+            {
+                metrics.increment(JoseMetrics.Event.JWKS_CACHE_HIT, getLocation());
+            }
             return entry.getKeys();
         }
+        if (metrics != null)
+        {
+            metrics.increment(JoseMetrics.Event.JWKS_CACHE_MISS, getLocation());
+        }
         if (!refreshLock.tryLock())
         {
             // another thread is already refreshing, use cached keys for now (if not null)
@@ -155,7 +182,7 @@ extends AbstractHttpsJwks
             }
             else
             {
-                refreshLock.lock();
+                lockForRefresh();
             }
         }
         // keys are expired and no other thread is refreshing them
@@ -186,6 +213,17 @@ extends AbstractHttpsJwks
     }
 
 
+    /**
+     * Gets the cached JSON Web Keys, if there are any that haven't expired, without ever blocking or making
+     * a request to the JWKS endpoint.
+     * @return the list of cached JsonWebKeys or null, if they've expired or haven't yet been loaded
+     */
+    public List<JsonWebKey> getCachedJsonWebKeys()
+    {
+        JwksCache.Entry entry = getCacheEntry();
+        return (entry.getExpiresAt() > System.currentTimeMillis()) ? entry.getKeys() : null;
+    }
+
     /**
      * Forces a refresh of the cached JWKs from the JWKS endpoint.  With slight caveat/optimization that if the cache
      * age is less than {@code refreshReprieveThreshold} it will not actually force a refresh but use the cache instead.
@@ -194,7 +232,7 @@ extends AbstractHttpsJwks
      */
     public void refresh() throws JoseException, IOException
     {
-        refreshLock.lock();
+        lockForRefresh();
         try
         {
             JwksCache.Entry currentEntry = getCacheEntry();
@@ -207,18 +245,20 @@ extends AbstractHttpsJwks
             else
             {
                 log.debug("Refreshing/loading JWKS from {}", getLocation());
-                SimpleResponse simpleResponse = performSimpleHttpGet();
-                JsonWebKeySet jwks = new JsonWebKeySet(simpleResponse.getBody());
-                List<JsonWebKey> keys = jwks.getJsonWebKeys();
-                long cacheLife = getCacheLife(simpleResponse);
-                if (cacheLife <= 0)
+                Timing timing = Timing.start(JoseMetrics.Operation.JWKS_REFRESH);
+                boolean success = false;
+                try
                 {
-                    log.debug("Will use default cache duration of {} seconds for content from {}", defaultCacheDuration, getLocation());
-                    cacheLife = defaultCacheDuration;
+                    load();
+                    success = true;
+                }
+                finally
+                {
+                    if (timing != null)
+                    {
+                        timing.end(getLocation(), success);
+                    }
                 }
-                long exp = System.currentTimeMillis() + (cacheLife * 1000L);
-                log.debug("Updated JWKS content from {} will be cached for {} seconds until about {} -> {}", getLocation(), cacheLife, new Date(exp), keys);
-                updateCache(new JwksCache.Entry(keys, exp));
             }
         } 
         finally
@@ -227,6 +267,35 @@ extends AbstractHttpsJwks
         }
     }
 
+    private void load() throws JoseException, IOException
+    {
+        SimpleResponse simpleResponse = performSimpleHttpGet();
+        JsonWebKeySet jwks = new JsonWebKeySet(simpleResponse.getBody(), parsedJwkCache);
+        List<JsonWebKey> keys = jwks.getJsonWebKeys();
+        long cacheLife = getCacheLife(simpleResponse);
+        if (cacheLife <= 0)
+        {
+            log.debug("Will use default cache duration of {} seconds for content from {}", defaultCacheDuration, getLocation());
+            cacheLife = defaultCacheDuration;
+        }
+        long exp = System.currentTimeMillis() + (cacheLife * 1000L);
+        log.debug("Updated JWKS content from {} will be cached for {} seconds until about {} -> {}", getLocation(), cacheLife, new Date(exp), keys);
+        updateCache(new JwksCache.Entry(keys, exp));
+    }
+
+    private void lockForRefresh() throws InterruptedIOException
+    {
+        try
+        {
+            refreshLock.lockInterruptibly();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting on the refresh of JWKS content from " + getLocation());
+        }
+    }
+
     private JwksCache.Entry getCacheEntry()
     {
         JwksCache.Entry entry = cache.get(getLocation());
@@ -17,6 +17,7 @@
 package org.jose4j.jwk;
 
 import org.jose4j.json.JsonUtil;
+import org.jose4j.jwk.cache.ParsedJwkCache;
 import org.jose4j.lang.ExceptionHelp;
 import org.jose4j.lang.JoseException;
 import org.slf4j.Logger;
@@ -35,6 +36,18 @@ public class JsonWebKeySet
     private List<JsonWebKey> keys;
 
     public JsonWebKeySet(String json) throws JoseException
+    {
+        this(json, null);
+    }
+
+    /**
+     * Creates a JWK Set from the JSON content, reusing previously built keys from the given cache
+     * for JWKs whose parameters are unchanged.
+     * @param json the JSON JWK Set content
+     * @param parsedJwkCache cache of previously built JWKs or {@code null} to always build new ones
+     * @throws JoseException if the content isn't a JWK Set
+     */
+    public JsonWebKeySet(String json, ParsedJwkCache parsedJwkCache) throws JoseException
     {
         Map<String,Object> parsed = JsonUtil.parseJson(json);
         List<Map<String,Object>> jwkParamMapList = (List<Map<String,Object>>) parsed.get(JWK_SET_MEMBER_NAME);
@@ -49,7 +62,9 @@ public class JsonWebKeySet
         {
             try
             {
-                JsonWebKey jwk = JsonWebKey.Factory.newJwk(jwkParamsMap);
+                JsonWebKey jwk = (parsedJwkCache == null)
+                        ? JsonWebKey.Factory.newJwk(jwkParamsMap)
+                        : parsedJwkCache.getJsonWebKey(jwkParamsMap);
                 keys.add(jwk);
             }
             catch (Exception e)
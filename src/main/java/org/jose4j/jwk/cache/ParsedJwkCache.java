@@ -0,0 +1,100 @@
+package org.jose4j.jwk.cache;
+
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jose4j.base64url.Base64Url;
+import org.jose4j.json.JsonUtil;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.lang.HashUtil;
+import org.jose4j.lang.JoseException;
+import org.jose4j.lang.StringUtil;
+
+/**
+ * A bounded, least recently used cache of already built {@link JsonWebKey} instances keyed by a digest
+ * of their canonical JWK parameters. Building a JWK from its JSON parameters involves creating the
+ * underlying JCA {@code PublicKey} (and potentially {@code PrivateKey}) via a {@code KeyFactory}, which
+ * for elliptic curve keys also includes the point-on-curve checks. When the content of a JWKS endpoint is
+ * periodically refreshed, most if not all of the keys are typically unchanged from one refresh to the next
+ * and this cache allows those keys to be reused rather than rebuilt.
+ * <p>
+ * Note that the same {@code JsonWebKey} instance is returned for the same parameters so callers
+ * should not modify keys obtained by way of this cache.
+ */
+public class ParsedJwkCache
+{
+    public static final int DEFAULT_MAX_SIZE = 100;
+
+    private final Map<String, JsonWebKey> cache;
+
+    /**
+     * Creates a cache that holds up to {@link #DEFAULT_MAX_SIZE} keys.
+     */
+    public ParsedJwkCache()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache that holds up to {@code maxSize} keys.
+     * @param maxSize the maximum number of keys to retain; the least recently used are evicted first.
+     */
+    public ParsedJwkCache(final int maxSize)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("maxSize must be greater than zero but was " + maxSize);
+        }
+
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, JsonWebKey>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JsonWebKey> eldest)
+            {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Returns the previously built JWK for the given parameters, if there is one,
+     * or builds a new one with {@link JsonWebKey.Factory#newJwk(Map)} and caches it.
+     * @param params the JWK parameters
+     * @return the JsonWebKey
+     * @throws JoseException if the parameters can't be made into a JsonWebKey
+     */
+    public JsonWebKey getJsonWebKey(Map<String, Object> params) throws JoseException
+    {
+        String cacheKey = cacheKey(params);
+        JsonWebKey jwk = cache.get(cacheKey);
+        if (jwk == null)
+        {
+            jwk = JsonWebKey.Factory.newJwk(params);
+            cache.put(cacheKey, jwk);
+        }
+        return jwk;
+    }
+
+    public int size()
+    {
+        return cache.size();
+    }
+
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    static String cacheKey(Map<String, Object> params)
+    {
+        // member order doesn't change the key and, because the parameters might include private key
+        // values, only a digest of the canonical form is retained
+        String canonical = JsonUtil.toJson(new TreeMap<>(params));
+        MessageDigest messageDigest = HashUtil.getMessageDigest(HashUtil.SHA_256);
+        byte[] digest = messageDigest.digest(StringUtil.getBytesUtf8(canonical));
+        return Base64Url.encode(digest);
+    }
+}
@@ -26,12 +26,13 @@ import org.jose4j.lang.JoseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.security.*;
 import java.security.spec.AlgorithmParameterSpec;
 
 /**
  */
-public abstract class BaseSignatureAlgorithm extends AlgorithmInfo implements JsonWebSignatureAlgorithm
+public abstract class BaseSignatureAlgorithm extends AlgorithmInfo implements JsonWebSignatureAlgorithm, IncrementalSignatureAlgorithm
 {
     private final Logger log = LoggerFactory.getLogger(this.getClass());
 
@@ -52,13 +53,52 @@ public abstract class BaseSignatureAlgorithm extends AlgorithmInfo implements Js
 
     @Override
     public boolean verifySignature(byte[] signatureBytes, Key key, byte[] securedInputBytes, ProviderContext providerContext) throws JoseException
+    {
+        CryptoPrimitive cryptoPrimitive = prepareForVerify(key, providerContext);
+        update(cryptoPrimitive, securedInputBytes, 0, securedInputBytes.length);
+        return verifySignature(signatureBytes, cryptoPrimitive);
+    }
+
+    @Override
+    public CryptoPrimitive prepareForVerify(Key key, ProviderContext providerContext) throws JoseException
     {
         Signature signature = getSignature(providerContext);
         initForVerify(signature, key);
+        return new CryptoPrimitive(signature);
+    }
+
+    @Override
+    public void update(CryptoPrimitive cryptoPrimitive, byte[] securedInputBytes, int offset, int length) throws JoseException
+    {
         try
         {
-            signature.update(securedInputBytes);
-            return signature.verify(signatureBytes);
+            cryptoPrimitive.getSignature().update(securedInputBytes, offset, length);
+        }
+        catch (SignatureException e)
+        {
+            throw new JoseException("Problem updating " + getAlgorithmIdentifier() + " signature input.", e);
+        }
+    }
+
+    @Override
+    public void update(CryptoPrimitive cryptoPrimitive, ByteBuffer securedInput) throws JoseException
+    {
+        try
+        {
+            cryptoPrimitive.getSignature().update(securedInput);
+        }
+        catch (SignatureException e)
+        {
+            throw new JoseException("Problem updating " + getAlgorithmIdentifier() + " signature input.", e);
+        }
+    }
+
+    @Override
+    public boolean verifySignature(byte[] signatureBytes, CryptoPrimitive cryptoPrimitive) throws JoseException
+    {
+        try
+        {
+            return cryptoPrimitive.getSignature().verify(signatureBytes);
         }
         catch (SignatureException e)
         {
@@ -54,7 +54,8 @@ public class EcdsaUsingShaAlgorithm extends BaseSignatureAlgorithm implements Js
         this.signatureByteLength = signatureByteLength;
     }
 
-    public boolean verifySignature(byte[] signatureBytes, Key key, byte[] securedInputBytes, ProviderContext providerContext) throws JoseException
+    @Override
+    public boolean verifySignature(byte[] signatureBytes, CryptoPrimitive cryptoPrimitive) throws JoseException
     {
         // some pre-validation before calling the JCA to verify the signature
         // inspired by CVE-2022-21449 https://neilmadden.blog/2022/04/19/psychic-signatures-in-java/
@@ -85,7 +86,7 @@ public class EcdsaUsingShaAlgorithm extends BaseSignatureAlgorithm implements Js
             throw new JoseException("Unable to convert R and S as a concatenated byte array to DER encoding.", e);
         }
 
-        return super.verifySignature(derEncodedSignatureBytes, key, securedInputBytes, providerContext);
+        return super.verifySignature(derEncodedSignatureBytes, cryptoPrimitive);
     }
 
     public byte[] sign(CryptoPrimitive cryptoPrimitive, byte[] securedInputBytes) throws JoseException
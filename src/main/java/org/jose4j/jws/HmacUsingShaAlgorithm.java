@@ -29,12 +29,13 @@ import org.jose4j.mac.MacUtil;
 
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
 
 /**
  */
-public class HmacUsingShaAlgorithm extends AlgorithmInfo implements JsonWebSignatureAlgorithm
+public class HmacUsingShaAlgorithm extends AlgorithmInfo implements JsonWebSignatureAlgorithm, IncrementalSignatureAlgorithm
 {
     private int minimumKeyLength;
 
@@ -73,6 +74,36 @@ public class HmacUsingShaAlgorithm extends AlgorithmInfo implements JsonWebSigna
         return mac.doFinal(securedInputBytes);
     }
 
+    @Override
+    public CryptoPrimitive prepareForVerify(Key key, ProviderContext providerContext) throws JoseException
+    {
+        if (!(key instanceof SecretKey))
+        {
+            throw new InvalidKeyException(key.getClass() + " cannot be used for HMAC verification.");
+        }
+
+        return new CryptoPrimitive(getMacInstance(key, providerContext));
+    }
+
+    @Override
+    public void update(CryptoPrimitive cryptoPrimitive, byte[] securedInputBytes, int offset, int length)
+    {
+        cryptoPrimitive.getMac().update(securedInputBytes, offset, length);
+    }
+
+    @Override
+    public void update(CryptoPrimitive cryptoPrimitive, ByteBuffer securedInput)
+    {
+        cryptoPrimitive.getMac().update(securedInput);
+    }
+
+    @Override
+    public boolean verifySignature(byte[] signatureBytes, CryptoPrimitive cryptoPrimitive)
+    {
+        byte[] calculatedSigature = cryptoPrimitive.getMac().doFinal();
+        return ByteUtil.secureEquals(signatureBytes, calculatedSigature);
+    }
+
     private Mac getMacInstance(Key key, ProviderContext providerContext) throws JoseException
     {
         String macProvider = providerContext.getSuppliedKeyProviderContext().getMacProvider();
@@ -0,0 +1,23 @@
+package org.jose4j.jws;
+
+import org.jose4j.jca.ProviderContext;
+import org.jose4j.jwa.CryptoPrimitive;
+import org.jose4j.lang.JoseException;
+
+import java.nio.ByteBuffer;
+import java.security.Key;
+
+/**
+ * Implemented by JWS algorithms that can sign and verify a JWS Signing Input that's given to them a piece at a time,
+ * which is what the streaming methods of {@link JsonWebSignature} need.
+ * For signing, the primitive from {@link JsonWebSignatureAlgorithm#prepareForSign(Key, ProviderContext)} is given
+ * the input with {@link #update(CryptoPrimitive, byte[], int, int)} and then
+ * {@link JsonWebSignatureAlgorithm#sign(CryptoPrimitive, byte[])} is called with no further input.
+ */
+public interface IncrementalSignatureAlgorithm extends JsonWebSignatureAlgorithm
+{
+    CryptoPrimitive prepareForVerify(Key key, ProviderContext providerContext) throws JoseException;
+    void update(CryptoPrimitive cryptoPrimitive, byte[] securedInputBytes, int offset, int length) throws JoseException;
+    void update(CryptoPrimitive cryptoPrimitive, ByteBuffer securedInput) throws JoseException;
+    boolean verifySignature(byte[] signatureBytes, CryptoPrimitive cryptoPrimitive) throws JoseException;
+}
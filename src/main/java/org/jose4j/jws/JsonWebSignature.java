@@ -24,16 +24,29 @@ import org.jose4j.jwx.CompactSerializer;
 import org.jose4j.jwx.HeaderParameterNames;
 import org.jose4j.jwx.JsonWebStructure;
 import org.jose4j.keys.KeyPersuasion;
+import org.jose4j.lang.ByteUtil;
 import org.jose4j.lang.IntegrityException;
 import org.jose4j.lang.InvalidAlgorithmException;
 import org.jose4j.lang.JoseException;
 import org.jose4j.lang.StringUtil;
+import org.jose4j.metrics.JoseMetrics;
+import org.jose4j.metrics.Timing;
 
 import javax.crypto.Mac;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.Key;
 import java.security.Signature;
+import java.util.Arrays;
+import java.util.Base64;
 
 /**
  * The JsonWebSignature class is used to produce and consume JSON Web Signature (JWS) as defined in
@@ -43,6 +56,10 @@ public class JsonWebSignature extends JsonWebStructure
 {
     public static final short COMPACT_SERIALIZATION_PARTS = 3;
 
+    private static final int MAX_STREAMED_PART_LENGTH = 262144;
+
+    public static final int DEFAULT_MAPPED_WINDOW_SIZE = 64 * 1024 * 1024;
+
     private byte[] payloadBytes;
     private String payloadCharEncoding = StringUtil.UTF_8;
     private String encodedPayload;
@@ -50,6 +67,8 @@ public class JsonWebSignature extends JsonWebStructure
     private Boolean validSignature;
     private CryptoPrimitive signingPrimitive;
 
+    private int mappedWindowSize = DEFAULT_MAPPED_WINDOW_SIZE;
+
     public JsonWebSignature()
     {
         if (!Boolean.getBoolean("org.jose4j.jws.default-allow-none"))
@@ -177,6 +196,386 @@ public class JsonWebSignature extends JsonWebStructure
         return CompactSerializer.serialize(getEncodedHeader(), "", getEncodedSignature());
     }
 
+    /**
+     * Signs the payload read from the given stream and writes the JWS Compact Serialization to the output stream
+     * as it goes, a buffer at a time, so that memory use doesn't depend on the size of the payload.
+     * When the "b64" header is false (RFC 7797), the payload is written as is and must not contain any period ('.') characters.
+     * Neither stream is closed.
+     * @param payload the payload to sign
+     * @param compactSerialization where the compact serialization is written
+     * @throws JoseException if an error condition is encountered during the signing process
+     * @throws IOException if there's a problem reading or writing one of the streams
+     */
+    public void sign(InputStream payload, OutputStream compactSerialization) throws JoseException, IOException
+    {
+        sign(payload, compactSerialization, false);
+    }
+
+    /**
+     * Signs the payload read from the given stream and writes the compact serialization with an empty/detached payload,
+     * like {@link #getDetachedContentCompactSerialization()} but a buffer at a time. This is the usual way to use an
+     * RFC 7797 unencoded ("b64" header of false) payload.
+     * Neither stream is closed.
+     * @param payload the payload to sign
+     * @param detachedContentCompactSerialization where the encoded header + ".." + the encoded signature is written
+     * @throws JoseException if an error condition is encountered during the signing process
+     * @throws IOException if there's a problem reading or writing one of the streams
+     */
+    public void signDetached(InputStream payload, OutputStream detachedContentCompactSerialization) throws JoseException, IOException
+    {
+        sign(payload, detachedContentCompactSerialization, true);
+    }
+
+    private void sign(InputStream payload, OutputStream out, boolean detached) throws JoseException, IOException
+    {
+        IncrementalSignatureAlgorithm algorithm = getIncrementalAlgorithm();
+        CryptoPrimitive cryptoPrimitive = (signingPrimitive == null) ? createSigningPrimitive() : signingPrimitive;
+        boolean encodePayload = !isRfc7797UnencodedPayload();
+
+        byte[] headerPart = StringUtil.getBytesAscii(getEncodedHeader() + ".");
+        algorithm.update(cryptoPrimitive, headerPart, 0, headerPart.length);
+        out.write(headerPart);
+
+        // a multiple of 3 so each full chunk base64url encodes without padding and the pieces concatenate
+        byte[] chunk = new byte[getStreamBufferSize() / 3 * 3];
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        byte[] encoded = new byte[chunk.length / 3 * 4];
+        int filled;
+        do
+        {
+            filled = readFully(payload, chunk);
+            byte[] part;
+            int length;
+            if (encodePayload)
+            {
+                length = encoder.encode(filled == chunk.length ? chunk : Arrays.copyOf(chunk, filled), encoded);
+                part = encoded;
+            }
+            else
+            {
+                if (!detached && indexOfPeriod(chunk, 0, filled) != -1)
+                {
+                    throw new JoseException("per https://tools.ietf.org/html/rfc7797#section-5.2 " +
+                            "when using the JWS Compact Serialization, unencoded non-detached " +
+                            "payloads using period ('.') characters would cause parsing errors; " +
+                            "such payloads MUST NOT be used with the JWS Compact Serialization.");
+                }
+                length = filled;
+                part = chunk;
+            }
+
+            algorithm.update(cryptoPrimitive, part, 0, length);
+            if (!detached)
+            {
+                out.write(part, 0, length);
+            }
+        }
+        while (filled == chunk.length);
+
+        setSignature(algorithm.sign(cryptoPrimitive, ByteUtil.EMPTY_BYTES));
+        out.write('.');
+        out.write(StringUtil.getBytesAscii(getEncodedSignature()));
+    }
+
+    /**
+     * Reads a JWS Compact Serialization from the channel and verifies its signature a buffer at a time,
+     * so that memory use doesn't depend on the size of the payload. The payload itself isn't kept.
+     * The key, algorithm constraints, etc. are set up the same as they are for {@link #verifySignature()}.
+     * The channel isn't closed.
+     * @param compactSerialization the JWS Compact Serialization
+     * @return true if the signature is valid, false otherwise
+     * @throws JoseException if an error condition is encountered during the signature verification process
+     * @throws IOException if there's a problem reading from the channel
+     */
+    public boolean verifySignature(ReadableByteChannel compactSerialization) throws JoseException, IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(getStreamBufferSize());
+        buffer.flip();
+
+        setEncodedHeader(readPart(compactSerialization, buffer, true));
+        IncrementalSignatureAlgorithm algorithm = getIncrementalAlgorithm();
+        CryptoPrimitive cryptoPrimitive = prepareForVerify(algorithm);
+
+        updateWithHeader(algorithm, cryptoPrimitive);
+
+        boolean delimited = false;
+        while (!delimited && fill(compactSerialization, buffer))
+        {
+            int start = buffer.position();
+            int period = indexOfPeriod(buffer.array(), start, buffer.limit());
+            int end = (period == -1) ? buffer.limit() : period;
+            algorithm.update(cryptoPrimitive, buffer.array(), start, end - start);
+            delimited = period != -1;
+            buffer.position(delimited ? end + 1 : end);
+        }
+
+        if (!delimited)
+        {
+            throw new JoseException("A JWS Compact Serialization must have exactly "+COMPACT_SERIALIZATION_PARTS+" parts separated by period ('.') characters");
+        }
+
+        byte[] signature = base64url.base64UrlDecode(readPart(compactSerialization, buffer, false));
+        setSignature(signature);
+        return algorithm.verifySignature(signature, cryptoPrimitive);
+    }
+
+    /**
+     * Verifies the signature of a JWS with a detached payload, which was set up with
+     * {@link #setCompactSerialization(String)} and the detached content compact serialization, against
+     * the payload read from the channel a buffer at a time. The payload itself isn't kept.
+     * The channel isn't closed.
+     * @param payload the detached payload
+     * @return true if the signature is valid, false otherwise
+     * @throws JoseException if an error condition is encountered during the signature verification process
+     * @throws IOException if there's a problem reading from the channel
+     */
+    public boolean verifyDetachedSignature(ReadableByteChannel payload) throws JoseException, IOException
+    {
+        IncrementalSignatureAlgorithm algorithm = getIncrementalAlgorithm();
+        CryptoPrimitive cryptoPrimitive = prepareForVerify(algorithm);
+        boolean encodePayload = !isRfc7797UnencodedPayload();
+
+        updateWithHeader(algorithm, cryptoPrimitive);
+
+        ByteBuffer buffer = ByteBuffer.allocate(getStreamBufferSize() / 3 * 3);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        byte[] encoded = new byte[buffer.capacity() / 3 * 4];
+        boolean end = false;
+        while (!end)
+        {
+            buffer.clear();
+            while (buffer.hasRemaining() && !end)
+            {
+                end = payload.read(buffer) == -1;
+            }
+
+            byte[] chunk = buffer.array();
+            int length = buffer.position();
+            if (encodePayload)
+            {
+                length = encoder.encode(end ? Arrays.copyOf(chunk, length) : chunk, encoded);
+                chunk = encoded;
+            }
+            algorithm.update(cryptoPrimitive, chunk, 0, length);
+        }
+
+        return algorithm.verifySignature(getSignature(), cryptoPrimitive);
+    }
+
+    /**
+     * Sets the size of the regions of a file that are memory mapped at a time when signing or verifying detached
+     * content from a file with {@link #getDetachedContentCompactSerialization(FileChannel)} or
+     * {@link #verifyDetachedSignature(FileChannel)}.
+     * @param mappedWindowSize the size in bytes, which is 64 MiB by default
+     */
+    public void setMappedWindowSize(int mappedWindowSize)
+    {
+        if (mappedWindowSize < 3)
+        {
+            throw new IllegalArgumentException("mappedWindowSize must be at least 3 but was " + mappedWindowSize);
+        }
+        this.mappedWindowSize = mappedWindowSize;
+    }
+
+    /**
+     * Produces the compact serialization with an empty/detached payload, like {@link #getDetachedContentCompactSerialization()},
+     * where the payload is the content of a file, which is memory mapped and given to the signature a region at a time
+     * so that files of any size can be signed without reading them onto the heap.
+     * @param payload the file with the payload
+     * @return the encoded header + ".." + the encoded signature
+     * @throws JoseException if an error condition is encountered during the signing process
+     * @throws IOException if there's a problem reading the file
+     */
+    public String getDetachedContentCompactSerialization(Path payload) throws JoseException, IOException
+    {
+        try (FileChannel fileChannel = FileChannel.open(payload, StandardOpenOption.READ))
+        {
+            return getDetachedContentCompactSerialization(fileChannel);
+        }
+    }
+
+    /**
+     * Produces the compact serialization with an empty/detached payload, like {@link #getDetachedContentCompactSerialization()},
+     * where the payload is the content of a file, which is memory mapped and given to the signature a region at a time
+     * so that files of any size can be signed without reading them onto the heap. The channel isn't closed.
+     * @param payload the file with the payload
+     * @return the encoded header + ".." + the encoded signature
+     * @throws JoseException if an error condition is encountered during the signing process
+     * @throws IOException if there's a problem reading the file
+     */
+    public String getDetachedContentCompactSerialization(FileChannel payload) throws JoseException, IOException
+    {
+        IncrementalSignatureAlgorithm algorithm = getIncrementalAlgorithm();
+        CryptoPrimitive cryptoPrimitive = (signingPrimitive == null) ? createSigningPrimitive() : signingPrimitive;
+        updateWithHeader(algorithm, cryptoPrimitive);
+        updateWithFile(algorithm, cryptoPrimitive, payload);
+        setSignature(algorithm.sign(cryptoPrimitive, ByteUtil.EMPTY_BYTES));
+        return CompactSerializer.serialize(getEncodedHeader(), "", getEncodedSignature());
+    }
+
+    /**
+     * Verifies the signature of a JWS with a detached payload, which was set up with
+     * {@link #setCompactSerialization(String)} and the detached content compact serialization, against
+     * the content of a file, which is memory mapped and given to the signature a region at a time.
+     * @param payload the file with the detached payload
+     * @return true if the signature is valid, false otherwise
+     * @throws JoseException if an error condition is encountered during the signature verification process
+     * @throws IOException if there's a problem reading the file
+     */
+    public boolean verifyDetachedSignature(Path payload) throws JoseException, IOException
+    {
+        try (FileChannel fileChannel = FileChannel.open(payload, StandardOpenOption.READ))
+        {
+            return verifyDetachedSignature(fileChannel);
+        }
+    }
+
+    /**
+     * Verifies the signature of a JWS with a detached payload, which was set up with
+     * {@link #setCompactSerialization(String)} and the detached content compact serialization, against
+     * the content of a file, which is memory mapped and given to the signature a region at a time.
+     * The channel isn't closed.
+     * @param payload the file with the detached payload
+     * @return true if the signature is valid, false otherwise
+     * @throws JoseException if an error condition is encountered during the signature verification process
+     * @throws IOException if there's a problem reading the file
+     */
+    public boolean verifyDetachedSignature(FileChannel payload) throws JoseException, IOException
+    {
+        IncrementalSignatureAlgorithm algorithm = getIncrementalAlgorithm();
+        CryptoPrimitive cryptoPrimitive = prepareForVerify(algorithm);
+        updateWithHeader(algorithm, cryptoPrimitive);
+        updateWithFile(algorithm, cryptoPrimitive, payload);
+        return algorithm.verifySignature(getSignature(), cryptoPrimitive);
+    }
+
+    private void updateWithHeader(IncrementalSignatureAlgorithm algorithm, CryptoPrimitive cryptoPrimitive) throws JoseException
+    {
+        byte[] headerPart = StringUtil.getBytesAscii(getEncodedHeader() + ".");
+        algorithm.update(cryptoPrimitive, headerPart, 0, headerPart.length);
+    }
+
+    private void updateWithFile(IncrementalSignatureAlgorithm algorithm, CryptoPrimitive cryptoPrimitive, FileChannel payload) throws JoseException, IOException
+    {
+        boolean encodePayload = !isRfc7797UnencodedPayload();
+
+        // multiples of 3 so the base64url encoded pieces concatenate
+        long window = mappedWindowSize / 3 * 3;
+        byte[] chunk = encodePayload ? new byte[getStreamBufferSize() / 3 * 3] : null;
+        byte[] encoded = encodePayload ? new byte[chunk.length / 3 * 4] : null;
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+        long size = payload.size();
+        for (long position = 0; position < size; position += window)
+        {
+            MappedByteBuffer mapped = payload.map(FileChannel.MapMode.READ_ONLY, position, Math.min(window, size - position));
+            if (!encodePayload)
+            {
+                algorithm.update(cryptoPrimitive, mapped);
+            }
+            else
+            {
+                while (mapped.hasRemaining())
+                {
+                    int length = Math.min(chunk.length, mapped.remaining());
+                    mapped.get(chunk, 0, length);
+                    int encodedLength = encoder.encode(length == chunk.length ? chunk : Arrays.copyOf(chunk, length), encoded);
+                    algorithm.update(cryptoPrimitive, encoded, 0, encodedLength);
+                }
+            }
+        }
+    }
+
+    private IncrementalSignatureAlgorithm getIncrementalAlgorithm() throws JoseException
+    {
+        JsonWebSignatureAlgorithm algorithm = getAlgorithm();
+        if (!(algorithm instanceof IncrementalSignatureAlgorithm))
+        {
+            throw new JoseException("Streaming isn't supported with the " + algorithm.getAlgorithmIdentifier() + " algorithm.");
+        }
+        return (IncrementalSignatureAlgorithm) algorithm;
+    }
+
+    private CryptoPrimitive prepareForVerify(IncrementalSignatureAlgorithm algorithm) throws JoseException
+    {
+        Key verificationKey = getKey();
+        if (isDoKeyValidation())
+        {
+            algorithm.validateVerificationKey(verificationKey);
+        }
+        checkCrit();
+        return algorithm.prepareForVerify(verificationKey, getProviderCtx());
+    }
+
+    private static int readFully(InputStream in, byte[] bytes) throws IOException
+    {
+        int filled = 0;
+        int read;
+        while (filled < bytes.length && (read = in.read(bytes, filled, bytes.length - filled)) != -1)
+        {
+            filled += read;
+        }
+        return filled;
+    }
+
+    private static int indexOfPeriod(byte[] bytes, int start, int end)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (bytes[i] == '.')
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean fill(ReadableByteChannel channel, ByteBuffer buffer) throws IOException
+    {
+        if (buffer.hasRemaining())
+        {
+            return true;
+        }
+
+        buffer.clear();
+        int read;
+        do
+        {
+            read = channel.read(buffer);
+        }
+        while (read == 0);
+        buffer.flip();
+        return read != -1;
+    }
+
+    private String readPart(ReadableByteChannel channel, ByteBuffer buffer, boolean delimited) throws JoseException, IOException
+    {
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        boolean foundPeriod = false;
+        while (!foundPeriod && fill(channel, buffer))
+        {
+            byte b = buffer.get();
+            if (b == '.')
+            {
+                foundPeriod = true;
+            }
+            else if (part.size() == MAX_STREAMED_PART_LENGTH)
+            {
+                throw new JoseException("JWS Compact Serialization part is longer than the maximum " + MAX_STREAMED_PART_LENGTH + " characters allowed when streaming.");
+            }
+            else
+            {
+                part.write(b);
+            }
+        }
+
+        if (foundPeriod != delimited)
+        {
+            throw new JoseException("A JWS Compact Serialization must have exactly "+COMPACT_SERIALIZATION_PARTS+" parts separated by period ('.') characters");
+        }
+        return StringUtil.newStringUsAscii(part.toByteArray());
+    }
+
     /**
      * Create, initialize (using the key and {@link org.jose4j.jca.ProviderContext}) and return the {@link CryptoPrimitive} that
      * this JWS instance will use for signing.
@@ -213,10 +612,26 @@ public class JsonWebSignature extends JsonWebStructure
      */
     public void sign() throws JoseException
     {
-        CryptoPrimitive cryptoPrimitive = (signingPrimitive == null) ? createSigningPrimitive() : signingPrimitive;
-        byte[] inputBytes = getSigningInputBytes();
-        byte[] signatureBytes = getAlgorithm().sign(cryptoPrimitive, inputBytes);
-        setSignature(signatureBytes);
+        Timing timing = Timing.start(JoseMetrics.Operation.SIGNING);
+        byte[] signatureBytes = null;
+        try
+        {
+            CryptoPrimitive cryptoPrimitive = (signingPrimitive == null) ? createSigningPrimitive() : signingPrimitive;
+            byte[] inputBytes = getSigningInputBytes();
+            if (timing != null)
+            {
+                timing.setSizes(inputBytes.length, -1);
+            }
+            signatureBytes = getAlgorithm().sign(cryptoPrimitive, inputBytes);
+            setSignature(signatureBytes);
+        }
+        finally
+        {
+            if (timing != null)
+            {
+                timing.end(getAlgorithmHeaderValue(), signatureBytes != null);
+            }
+        }
     }
 
     @Override
@@ -240,10 +655,27 @@ public class JsonWebSignature extends JsonWebStructure
         }
         if (validSignature == null)
         {
-            checkCrit();
-            byte[] signatureBytes = getSignature();
-            byte[] inputBytes = getSigningInputBytes();
-            validSignature = algorithm.verifySignature(signatureBytes, verificationKey, inputBytes, getProviderCtx());
+            Timing timing = Timing.start(JoseMetrics.Operation.SIGNATURE_VERIFICATION);
+            boolean valid = false;
+            try
+            {
+                checkCrit();
+                byte[] signatureBytes = getSignature();
+                byte[] inputBytes = getSigningInputBytes();
+                if (timing != null)
+                {
+                    timing.setSizes(inputBytes.length, signatureBytes.length);
+                }
+                valid = algorithm.verifySignature(signatureBytes, verificationKey, inputBytes, getProviderCtx());
+                validSignature = valid;
+            }
+            finally
+            {
+                if (timing != null)
+                {
+                    timing.end(algorithm.getAlgorithmIdentifier(), valid);
+                }
+            }
         }
 
         return validSignature;
@@ -25,9 +25,10 @@ import org.jose4j.lang.ByteUtil;
 import org.jose4j.lang.InvalidKeyException;
 import org.jose4j.lang.JoseException;
 
+import java.nio.ByteBuffer;
 import java.security.Key;
 
-public class UnsecuredNoneAlgorithm extends AlgorithmInfo implements JsonWebSignatureAlgorithm
+public class UnsecuredNoneAlgorithm extends AlgorithmInfo implements JsonWebSignatureAlgorithm, IncrementalSignatureAlgorithm
 {
     private static final String CANNOT_HAVE_KEY_MESSAGE = "JWS Plaintext ("+ HeaderParameterNames.ALGORITHM+"="+ AlgorithmIdentifiers.NONE+") must not use a key.";
 
@@ -58,6 +59,31 @@ public class UnsecuredNoneAlgorithm extends AlgorithmInfo implements JsonWebSign
         return ByteUtil.EMPTY_BYTES;
     }
 
+    @Override
+    public CryptoPrimitive prepareForVerify(Key key, ProviderContext providerContext) throws JoseException
+    {
+        validateKey(key);
+        return null;
+    }
+
+    @Override
+    public void update(CryptoPrimitive cryptoPrimitive, byte[] securedInputBytes, int offset, int length)
+    {
+        // nothing to do
+    }
+
+    @Override
+    public void update(CryptoPrimitive cryptoPrimitive, ByteBuffer securedInput)
+    {
+        // nothing to do
+    }
+
+    @Override
+    public boolean verifySignature(byte[] signatureBytes, CryptoPrimitive cryptoPrimitive)
+    {
+        return (signatureBytes.length == 0);
+    }
+
     @Override
     public void validateSigningKey(Key key) throws InvalidKeyException
     {
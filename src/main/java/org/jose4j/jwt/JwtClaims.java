@@ -67,6 +67,47 @@ public class JwtClaims
         return new JwtClaims(jsonClaims, null);
     }
 
+    /**
+     * Returns a read only copy of the given claims, which doesn't keep the raw JSON. Setting or unsetting a claim
+     * on the copy, or modifying a claim value that's a JSON object or array, throws an UnsupportedOperationException.
+     * @param jwtClaims the claims to copy
+     * @return the read only copy
+     */
+    public static JwtClaims unmodifiable(JwtClaims jwtClaims)
+    {
+        JwtClaims copy = new JwtClaims();
+        copy.claimsMap = unmodifiableCopy(jwtClaims.claimsMap);
+        return copy;
+    }
+
+    private static Map<String, Object> unmodifiableCopy(Map<?, ?> map)
+    {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : map.entrySet())
+        {
+            copy.put(String.valueOf(entry.getKey()), unmodifiableCopy(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static Object unmodifiableCopy(Object value)
+    {
+        if (value instanceof Map)
+        {
+            return unmodifiableCopy((Map<?, ?>) value);
+        }
+        else if (value instanceof List)
+        {
+            List<Object> copy = new ArrayList<>();
+            for (Object element : (List<?>) value)
+            {
+                copy.add(unmodifiableCopy(element));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
     public String getIssuer() throws MalformedClaimException
     {
         return getClaimValue(ReservedClaimNames.ISSUER, String.class);
@@ -0,0 +1,199 @@
+package org.jose4j.jwt.consumer;
+
+import org.jose4j.jwe.JsonWebEncryption;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwx.JsonWebStructure;
+import org.jose4j.keys.resolvers.AsyncDecryptionKeyResolver;
+import org.jose4j.keys.resolvers.AsyncVerificationKeyResolver;
+import org.jose4j.keys.resolvers.DecryptionKeyResolver;
+import org.jose4j.keys.resolvers.VerificationKeyResolver;
+import org.jose4j.lang.UnresolvableKeyException;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * The key resolution state of one {@link JwtConsumer#processAsync(String)} call. It presents the async resolvers
+ * to the normal, synchronous, processing as plain resolvers. A key that's available right away is just returned.
+ * Otherwise the pending resolution is remembered and processing is abandoned, to be run through again once
+ * the key is there, with the keys resolved so far handed out again in the same order rather than re-resolved.
+ * Once the JWT has been unwrapped (parsed and any decryption done) that's remembered too, so a run through
+ * that was waiting on a verification key picks up from there.
+ */
+class AsyncKeyResolution implements VerificationKeyResolver, DecryptionKeyResolver
+{
+    private final AsyncVerificationKeyResolver verificationKeyResolver;
+    private final AsyncDecryptionKeyResolver decryptionKeyResolver;
+
+    private final List<CompletableFuture<Key>> resolved = new ArrayList<>();
+    private int index;
+    private CompletableFuture<Key> pending;
+
+    private JwtContext unwrapped;
+    private int unwrappedIndex;
+
+    AsyncKeyResolution(AsyncVerificationKeyResolver verificationKeyResolver, AsyncDecryptionKeyResolver decryptionKeyResolver)
+    {
+        this.verificationKeyResolver = verificationKeyResolver;
+        this.decryptionKeyResolver = decryptionKeyResolver;
+    }
+
+    @Override
+    public Key resolveKey(JsonWebSignature jws, List<JsonWebStructure> nestingContext) throws UnresolvableKeyException
+    {
+        CompletableFuture<Key> future = (index < resolved.size()) ? null : verificationKeyResolver.resolveKeyAsync(jws, nestingContext).toCompletableFuture();
+        return next(future);
+    }
+
+    @Override
+    public Key resolveKey(JsonWebEncryption jwe, List<JsonWebStructure> nestingContext) throws UnresolvableKeyException
+    {
+        CompletableFuture<Key> future = (index < resolved.size()) ? null : decryptionKeyResolver.resolveKeyAsync(jwe, nestingContext).toCompletableFuture();
+        return next(future);
+    }
+
+    private Key next(CompletableFuture<Key> future) throws UnresolvableKeyException
+    {
+        if (future == null)
+        {
+            future = resolved.get(index);
+        }
+        else
+        {
+            resolved.add(future);
+        }
+        index++;
+
+        if (!future.isDone())
+        {
+            pending = future;
+            throw new Pending();
+        }
+        return join(future);
+    }
+
+    /**
+     * Gets and clears the resolution, if any, that the last run through was waiting on and resets
+     * things so that the next run through is handed the keys resolved so far.
+     * @return the pending resolution or null if there wasn't one
+     */
+    CompletableFuture<Key> takePending()
+    {
+        CompletableFuture<Key> p = pending;
+        pending = null;
+        index = 0;
+        return p;
+    }
+
+    /**
+     * Remembers the unwrapped JWT, along with how many keys it took to get there.
+     * @param jwtContext the context with the claims and the JOSE objects
+     */
+    void setUnwrapped(JwtContext jwtContext)
+    {
+        unwrapped = jwtContext;
+        unwrappedIndex = index;
+    }
+
+    /**
+     * Gets the unwrapped JWT from an earlier run through, if there was one, and skips
+     * over the keys that were used getting there.
+     * @return the context or null
+     */
+    JwtContext takeUnwrapped()
+    {
+        if (unwrapped != null)
+        {
+            index = unwrappedIndex;
+        }
+        return unwrapped;
+    }
+
+    static Key join(CompletionStage<Key> stage) throws UnresolvableKeyException
+    {
+        try
+        {
+            return stage.toCompletableFuture().join();
+        }
+        catch (CompletionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof UnresolvableKeyException)
+            {
+                throw (UnresolvableKeyException) cause;
+            }
+            throw new UnresolvableKeyException("Unable to resolve key due to " + cause, cause);
+        }
+    }
+
+    static VerificationKeyResolver blocking(final AsyncVerificationKeyResolver resolver)
+    {
+        if (resolver instanceof VerificationKeyResolver)
+        {
+            return (VerificationKeyResolver) resolver;
+        }
+        return (jws, nestingContext) -> join(resolver.resolveKeyAsync(jws, nestingContext));
+    }
+
+    static DecryptionKeyResolver blocking(final AsyncDecryptionKeyResolver resolver)
+    {
+        if (resolver instanceof DecryptionKeyResolver)
+        {
+            return (DecryptionKeyResolver) resolver;
+        }
+        return (jwe, nestingContext) -> join(resolver.resolveKeyAsync(jwe, nestingContext));
+    }
+
+    static AsyncVerificationKeyResolver async(final VerificationKeyResolver resolver)
+    {
+        if (resolver instanceof AsyncVerificationKeyResolver)
+        {
+            return (AsyncVerificationKeyResolver) resolver;
+        }
+        return (jws, nestingContext) -> completed(() -> resolver.resolveKey(jws, nestingContext));
+    }
+
+    static AsyncDecryptionKeyResolver async(final DecryptionKeyResolver resolver)
+    {
+        if (resolver instanceof AsyncDecryptionKeyResolver)
+        {
+            return (AsyncDecryptionKeyResolver) resolver;
+        }
+        return (jwe, nestingContext) -> completed(() -> resolver.resolveKey(jwe, nestingContext));
+    }
+
+    private static CompletableFuture<Key> completed(Resolution resolution)
+    {
+        CompletableFuture<Key> future = new CompletableFuture<>();
+        try
+        {
+            future.complete(resolution.resolve());
+        }
+        catch (Exception e)
+        {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private interface Resolution
+    {
+        Key resolve() throws Exception;
+    }
+
+    /**
+     * Thrown out of a resolver to abandon the current run through, which is why it doesn't bother with a stack trace.
+     * The JwtConsumer lets it pass through as is.
+     */
+    static class Pending extends RuntimeException
+    {
+        private Pending()
+        {
+            super("key resolution pending", null, false, false);
+        }
+    }
+}
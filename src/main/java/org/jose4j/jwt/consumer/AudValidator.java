@@ -16,6 +16,9 @@
 
 package org.jose4j.jwt.consumer;
 
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+
 import java.util.List;
 import java.util.Set;
 
@@ -23,6 +26,14 @@ abstract class AudValidator implements ErrorCodeValidator
 {
     static final Error MISSING_AUD = new Error(ErrorCodes.AUDIENCE_MISSING, "No Audience (aud) claim present.");
 
+    @Override
+    public Error validate(JwtContext jwtContext) throws MalformedClaimException
+    {
+        return validate(jwtContext.getJwtClaims());
+    }
+
+    abstract Error validate(JwtClaims jwtClaims) throws MalformedClaimException;
+
     Error getAudValidatorError(List<String> audiences, Set<String> acceptableAudiences)
     {
         StringBuilder sb = new StringBuilder();
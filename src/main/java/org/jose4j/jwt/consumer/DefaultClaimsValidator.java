@@ -0,0 +1,169 @@
+package org.jose4j.jwt.consumer;
+
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.lang.ExceptionHelp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.jose4j.jwt.consumer.ErrorCodes.MALFORMED_CLAIM;
+import static org.jose4j.jwt.consumer.ErrorCodes.MISCELLANEOUS;
+
+/**
+ * The built in validators, for the audience, issuer, date, subject, jti and type claims, fused into a single pass
+ * over the claims, which reads each one just once. The checks, their order, and the errors reported are the same
+ * as with the individual validators.
+ */
+class DefaultClaimsValidator
+{
+    private final AudValidator audValidator;
+    private final IssValidator issValidator;
+    private final NumericDateValidator dateClaimsValidator;
+    private final SubValidator subValidator;
+    private final JtiValidator jtiValidator;
+    private final TypeValidator typeValidator;
+
+    /**
+     * @param audValidator the audience validator or null to skip audience validation
+     * @param issValidator the issuer validator
+     * @param dateClaimsValidator the exp, nbf and iat validator
+     * @param subValidator the subject validator
+     * @param jtiValidator the jti validator
+     * @param typeValidator the "typ" header validator or null if there's no expected type
+     */
+    DefaultClaimsValidator(AudValidator audValidator, IssValidator issValidator, NumericDateValidator dateClaimsValidator,
+                           SubValidator subValidator, JtiValidator jtiValidator, TypeValidator typeValidator)
+    {
+        this.audValidator = audValidator;
+        this.issValidator = issValidator;
+        this.dateClaimsValidator = dateClaimsValidator;
+        this.subValidator = subValidator;
+        this.jtiValidator = jtiValidator;
+        this.typeValidator = typeValidator;
+    }
+
+    /**
+     * Validates the claims adding any errors to the issues.
+     * @param jwtContext the JWT context
+     * @param issues the errors found so far, which can be null
+     * @return the issues, which are only allocated when there's an error, or null if there are none
+     */
+    List<ErrorCodeValidator.Error> validate(JwtContext jwtContext, List<ErrorCodeValidator.Error> issues)
+    {
+        JwtClaims jwtClaims = jwtContext.getJwtClaims();
+        ErrorCodeValidator.Error error;
+
+        if (audValidator != null)
+        {
+            try
+            {
+                error = audValidator.validate(jwtClaims);
+            }
+            catch (MalformedClaimException e)
+            {
+                error = malformed(e);
+            }
+            catch (RuntimeException e)
+            {
+                error = unexpected(audValidator, e);
+            }
+            issues = add(issues, error);
+        }
+
+        try
+        {
+            error = issValidator.validate(jwtClaims.getIssuer());
+        }
+        catch (MalformedClaimException e)
+        {
+            error = malformed(e);
+        }
+        catch (RuntimeException e)
+        {
+            error = unexpected(issValidator, e);
+        }
+        issues = add(issues, error);
+
+        try
+        {
+            error = dateClaimsValidator.validate(jwtClaims.getExpirationTime(), jwtClaims.getIssuedAt(), jwtClaims.getNotBefore());
+        }
+        catch (MalformedClaimException e)
+        {
+            error = malformed(e);
+        }
+        catch (RuntimeException e)
+        {
+            error = unexpected(dateClaimsValidator, e);
+        }
+        issues = add(issues, error);
+
+        try
+        {
+            error = subValidator.validate(jwtClaims.getSubject());
+        }
+        catch (MalformedClaimException e)
+        {
+            error = malformed(e);
+        }
+        catch (RuntimeException e)
+        {
+            error = unexpected(subValidator, e);
+        }
+        issues = add(issues, error);
+
+        try
+        {
+            error = jtiValidator.validate(jwtClaims.getJwtId());
+        }
+        catch (MalformedClaimException e)
+        {
+            error = malformed(e);
+        }
+        catch (RuntimeException e)
+        {
+            error = unexpected(jtiValidator, e);
+        }
+        issues = add(issues, error);
+
+        if (typeValidator != null)
+        {
+            try
+            {
+                error = typeValidator.validate(jwtContext);
+            }
+            catch (RuntimeException e)
+            {
+                error = unexpected(typeValidator, e);
+            }
+            issues = add(issues, error);
+        }
+
+        return issues;
+    }
+
+    private static ErrorCodeValidator.Error malformed(MalformedClaimException e)
+    {
+        return new ErrorCodeValidator.Error(MALFORMED_CLAIM, e.getMessage());
+    }
+
+    private static ErrorCodeValidator.Error unexpected(ErrorCodeValidator validator, final Exception e)
+    {
+        final String validatorClassName = validator.getClass().getName();
+        return new LazyError(MISCELLANEOUS, () -> "Unexpected exception thrown from validator " + validatorClassName + ": " + ExceptionHelp.toStringWithCausesAndAbbreviatedStack(e, JwtConsumer.class));
+    }
+
+    private static List<ErrorCodeValidator.Error> add(List<ErrorCodeValidator.Error> issues, ErrorCodeValidator.Error error)
+    {
+        if (error != null)
+        {
+            if (issues == null)
+            {
+                issues = new ArrayList<>();
+            }
+            issues.add(error);
+        }
+        return issues;
+    }
+}
@@ -83,7 +83,7 @@ public interface ErrorCodeValidator
         @Override
         public String toString()
         {
-            return "["+errorCode+"] " + errorMessage;
+            return "["+errorCode+"] " + getErrorMessage();
         }
     }
 }
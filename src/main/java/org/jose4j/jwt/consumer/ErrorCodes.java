@@ -168,4 +168,11 @@ public class ErrorCodes
      */
     public static final int ISSUED_AT_INVALID_PAST = 24;
 
+    /**
+     * The still unverified claims of the JWT were rejected by pre-verification screening, which happens
+     * before any signature verification. Nothing else about the JWT, including its claims, can be relied on
+     * and the reasons it was screened out are only in the message.
+     */
+    public static final int SCREENED_OUT_UNVERIFIED = 25;
+
 }
@@ -37,10 +37,8 @@ public final class GeneralAudValidator extends AudValidator
     }
 
     @Override
-    public Error validate(JwtContext jwtContext) throws MalformedClaimException
+    Error validate(JwtClaims jwtClaims) throws MalformedClaimException
     {
-        final JwtClaims jwtClaims = jwtContext.getJwtClaims();
-
         if (!jwtClaims.hasAudience())
         {
             return requireAudience ? MISSING_AUD : null;
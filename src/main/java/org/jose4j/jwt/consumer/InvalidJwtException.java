@@ -18,6 +18,7 @@ package org.jose4j.jwt.consumer;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * An exception thrown when a JWT is considered invalid or otherwise cannot be
@@ -27,6 +28,8 @@ public class InvalidJwtException extends Exception
 {
     private List<ErrorCodeValidator.Error> details = Collections.emptyList();
     private JwtContext jwtContext;
+    private Supplier<String> messageSupplier;
+    private String message;
 
     public InvalidJwtException(String message, List<ErrorCodeValidator.Error> details, JwtContext jwtContext)
     {
@@ -42,6 +45,18 @@ public class InvalidJwtException extends Exception
         details = Collections.singletonList(detail);
     }
 
+    /**
+     * For the JwtConsumer, which defers putting the message together until it's asked for and, when so configured,
+     * doesn't fill in the stack trace. Rejecting a JWT is otherwise considerably more expensive than accepting one.
+     */
+    InvalidJwtException(Supplier<String> messageSupplier, List<ErrorCodeValidator.Error> details, Throwable cause, JwtContext jwtContext, boolean writableStackTrace)
+    {
+        super(null, cause, true, writableStackTrace);
+        this.messageSupplier = messageSupplier;
+        this.details = details;
+        this.jwtContext = jwtContext;
+    }
+
     /**
      * <p>
      * Provides programmatic access to (some) specific reasons for JWT invalidity
@@ -105,7 +120,7 @@ public class InvalidJwtException extends Exception
     public String getMessage()
     {
         StringBuilder sb = new StringBuilder();
-        sb.append(super.getMessage());
+        sb.append(getOriginalMessage());
         if (!details.isEmpty())
         {
             sb.append(" Additional details: ");
@@ -119,6 +134,15 @@ public class InvalidJwtException extends Exception
      * @return the original message
      */
     public String getOriginalMessage() {
-        return super.getMessage();
+        if (messageSupplier == null)
+        {
+            return super.getMessage();
+        }
+
+        if (message == null)
+        {
+            message = messageSupplier.get();
+        }
+        return message;
     }
 }
@@ -15,4 +15,11 @@ public class InvalidJwtSignatureException extends InvalidJwtException
                 Collections.singletonList(new ErrorCodeValidator.Error(ErrorCodes.SIGNATURE_INVALID, "Invalid JWS Signature: " + jws)),
                 jwtContext);
     }
+
+    InvalidJwtSignatureException(final JsonWebSignature jws, JwtContext jwtContext, boolean writableStackTrace)
+    {
+        super(() -> "JWT rejected due to invalid signature.",
+                Collections.<ErrorCodeValidator.Error>singletonList(new LazyError(ErrorCodes.SIGNATURE_INVALID, () -> "Invalid JWS Signature: " + jws)),
+                null, jwtContext, writableStackTrace);
+    }
 }
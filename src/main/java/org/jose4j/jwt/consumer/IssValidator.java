@@ -52,8 +52,11 @@ public class IssValidator implements ErrorCodeValidator
     @Override
     public Error validate(JwtContext jwtContext) throws MalformedClaimException
     {
-        String issuer = jwtContext.getJwtClaims().getIssuer();
+        return validate(jwtContext.getJwtClaims().getIssuer());
+    }
 
+    Error validate(String issuer)
+    {
         if (issuer == null)
         {
             return requireIssuer ? new Error(ErrorCodes.ISSUER_MISSING, "No Issuer (iss) claim present.") : null;
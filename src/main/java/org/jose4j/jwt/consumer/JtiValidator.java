@@ -35,7 +35,11 @@ public class JtiValidator implements ErrorCodeValidator
     @Override
     public Error validate(JwtContext jwtContext) throws MalformedClaimException
     {
-        String subject = jwtContext.getJwtClaims().getJwtId();
-        return (subject == null && requireJti) ? MISSING_JTI : null;
+        return validate(jwtContext.getJwtClaims().getJwtId());
+    }
+
+    Error validate(String jwtId)
+    {
+        return (jwtId == null && requireJti) ? MISSING_JTI : null;
     }
 }
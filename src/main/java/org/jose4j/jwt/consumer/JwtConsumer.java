@@ -24,16 +24,22 @@ import org.jose4j.jwt.JwtClaims;
 import org.jose4j.jwt.MalformedClaimException;
 import org.jose4j.jwx.JsonWebStructure;
 import org.jose4j.keys.KeyPersuasion;
+import org.jose4j.keys.resolvers.AsyncDecryptionKeyResolver;
+import org.jose4j.keys.resolvers.AsyncVerificationKeyResolver;
 import org.jose4j.keys.resolvers.DecryptionKeyResolver;
 import org.jose4j.keys.resolvers.VerificationKeyResolver;
 import org.jose4j.lang.ExceptionHelp;
 import org.jose4j.lang.JoseException;
+import org.jose4j.lang.UnresolvableKeyException;
+import org.jose4j.metrics.JoseMetrics;
+import org.jose4j.metrics.Timing;
 
 import java.security.Key;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.jose4j.jws.AlgorithmIdentifiers.NONE;
 import static org.jose4j.jwt.consumer.ErrorCodes.*;
@@ -45,8 +51,14 @@ public class JwtConsumer
 {
     private VerificationKeyResolver verificationKeyResolver;
     private DecryptionKeyResolver decryptionKeyResolver;
+    private AsyncVerificationKeyResolver asyncVerificationKeyResolver;
+    private AsyncDecryptionKeyResolver asyncDecryptionKeyResolver;
 
-    private List<ErrorCodeValidator> validators;
+    // the built in validators run as a single pass and then the custom ones, which are fixed when built
+    // so validation is a plain loop over an array that nothing else can change
+    private DefaultClaimsValidator defaultClaimsValidator;
+    private ErrorCodeValidator[] validators = new ErrorCodeValidator[0];
+    private boolean preVerificationScreening;
 
     private AlgorithmConstraints jwsAlgorithmConstraints;
     private AlgorithmConstraints jweAlgorithmConstraints;
@@ -72,6 +84,8 @@ public class JwtConsumer
     private JwsCustomizer jwsCustomizer;
     private JweCustomizer jweCustomizer;
 
+    private boolean exceptionStackTraces = true;
+
     JwtConsumer()
     {
     }
@@ -101,9 +115,29 @@ public class JwtConsumer
         this.decryptionKeyResolver = decryptionKeyResolver;
     }
 
+    void setAsyncVerificationKeyResolver(AsyncVerificationKeyResolver asyncVerificationKeyResolver)
+    {
+        this.asyncVerificationKeyResolver = asyncVerificationKeyResolver;
+    }
+
+    void setAsyncDecryptionKeyResolver(AsyncDecryptionKeyResolver asyncDecryptionKeyResolver)
+    {
+        this.asyncDecryptionKeyResolver = asyncDecryptionKeyResolver;
+    }
+
     void setValidators(List<ErrorCodeValidator> validators)
     {
-        this.validators = validators;
+        this.validators = validators.toArray(new ErrorCodeValidator[0]);
+    }
+
+    void setDefaultClaimsValidator(DefaultClaimsValidator defaultClaimsValidator)
+    {
+        this.defaultClaimsValidator = defaultClaimsValidator;
+    }
+
+    void setPreVerificationScreening(boolean preVerificationScreening)
+    {
+        this.preVerificationScreening = preVerificationScreening;
     }
 
     void setRequireSignature(boolean requireSignature)
@@ -166,23 +200,51 @@ public class JwtConsumer
         this.jweCustomizer = jweCustomizer;
     }
 
+    void setExceptionStackTraces(boolean exceptionStackTraces)
+    {
+        this.exceptionStackTraces = exceptionStackTraces;
+    }
+
     public JwtClaims processToClaims(String jwt) throws InvalidJwtException
     {
         return process(jwt).getJwtClaims();
     }
 
+    /**
+     * Processes the JWT like {@link #process(String)} but returns only the claims and a few header values
+     * rather than the full {@link JwtContext}.
+     * @param jwt the JWT
+     * @return the verified JWT
+     * @throws InvalidJwtException if the JWT isn't valid
+     */
+    public VerifiedJwt processToVerifiedJwt(String jwt) throws InvalidJwtException
+    {
+        return new VerifiedJwt(process(jwt));
+    }
+
     public void processContext(JwtContext jwtContext) throws InvalidJwtException
+    {
+        processContext(jwtContext, verificationKeyResolver);
+    }
+
+    private void processContext(JwtContext jwtContext, VerificationKeyResolver verificationKeyResolver) throws InvalidJwtException
     {
         boolean hasSignature = false;
         boolean hasEncryption = false;
         boolean hasSymmetricEncryption = false;
 
+        if (preVerificationScreening && defaultClaimsValidator != null && jwtContext.getJwtClaims() != null)
+        {
+            // cheap checks of the as yet unverified claims so obviously bad JWTs don't get as far as key resolution and crypto
+            screen(jwtContext);
+        }
+
         ArrayList<JsonWebStructure> originalJoseObjects = new ArrayList<>(jwtContext.getJoseObjects());
 
         for (int idx = originalJoseObjects.size() - 1 ; idx >= 0 ; idx--)
         {
             List<JsonWebStructure> joseObjects = originalJoseObjects.subList(idx+1, originalJoseObjects.size());
-            final List<JsonWebStructure> nestingContext = Collections.unmodifiableList(joseObjects);
+            final List<JsonWebStructure> nestingContext = joseObjects.isEmpty() ? Collections.<JsonWebStructure>emptyList() : Collections.unmodifiableList(joseObjects);
             JsonWebStructure currentJoseObject = originalJoseObjects.get(idx);
 
             try
@@ -210,7 +272,7 @@ public class JwtConsumer
 
                         if (!isNoneAlg  || !skipVerificationKeyResolutionOnNone)
                         {
-                            Key key = verificationKeyResolver.resolveKey(jws, nestingContext);
+                            Key key = resolveKey(verificationKeyResolver, jws, nestingContext);
                             jws.setKey(key);
                         }
 
@@ -221,7 +283,7 @@ public class JwtConsumer
 
                         if (!jws.verifySignature())
                         {
-                            throw new InvalidJwtSignatureException(jws, jwtContext);
+                            throw new InvalidJwtSignatureException(jws, jwtContext, exceptionStackTraces);
                         }
                     }
 
@@ -253,31 +315,15 @@ public class JwtConsumer
             }
             catch (JoseException e)
             {
-                StringBuilder sb = new StringBuilder();
-                sb.append("Unable to process");
-                if (!joseObjects.isEmpty())
-                {
-                    sb.append(" nested");
-                }
-                sb.append(" JOSE object (cause: ").append(e).append("): ").append(currentJoseObject);
-                ErrorCodeValidator.Error error = new ErrorCodeValidator.Error(ErrorCodes.MISCELLANEOUS, sb.toString());
-                throw new InvalidJwtException("JWT processing failed." , error, e, jwtContext);
+                throw newInvalidJwtException("Unable to process", !joseObjects.isEmpty(), currentJoseObject, jwtContext, e);
             }
-            catch (InvalidJwtException e)
+            catch (InvalidJwtException | AsyncKeyResolution.Pending e)
             {
                 throw e;
             }
             catch (Exception e)
             {
-                StringBuilder sb = new StringBuilder();
-                sb.append("Unexpected exception encountered while processing");
-                if (!joseObjects.isEmpty())
-                {
-                    sb.append(" nested");
-                }
-                sb.append(" JOSE object (").append(e).append("): ").append(currentJoseObject);
-                ErrorCodeValidator.Error error = new ErrorCodeValidator.Error(ErrorCodes.MISCELLANEOUS, sb.toString());
-                throw new InvalidJwtException("JWT processing failed." , error, e, jwtContext);
+                throw newInvalidJwtException("Unexpected exception encountered while processing", !joseObjects.isEmpty(), currentJoseObject, jwtContext, e);
             }
         }
 
@@ -285,26 +331,146 @@ public class JwtConsumer
         if (requireSignature && !hasSignature)
         {
             List<ErrorCodeValidator.Error> errors = Collections.singletonList(new ErrorCodeValidator.Error(SIGNATURE_MISSING, "Missing signature."));
-            throw new InvalidJwtException("The JWT has no signature but the JWT Consumer is configured to require one: " + jwtContext.getJwt(), errors, jwtContext);
+            throw new InvalidJwtException(() -> "The JWT has no signature but the JWT Consumer is configured to require one: " + jwtContext.getJwt(),
+                    errors, null, jwtContext, exceptionStackTraces);
         }
 
         if (requireEncryption && !hasEncryption)
         {
             List<ErrorCodeValidator.Error> errors = Collections.singletonList(new ErrorCodeValidator.Error(ENCRYPTION_MISSING, "No encryption."));
-            throw new InvalidJwtException("The JWT has no encryption but the JWT Consumer is configured to require it: " + jwtContext.getJwt(), errors, jwtContext);
+            throw new InvalidJwtException(() -> "The JWT has no encryption but the JWT Consumer is configured to require it: " + jwtContext.getJwt(),
+                    errors, null, jwtContext, exceptionStackTraces);
         }
 
         if (requireIntegrity && !hasSignature && !hasSymmetricEncryption)
         {
             List<ErrorCodeValidator.Error> errors = Collections.singletonList(new ErrorCodeValidator.Error(ErrorCodes.INTEGRITY_MISSING, "Missing Integrity Protection"));
-            throw new InvalidJwtException("The JWT has no integrity protection (signature/MAC or symmetric AEAD encryption) " +
-                    "but the JWT Consumer is configured to require it: " + jwtContext.getJwt(), errors, jwtContext);
+            throw new InvalidJwtException(() -> "The JWT has no integrity protection (signature/MAC or symmetric AEAD encryption) " +
+                    "but the JWT Consumer is configured to require it: " + jwtContext.getJwt(), errors, null, jwtContext, exceptionStackTraces);
         }
 
-        validate(jwtContext);
+        Timing timing = Timing.start(JoseMetrics.Operation.CLAIMS_VALIDATION);
+        boolean success = false;
+        try
+        {
+            validate(jwtContext);
+            success = true;
+        }
+        finally
+        {
+            if (timing != null)
+            {
+                timing.end(null, success);
+            }
+        }
     }
 
     public JwtContext process(String jwt) throws InvalidJwtException
+    {
+        return process(jwt, null);
+    }
+
+    /**
+     * Processes the JWT like {@link #process(String)} but with the keys coming from the async resolvers,
+     * so that the calling thread isn't blocked when key resolution has to wait on something, like fetching
+     * the content of a JWKS endpoint. When the keys are available right away, which is the common case
+     * with cached keys, the JWT is processed on the calling thread and the returned future is already complete.
+     * Otherwise processing is picked up again once the key is available, on whichever thread completes the
+     * key resolution, so that the rest of the processing and any dependent stages of the returned future run on
+     * the resolver's completing thread (a {@code thenApplyAsync} or the like can be used to move them elsewhere).
+     * Any JWE decryption already done isn't redone when processing is picked up again.
+     * @param jwt the JWT
+     * @return a future that completes with the JWT context or completes exceptionally
+     * with an {@link InvalidJwtException} if the JWT isn't valid
+     * @see JwtConsumerBuilder#setAsyncVerificationKeyResolver(AsyncVerificationKeyResolver)
+     * @see JwtConsumerBuilder#setAsyncDecryptionKeyResolver(AsyncDecryptionKeyResolver)
+     */
+    public CompletableFuture<JwtContext> processAsync(String jwt)
+    {
+        return processAsync(jwt, new AsyncKeyResolution(asyncVerificationKeyResolver, asyncDecryptionKeyResolver));
+    }
+
+    private CompletableFuture<JwtContext> processAsync(final String jwt, final AsyncKeyResolution resolution)
+    {
+        try
+        {
+            return CompletableFuture.completedFuture(process(jwt, resolution));
+        }
+        catch (InvalidJwtException | RuntimeException e)
+        {
+            CompletableFuture<Key> pending = resolution.takePending();
+            if (pending == null)
+            {
+                CompletableFuture<JwtContext> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+
+            // the outcome of the resolution, key or exception, is picked up by the next run through
+            return pending.handle((key, t) -> resolution).thenCompose(r -> processAsync(jwt, r));
+        }
+    }
+
+    private JwtContext process(String jwt, AsyncKeyResolution resolution) throws InvalidJwtException
+    {
+        Timing timing = Timing.start(JoseMetrics.Operation.JWT_PROCESSING);
+        if (timing == null)
+        {
+            return processJwt(jwt, resolution);
+        }
+
+        JwtContext jwtContext = null;
+        boolean success = false;
+        boolean abandoned = false;
+        try
+        {
+            jwtContext = processJwt(jwt, resolution);
+            success = true;
+            return jwtContext;
+        }
+        catch (InvalidJwtException e)
+        {
+            jwtContext = e.getJwtContext();
+            throw e;
+        }
+        catch (AsyncKeyResolution.Pending e)
+        {
+            // a run through abandoned to wait on a key isn't a failure, the one that picks things up again is what's timed
+            abandoned = true;
+            throw e;
+        }
+        finally
+        {
+            if (!abandoned)
+            {
+                List<JsonWebStructure> joseObjects = (jwtContext == null) ? null : jwtContext.getJoseObjects();
+                String alg = (joseObjects == null || joseObjects.isEmpty()) ? null : joseObjects.get(joseObjects.size() - 1).getAlgorithmHeaderValue();
+                timing.end(alg, success);
+            }
+        }
+    }
+
+    private JwtContext processJwt(String jwt, AsyncKeyResolution resolution) throws InvalidJwtException
+    {
+        if (resolution == null)
+        {
+            JwtContext jwtContext = unwrap(jwt, decryptionKeyResolver);
+            processContext(jwtContext, verificationKeyResolver);
+            return jwtContext;
+        }
+
+        // when picking things up again after waiting on a verification key, any decryption has already been done
+        JwtContext jwtContext = resolution.takeUnwrapped();
+        if (jwtContext == null)
+        {
+            jwtContext = unwrap(jwt, resolution);
+            resolution.setUnwrapped(jwtContext);
+        }
+        processContext(jwtContext, resolution);
+        return jwtContext;
+    }
+
+    private JwtContext unwrap(String jwt, DecryptionKeyResolver decryptionKeyResolver) throws InvalidJwtException
     {
         String workingJwt = jwt;
         JwtClaims jwtClaims = null;
@@ -317,7 +483,7 @@ public class JwtConsumer
             JsonWebStructure joseObject;
             try
             {
-                joseObject = JsonWebStructure.fromCompactSerialization(workingJwt);
+                joseObject = parse(workingJwt);
                 String payload;
                 if (joseObject instanceof JsonWebSignature)
                 {
@@ -344,7 +510,7 @@ public class JwtConsumer
                     }
 
                     final List<JsonWebStructure> nestingContext = Collections.unmodifiableList(joseObjects);
-                    Key key = decryptionKeyResolver.resolveKey(jwe, nestingContext);
+                    Key key = resolveKey(decryptionKeyResolver, jwe, nestingContext);
                     jwe.setKey(key);
                     if (jweAlgorithmConstraints != null)
                     {
@@ -367,7 +533,7 @@ public class JwtConsumer
                 {
                     try
                     {
-                        jwtClaims = JwtClaims.parse(payload, jwtContext);
+                        jwtClaims = parseClaims(payload, jwtContext);
                         jwtContext.setJwtClaims(jwtClaims);
                     }
                     catch (InvalidJwtException ije)
@@ -397,7 +563,7 @@ public class JwtConsumer
             {
                 throw newInvalidJwtException("Unable to process", joseObjects, workingJwt, jwtContext, e);
             }
-            catch (InvalidJwtException e)
+            catch (InvalidJwtException | AsyncKeyResolution.Pending e)
             {
                 throw e;
             }
@@ -407,29 +573,148 @@ public class JwtConsumer
             }
         }
 
-        processContext(jwtContext);
         return jwtContext;
     }
 
-    InvalidJwtException newInvalidJwtException(String intro, LinkedList<JsonWebStructure> joseObjects, String workingJwt, JwtContext jwtContext, Exception e)
+    private static JsonWebStructure parse(String cs) throws JoseException
+    {
+        Timing timing = Timing.start(JoseMetrics.Operation.PARSE);
+        JsonWebStructure joseObject = null;
+        try
+        {
+            joseObject = JsonWebStructure.fromCompactSerialization(cs);
+            return joseObject;
+        }
+        finally
+        {
+            if (timing != null)
+            {
+                timing.end((joseObject == null) ? null : joseObject.getAlgorithmHeaderValue(), joseObject != null);
+            }
+        }
+    }
+
+    private static JwtClaims parseClaims(String json, JwtContext jwtContext) throws InvalidJwtException
+    {
+        Timing timing = Timing.start(JoseMetrics.Operation.PARSE);
+        boolean success = false;
+        try
+        {
+            JwtClaims jwtClaims = JwtClaims.parse(json, jwtContext);
+            success = true;
+            return jwtClaims;
+        }
+        finally
+        {
+            if (timing != null)
+            {
+                timing.end(null, success);
+            }
+        }
+    }
+
+    private static Key resolveKey(VerificationKeyResolver resolver, JsonWebSignature jws, List<JsonWebStructure> nestingContext)
+            throws UnresolvableKeyException
+    {
+        Timing timing = Timing.start(JoseMetrics.Operation.KEY_RESOLUTION);
+        boolean success = false;
+        boolean abandoned = false;
+        try
+        {
+            Key key = resolver.resolveKey(jws, nestingContext);
+            success = true;
+            return key;
+        }
+        catch (AsyncKeyResolution.Pending e)
+        {
+            abandoned = true;
+            throw e;
+        }
+        finally
+        {
+            if (timing != null && !abandoned)
+            {
+                timing.end(jws.getAlgorithmHeaderValue(), success);
+            }
+        }
+    }
+
+    private static Key resolveKey(DecryptionKeyResolver resolver, JsonWebEncryption jwe, List<JsonWebStructure> nestingContext)
+            throws UnresolvableKeyException
     {
-        StringBuilder sb = new StringBuilder();
-        sb.append(intro);
-        if (!joseObjects.isEmpty())
+        Timing timing = Timing.start(JoseMetrics.Operation.KEY_RESOLUTION);
+        boolean success = false;
+        boolean abandoned = false;
+        try
+        {
+            Key key = resolver.resolveKey(jwe, nestingContext);
+            success = true;
+            return key;
+        }
+        catch (AsyncKeyResolution.Pending e)
         {
-            sb.append(" nested (outer object header ");
-            sb.append(joseObjects.getFirst().getHeaders().getFullHeaderAsJsonString());
-            sb.append(")");
+            abandoned = true;
+            throw e;
+        }
+        finally
+        {
+            if (timing != null && !abandoned)
+            {
+                timing.end(jwe.getAlgorithmHeaderValue(), success);
+            }
         }
-        sb.append(" JOSE object (cause: ").append(e).append("): ").append(workingJwt);
-        ErrorCodeValidator.Error error = new ErrorCodeValidator.Error(ErrorCodes.MISCELLANEOUS, sb.toString());
-        return new InvalidJwtException("JWT processing failed.", error, e, jwtContext);
+    }
+
+    InvalidJwtException newInvalidJwtException(final String intro, LinkedList<JsonWebStructure> joseObjects, final String workingJwt, JwtContext jwtContext, final Exception e)
+    {
+        // the message, with the header JSON and JWT, is only put together if it's asked for
+        final JsonWebStructure outer = joseObjects.isEmpty() ? null : joseObjects.getFirst();
+        ErrorCodeValidator.Error error = new LazyError(ErrorCodes.MISCELLANEOUS, () ->
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(intro);
+            if (outer != null)
+            {
+                sb.append(" nested (outer object header ");
+                sb.append(outer.getHeaders().getFullHeaderAsJsonString());
+                sb.append(")");
+            }
+            sb.append(" JOSE object (cause: ").append(e).append("): ").append(workingJwt);
+            return sb.toString();
+        });
+        return newInvalidJwtException(error, jwtContext, e);
+    }
+
+    private InvalidJwtException newInvalidJwtException(final String intro, final boolean nested, final JsonWebStructure currentJoseObject, JwtContext jwtContext, final Exception e)
+    {
+        ErrorCodeValidator.Error error = new LazyError(ErrorCodes.MISCELLANEOUS, () ->
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(intro);
+            if (nested)
+            {
+                sb.append(" nested");
+            }
+            sb.append(" JOSE object (");
+            if (e instanceof JoseException)
+            {
+                sb.append("cause: ");
+            }
+            sb.append(e).append("): ").append(currentJoseObject);
+            return sb.toString();
+        });
+        return newInvalidJwtException(error, jwtContext, e);
+    }
+
+    private InvalidJwtException newInvalidJwtException(ErrorCodeValidator.Error error, JwtContext jwtContext, Exception e)
+    {
+        return new InvalidJwtException(() -> "JWT processing failed.", Collections.singletonList(error), e, jwtContext, exceptionStackTraces);
     }
 
 
     void validate(JwtContext jwtCtx) throws InvalidJwtException
     {
-        List<ErrorCodeValidator.Error> issues = new ArrayList<>();
+        List<ErrorCodeValidator.Error> issues = (defaultClaimsValidator == null) ? null : defaultClaimsValidator.validate(jwtCtx, null);
         for (ErrorCodeValidator validator : validators)
         {
             ErrorCodeValidator.Error error;
@@ -441,22 +726,38 @@ public class JwtConsumer
             {
                 error = new ErrorCodeValidator.Error(MALFORMED_CLAIM, e.getMessage());
             }
-            catch (Exception e)
+            catch (final Exception e)
             {
-                String msg = "Unexpected exception thrown from validator " + validator.getClass().getName() + ": " + ExceptionHelp.toStringWithCausesAndAbbreviatedStack(e, this.getClass());
-                error = new ErrorCodeValidator.Error(MISCELLANEOUS, msg);
+                final String validatorClassName = validator.getClass().getName();
+                error = new LazyError(MISCELLANEOUS, () -> "Unexpected exception thrown from validator " + validatorClassName + ": " + ExceptionHelp.toStringWithCausesAndAbbreviatedStack(e, JwtConsumer.class));
             }
 
             if (error != null)
             {
+                if (issues == null)
+                {
+                    issues = new ArrayList<>();
+                }
                 issues.add(error);
             }
         }
 
-        if (!issues.isEmpty())
+        if (issues != null)
+        {
+            throw new InvalidJwtException(() -> "JWT (claims->" + jwtCtx.getJwtClaims().getRawJson() + ") rejected due to invalid claims or other invalid content.",
+                    issues, null, jwtCtx, exceptionStackTraces);
+        }
+    }
+
+    private void screen(JwtContext jwtCtx) throws InvalidJwtException
+    {
+        final List<ErrorCodeValidator.Error> issues = defaultClaimsValidator.validate(jwtCtx, null);
+        if (issues != null)
         {
-            String msg = "JWT (claims->" + jwtCtx.getJwtClaims().getRawJson() + ") rejected due to invalid claims or other invalid content.";
-            throw new InvalidJwtException(msg, issues, jwtCtx);
+            // nothing has been verified so the claim specific errors and the context, with its unverified claims, aren't exposed
+            ErrorCodeValidator.Error error = new LazyError(SCREENED_OUT_UNVERIFIED, () -> "Unverified claims screened out " + issues);
+            throw new InvalidJwtException(() -> "JWT rejected by pre-verification screening of its unverified claims.",
+                    Collections.singletonList(error), null, null, exceptionStackTraces);
         }
     }
 
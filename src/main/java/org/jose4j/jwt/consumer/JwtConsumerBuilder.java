@@ -19,6 +19,8 @@ package org.jose4j.jwt.consumer;
 import org.jose4j.jca.ProviderContext;
 import org.jose4j.jwa.AlgorithmConstraints;
 import org.jose4j.jwt.NumericDate;
+import org.jose4j.keys.resolvers.AsyncDecryptionKeyResolver;
+import org.jose4j.keys.resolvers.AsyncVerificationKeyResolver;
 import org.jose4j.keys.resolvers.DecryptionKeyResolver;
 import org.jose4j.keys.resolvers.VerificationKeyResolver;
 
@@ -69,6 +71,8 @@ public class JwtConsumerBuilder
 {
     private VerificationKeyResolver verificationKeyResolver = new SimpleKeyResolver(null);
     private DecryptionKeyResolver decryptionKeyResolver = new SimpleKeyResolver(null);
+    private AsyncVerificationKeyResolver asyncVerificationKeyResolver = AsyncKeyResolution.async(verificationKeyResolver);
+    private AsyncDecryptionKeyResolver asyncDecryptionKeyResolver = AsyncKeyResolution.async(decryptionKeyResolver);
 
     private AlgorithmConstraints jwsAlgorithmConstraints;
     private AlgorithmConstraints jweAlgorithmConstraints;
@@ -104,6 +108,10 @@ public class JwtConsumerBuilder
 
     private boolean liberalContentTypeHandling;
 
+    private boolean exceptionStackTraces = true;
+
+    private boolean preVerificationScreening;
+
     private ProviderContext jwsProviderContext;
     private ProviderContext jweProviderContext;
 
@@ -316,6 +324,24 @@ public class JwtConsumerBuilder
     public JwtConsumerBuilder setVerificationKeyResolver(VerificationKeyResolver verificationKeyResolver)
     {
         this.verificationKeyResolver = verificationKeyResolver;
+        this.asyncVerificationKeyResolver = AsyncKeyResolution.async(verificationKeyResolver);
+        return this;
+    }
+
+    /**
+     * Set the AsyncVerificationKeyResolver to use to select the key for JWS signature/MAC verification
+     * with {@link JwtConsumer#processAsync(String)}. The synchronous {@link JwtConsumer#process(String)}
+     * waits for the key from the given resolver, unless it's also a {@link VerificationKeyResolver}, in which case
+     * it's used as one. A VerificationKeyResolver, set with {@link #setVerificationKeyResolver(VerificationKeyResolver)},
+     * that's also an AsyncVerificationKeyResolver, like {@link org.jose4j.keys.resolvers.HttpsJwksVerificationKeyResolver},
+     * is used both ways too.
+     * @param asyncVerificationKeyResolver the AsyncVerificationKeyResolver
+     * @return the same JwtConsumerBuilder
+     */
+    public JwtConsumerBuilder setAsyncVerificationKeyResolver(AsyncVerificationKeyResolver asyncVerificationKeyResolver)
+    {
+        this.asyncVerificationKeyResolver = asyncVerificationKeyResolver;
+        this.verificationKeyResolver = AsyncKeyResolution.blocking(asyncVerificationKeyResolver);
         return this;
     }
 
@@ -351,6 +377,22 @@ public class JwtConsumerBuilder
     public JwtConsumerBuilder setDecryptionKeyResolver(DecryptionKeyResolver  decryptionKeyResolver)
     {
         this.decryptionKeyResolver = decryptionKeyResolver;
+        this.asyncDecryptionKeyResolver = AsyncKeyResolution.async(decryptionKeyResolver);
+        return this;
+    }
+
+    /**
+     * Set the AsyncDecryptionKeyResolver to use to select the key for JWE decryption
+     * with {@link JwtConsumer#processAsync(String)}. The synchronous {@link JwtConsumer#process(String)}
+     * waits for the key from the given resolver, unless it's also a {@link DecryptionKeyResolver}, in which case
+     * it's used as one.
+     * @param asyncDecryptionKeyResolver the AsyncDecryptionKeyResolver
+     * @return the same JwtConsumerBuilder
+     */
+    public JwtConsumerBuilder setAsyncDecryptionKeyResolver(AsyncDecryptionKeyResolver asyncDecryptionKeyResolver)
+    {
+        this.asyncDecryptionKeyResolver = asyncDecryptionKeyResolver;
+        this.decryptionKeyResolver = AsyncKeyResolution.blocking(asyncDecryptionKeyResolver);
         return this;
     }
 
@@ -639,6 +681,39 @@ public class JwtConsumerBuilder
         return this;
     }
 
+    /**
+     * Has the {@code JwtConsumer} screen the JWT claims with the built in validators (expiration and the other
+     * date claims, issuer, audience, subject, jti, and type) before resolving the verification key and verifying the signature,
+     * so that JWTs that would be rejected by them anyway, like expired ones or ones from an unexpected issuer, are rejected
+     * without the cost of a key lookup or any cryptographic operations. Custom validators aren't used for screening
+     * because they might not be cheap or side-effect free. The claims are validated again, as usual, after the
+     * signature is verified and are only considered valid then.
+     * A JWT that doesn't pass screening is rejected with an {@link InvalidJwtException} that has only the
+     * {@link ErrorCodes#SCREENED_OUT_UNVERIFIED} error code and no {@code JwtContext}, so that nothing about the
+     * unverified JWT, like {@link InvalidJwtException#hasExpired()}, is mistaken for something verified.
+     * Note that a JWT that's both invalid and has a bad signature gets rejected that way rather than for its signature
+     * when screening is on.
+     * @return the same JwtConsumerBuilder
+     */
+    public JwtConsumerBuilder setEnablePreVerificationScreening()
+    {
+        preVerificationScreening = true;
+        return this;
+    }
+
+    /**
+     * Has the {@code JwtConsumer} throw {@link InvalidJwtException}s without a stack trace, which makes rejecting
+     * a JWT cheaper. This can be worthwhile when a large share of the JWTs being processed are expected to be invalid
+     * and the error codes ({@link InvalidJwtException#hasErrorCode(int)}) and messages are enough to go on.
+     * Note that the messages of the exceptions are always only put together when they're asked for.
+     * @return the same JwtConsumerBuilder
+     */
+    public JwtConsumerBuilder setDisableExceptionStackTraces()
+    {
+        exceptionStackTraces = false;
+        return this;
+    }
+
     /**
      * Custom Validator implementations, which will be invoked when the {@code JwtConsumer} is validating the JWT claims.
      * @param validator the validator
@@ -746,45 +821,38 @@ public class JwtConsumerBuilder
      */
     public JwtConsumer build()
     {
-        List<ErrorCodeValidator> validators = new ArrayList<>();
+        DefaultClaimsValidator defaultClaimsValidator = null;
+        List<ErrorCodeValidator> validators = Collections.emptyList();
         if (!skipAllValidators)
         {
             if (!skipAllDefaultValidators)
             {
-                if (!skipDefaultAudienceValidation)
+                if (!skipDefaultAudienceValidation && audValidator == null)
                 {
-                    if (audValidator == null)
-                    {
-                        audValidator = new GeneralAudValidator(Collections.<String>emptySet(), false);
-                    }
-                    validators.add(audValidator);
+                    audValidator = new GeneralAudValidator(Collections.<String>emptySet(), false);
                 }
 
                 if (issValidator == null)
                 {
                     issValidator = new IssValidator(null, false);
                 }
-                validators.add(issValidator);
-
-                validators.add(dateClaimsValidator);
 
                 SubValidator subValidator = expectedSubject == null ? new SubValidator(requireSubject) : new SubValidator(expectedSubject);
-                validators.add(subValidator);
-                validators.add(new JtiValidator(requireJti));
-
-                if (typeValidator != null)
-                {
-                    validators.add(typeValidator);
-                }
+                defaultClaimsValidator = new DefaultClaimsValidator(skipDefaultAudienceValidation ? null : audValidator, issValidator,
+                        dateClaimsValidator, subValidator, new JtiValidator(requireJti), typeValidator);
             }
 
-            validators.addAll(customValidators);
+            validators = customValidators;
         }
 
         JwtConsumer jwtConsumer = new JwtConsumer();
+        jwtConsumer.setDefaultClaimsValidator(defaultClaimsValidator);
         jwtConsumer.setValidators(validators);
+        jwtConsumer.setPreVerificationScreening(preVerificationScreening);
         jwtConsumer.setVerificationKeyResolver(verificationKeyResolver);
         jwtConsumer.setDecryptionKeyResolver(decryptionKeyResolver);
+        jwtConsumer.setAsyncVerificationKeyResolver(asyncVerificationKeyResolver);
+        jwtConsumer.setAsyncDecryptionKeyResolver(asyncDecryptionKeyResolver);
 
         jwtConsumer.setJwsAlgorithmConstraints(jwsAlgorithmConstraints);
         jwtConsumer.setJweAlgorithmConstraints(jweAlgorithmConstraints);
@@ -795,6 +863,7 @@ public class JwtConsumerBuilder
         jwtConsumer.setRequireIntegrity(requireIntegrity);
 
         jwtConsumer.setLiberalContentTypeHandling(liberalContentTypeHandling);
+        jwtConsumer.setExceptionStackTraces(exceptionStackTraces);
 
         jwtConsumer.setSkipSignatureVerification(skipSignatureVerification);
 
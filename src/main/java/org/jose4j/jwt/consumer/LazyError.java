@@ -0,0 +1,29 @@
+package org.jose4j.jwt.consumer;
+
+import java.util.function.Supplier;
+
+/**
+ * An error whose message is only put together if and when something asks for it, which is often never
+ * for JWTs that are simply rejected, and can be relatively expensive because it typically includes the JWT itself.
+ */
+class LazyError extends ErrorCodeValidator.Error
+{
+    private Supplier<String> errorMessageSupplier;
+    private String errorMessage;
+
+    LazyError(int errorCode, Supplier<String> errorMessageSupplier)
+    {
+        super(errorCode, null);
+        this.errorMessageSupplier = errorMessageSupplier;
+    }
+
+    @Override
+    public String getErrorMessage()
+    {
+        if (errorMessage == null)
+        {
+            errorMessage = errorMessageSupplier.get();
+        }
+        return errorMessage;
+    }
+}
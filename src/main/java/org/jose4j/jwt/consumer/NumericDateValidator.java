@@ -87,10 +87,11 @@ public class NumericDateValidator implements ErrorCodeValidator
     public Error validate(JwtContext jwtContext) throws MalformedClaimException
     {
         JwtClaims jwtClaims = jwtContext.getJwtClaims();
-        NumericDate expirationTime = jwtClaims.getExpirationTime();
-        NumericDate issuedAt = jwtClaims.getIssuedAt();
-        NumericDate notBefore = jwtClaims.getNotBefore();
+        return validate(jwtClaims.getExpirationTime(), jwtClaims.getIssuedAt(), jwtClaims.getNotBefore());
+    }
 
+    Error validate(NumericDate expirationTime, NumericDate issuedAt, NumericDate notBefore)
+    {
         if (requireExp && expirationTime == null)
         {
             return MISSING_EXP;
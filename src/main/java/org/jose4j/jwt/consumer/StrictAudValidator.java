@@ -38,10 +38,8 @@ public final class StrictAudValidator extends AudValidator
     }
 
     @Override
-    public Error validate(JwtContext jwtContext) throws MalformedClaimException
+    Error validate(JwtClaims jwtClaims) throws MalformedClaimException
     {
-        final JwtClaims jwtClaims = jwtContext.getJwtClaims();
-
         if (!jwtClaims.hasAudience())
         {
             return requireAudience ? MISSING_AUD : null;
@@ -44,7 +44,11 @@ public class SubValidator implements ErrorCodeValidator
     public Error validate(JwtContext jwtContext) throws MalformedClaimException
     {
         JwtClaims jwtClaims = jwtContext.getJwtClaims();
-        String subject = jwtClaims.getSubject();
+        return validate(jwtClaims.getSubject());
+    }
+
+    Error validate(String subject)
+    {
         if (subject == null && requireSubject)
         {
             return MISSING_SUB;
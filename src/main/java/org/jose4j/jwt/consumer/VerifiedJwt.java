@@ -0,0 +1,59 @@
+package org.jose4j.jwt.consumer;
+
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwx.HeaderParameterNames;
+import org.jose4j.jwx.JsonWebStructure;
+
+import java.util.List;
+
+/**
+ * The compact result of {@link JwtConsumer#processToVerifiedJwt(String)}, which holds just the claims and a few
+ * header values of a successfully processed JWT. Unlike {@link JwtContext}, it doesn't keep the original JWT string
+ * or the JOSE objects (with their payloads, signatures, keys and so on) reachable, so it's better suited to being
+ * held for the lifetime of a request.
+ * The header values are from the inner most JOSE object, which is the one that carried the claims.
+ * The claims are a read only copy, see {@link JwtClaims#unmodifiable(JwtClaims)}, that doesn't keep the raw JSON.
+ */
+public final class VerifiedJwt
+{
+    private final JwtClaims jwtClaims;
+    private final String algorithm;
+    private final String keyId;
+    private final String type;
+
+    VerifiedJwt(JwtContext jwtContext)
+    {
+        this.jwtClaims = JwtClaims.unmodifiable(jwtContext.getJwtClaims());
+        List<JsonWebStructure> joseObjects = jwtContext.getJoseObjects();
+        JsonWebStructure innerMost = joseObjects.get(0);
+        this.algorithm = innerMost.getAlgorithmHeaderValue();
+        this.keyId = innerMost.getKeyIdHeaderValue();
+        this.type = innerMost.getHeader(HeaderParameterNames.TYPE);
+    }
+
+    public JwtClaims getJwtClaims()
+    {
+        return jwtClaims;
+    }
+
+    public String getAlgorithmHeaderValue()
+    {
+        return algorithm;
+    }
+
+    public String getKeyIdHeaderValue()
+    {
+        return keyId;
+    }
+
+    public String getTypeHeaderValue()
+    {
+        return type;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "VerifiedJwt{alg=" + algorithm + ", kid=" + keyId + ", typ=" + type + ", claims=" + jwtClaims + "}";
+    }
+}
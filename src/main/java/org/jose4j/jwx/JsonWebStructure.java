@@ -23,6 +23,7 @@ import org.jose4j.jwa.AlgorithmConstraints;
 import org.jose4j.jwe.JsonWebEncryption;
 import org.jose4j.jwk.PublicJsonWebKey;
 import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.keys.X509CertificateChainCache;
 import org.jose4j.keys.X509Util;
 import org.jose4j.lang.InvalidAlgorithmException;
 import org.jose4j.lang.JoseException;
@@ -64,6 +65,11 @@ public abstract class JsonWebStructure
     private static final ProviderContext DEFAULT_PROVIDER_CONTEXT = new ProviderContext();
     private ProviderContext providerCtx = DEFAULT_PROVIDER_CONTEXT;
 
+    private X509CertificateChainCache certificateChainCache = X509CertificateChainCache.getDefault();
+
+    public static final int DEFAULT_STREAM_BUFFER_SIZE = 8192;
+    private int streamBufferSize = DEFAULT_STREAM_BUFFER_SIZE;
+
     abstract public String getCompactSerialization() throws JoseException;
     abstract protected void setCompactSerializationParts(String[] parts) throws JoseException;
 
@@ -230,6 +236,11 @@ public abstract class JsonWebStructure
         if (x5c instanceof List)
         {
             List x5cList = (List) x5c;
+            if (certificateChainCache != null)
+            {
+                return new ArrayList<>(certificateChainCache.getCertificateChain(x5cList));
+            }
+
             List<X509Certificate> certificateChain = new ArrayList<>(x5cList.size());
             X509Util x509Util = new X509Util();
             for (Object certificate : x5cList)
@@ -243,6 +254,16 @@ public abstract class JsonWebStructure
         return null;
     }
 
+    /**
+     * Sets the cache used by {@link #getCertificateChainHeaderValue()} to avoid parsing the same
+     * "x5c" certificate chain again and again. A shared default cache is used, if this isn't called.
+     * @param certificateChainCache the cache to use or {@code null} to always parse the certificates
+     */
+    public void setCertificateChainCache(X509CertificateChainCache certificateChainCache)
+    {
+        this.certificateChainCache = certificateChainCache;
+    }
+
     public void setCertificateChainHeaderValue(X509Certificate... chain)
     {
         List<String> chainStrings = new ArrayList<>();
@@ -308,6 +329,26 @@ public abstract class JsonWebStructure
         // just a hook that subclasses can override
     }
 
+    /**
+     * Sets the size of the buffers used when streaming content rather than holding it all in memory,
+     * such as with {@link org.jose4j.jwe.JsonWebEncryption#encrypt(java.io.InputStream, java.io.OutputStream)}
+     * or {@link org.jose4j.jws.JsonWebSignature#sign(java.io.InputStream, java.io.OutputStream)}.
+     * @param streamBufferSize the size in bytes, which is 8192 by default
+     */
+    public void setStreamBufferSize(int streamBufferSize)
+    {
+        if (streamBufferSize < 64)
+        {
+            throw new IllegalArgumentException("streamBufferSize must be at least 64 but was " + streamBufferSize);
+        }
+        this.streamBufferSize = streamBufferSize;
+    }
+
+    protected int getStreamBufferSize()
+    {
+        return streamBufferSize;
+    }
+
     protected byte[] getIntegrity()
     {
         return integrity;
@@ -53,7 +53,7 @@ public class EcKeyUtil extends KeyPairUtil
 
         try
         {
-            PublicKey publicKey = getKeyFactory().generatePublic(ecPublicKeySpec);
+            PublicKey publicKey = generatePublic(ecPublicKeySpec);
             return (ECPublicKey) publicKey;
         }
         catch (InvalidKeySpecException e)
@@ -68,7 +68,7 @@ public class EcKeyUtil extends KeyPairUtil
 
         try
         {
-            PrivateKey privateKey = getKeyFactory().generatePrivate(ecPrivateKeySpec);
+            PrivateKey privateKey = generatePrivate(ecPrivateKeySpec);
             return (ECPrivateKey) privateKey;
         }
         catch (InvalidKeySpecException e)
@@ -83,7 +83,7 @@ public class EdDsaKeyUtil extends OctetKeyPairUtil
 
         try
         {
-            PublicKey publicKey = getKeyFactory().generatePublic(keySpec);
+            PublicKey publicKey = generatePublic(keySpec);
             return (EdECPublicKey) publicKey;
         }
         catch (InvalidKeySpecException e)
@@ -99,7 +99,7 @@ public class EdDsaKeyUtil extends OctetKeyPairUtil
         EdECPrivateKeySpec privateKeySpec = new EdECPrivateKeySpec(paramSpec, privateKeyBytes);
         try
         {
-            PrivateKey privateKey = getKeyFactory().generatePrivate(privateKeySpec);
+            PrivateKey privateKey = generatePrivate(privateKeySpec);
             return (EdECPrivateKey) privateKey;
         }
         catch (InvalidKeySpecException e)
@@ -17,16 +17,19 @@
 package org.jose4j.keys;
 
 import org.jose4j.base64url.SimplePEMEncoder;
+import org.jose4j.jca.InstancePool;
 import org.jose4j.lang.JoseException;
 
 import java.security.KeyFactory;
 import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
+import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.Security;
 import java.security.spec.InvalidKeySpecException;
+import java.security.spec.KeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Set;
 
@@ -37,6 +40,9 @@ abstract class KeyPairUtil
     private static final String BEGIN_PUBLIC_KEY = "-----BEGIN PUBLIC KEY-----";
     private static final String END_PUBLIC_KEY = "-----END PUBLIC KEY-----";
 
+    // KeyFactory instances aren't necessarily thread safe but are reusable so they're pooled by algorithm and provider
+    private static final InstancePool<KeyFactory> KEY_FACTORY_POOL = new InstancePool<>();
+
     protected String provider;
     protected SecureRandom secureRandom;
 
@@ -65,6 +71,45 @@ abstract class KeyPairUtil
         }
     }
 
+    protected PublicKey generatePublic(KeySpec keySpec) throws JoseException, InvalidKeySpecException
+    {
+        String poolKey = InstancePool.key(getAlgorithm(), provider);
+        KeyFactory keyFactory = takeKeyFactory(poolKey);
+        try
+        {
+            return keyFactory.generatePublic(keySpec);
+        }
+        finally
+        {
+            KEY_FACTORY_POOL.release(poolKey, keyFactory);
+        }
+    }
+
+    protected PrivateKey generatePrivate(KeySpec keySpec) throws JoseException, InvalidKeySpecException
+    {
+        String poolKey = InstancePool.key(getAlgorithm(), provider);
+        KeyFactory keyFactory = takeKeyFactory(poolKey);
+        try
+        {
+            return keyFactory.generatePrivate(keySpec);
+        }
+        finally
+        {
+            KEY_FACTORY_POOL.release(poolKey, keyFactory);
+        }
+    }
+
+    private KeyFactory takeKeyFactory(String poolKey) throws JoseException
+    {
+        KeyFactory keyFactory = KEY_FACTORY_POOL.take(poolKey);
+        return (keyFactory == null) ? getKeyFactory() : keyFactory;
+    }
+
+    static InstancePool<KeyFactory> getKeyFactoryPool()
+    {
+        return KEY_FACTORY_POOL;
+    }
+
     protected KeyPairGenerator getKeyPairGenerator() throws JoseException
     {
         String alg = getAlgorithm();
@@ -89,8 +134,7 @@ abstract class KeyPairUtil
         String base64 = pem.substring(beginIndex, endIndex).trim();
         byte[] decode = SimplePEMEncoder.decode(base64);
         X509EncodedKeySpec spec = new X509EncodedKeySpec(decode);
-        KeyFactory kf = getKeyFactory();
-        return kf.generatePublic(spec);
+        return generatePublic(spec);
     }
 
     public static String pemEncode(PublicKey publicKey)
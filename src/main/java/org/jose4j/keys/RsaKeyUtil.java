@@ -58,7 +58,7 @@ public class RsaKeyUtil extends KeyPairUtil
         RSAPublicKeySpec rsaPublicKeySpec = new RSAPublicKeySpec(modulus, publicExponent);
         try
         {
-            PublicKey publicKey = getKeyFactory().generatePublic(rsaPublicKeySpec);
+            PublicKey publicKey = generatePublic(rsaPublicKeySpec);
             return (RSAPublicKey) publicKey;
         }
         catch (InvalidKeySpecException e)
@@ -86,7 +86,7 @@ public class RsaKeyUtil extends KeyPairUtil
     {
         try
         {
-            PrivateKey privateKey = getKeyFactory().generatePrivate(keySpec);
+            PrivateKey privateKey = generatePrivate(keySpec);
             return (RSAPrivateKey) privateKey;
         }
         catch (InvalidKeySpecException e)
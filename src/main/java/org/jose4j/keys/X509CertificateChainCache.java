@@ -0,0 +1,200 @@
+package org.jose4j.keys;
+
+import org.jose4j.base64url.Base64Url;
+import org.jose4j.lang.HashUtil;
+import org.jose4j.lang.JoseException;
+import org.jose4j.lang.StringUtil;
+
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of parsed X.509 certificate chains keyed by a SHA-256 digest of
+ * the base64 encoded DER values of an "x5c" (X.509 Certificate Chain) header or JWK parameter. When the
+ * same chain is presented repeatedly, which is typical when a given party signs everything with the same
+ * certificate, the ASN.1 parsing of the certificates happens only once.
+ * <p>
+ * The result of validating a chain, which this class doesn't do but callers might, can also be remembered
+ * for a period of time with {@link #putValidationResult(List, Object, boolean)} and later checked with
+ * {@link #getValidationResult(List, Object)}. Because a chain that's valid against one set of trust anchors needn't be
+ * against another, a result is only ever given back for the same trust context object (typically the
+ * {@code PKIXParameters} or the set of {@code TrustAnchor}s used) that it was remembered with, which is
+ * compared by identity. That keeps the results of callers sharing the {@link #getDefault()} cache apart.
+ */
+public class X509CertificateChainCache
+{
+    public static final int DEFAULT_MAX_SIZE = 50;
+    public static final long DEFAULT_VALIDATION_RESULT_TTL = 300000L;
+
+    private static final X509CertificateChainCache DEFAULT = new X509CertificateChainCache();
+
+    private final Map<String, Entry> cache;
+    private final X509Util x509Util;
+
+    private volatile long validationResultTtl = DEFAULT_VALIDATION_RESULT_TTL;
+
+    public X509CertificateChainCache()
+    {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize the maximum number of chains to retain; the least recently used are evicted first.
+     */
+    public X509CertificateChainCache(final int maxSize)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("maxSize must be greater than zero but was " + maxSize);
+        }
+
+        x509Util = new X509Util();
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Gets the default cache instance, which is shared and used by
+     * {@link org.jose4j.jwx.JsonWebStructure#getCertificateChainHeaderValue()}.
+     * @return the default cache
+     */
+    public static X509CertificateChainCache getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Sets how long a result given to {@link #putValidationResult(List, Object, boolean)} is remembered.
+     * @param validationResultTtl the time in milliseconds. The default is 300000 (5 minutes).
+     */
+    public void setValidationResultTtl(long validationResultTtl)
+    {
+        this.validationResultTtl = validationResultTtl;
+    }
+
+    /**
+     * Gets the certificate chain for the given base64 encoded DER values, parsing it only if it's not already cached.
+     * @param x5c the list of base64 encoded DER certificates
+     * @return an unmodifiable list of the certificates
+     * @throws JoseException if a certificate can't be parsed
+     */
+    public List<X509Certificate> getCertificateChain(List<?> x5c) throws JoseException
+    {
+        return getEntry(cacheKey(x5c), x5c).certificateChain;
+    }
+
+    /**
+     * Gets a remembered result of validating the certificate chain against the given trust context.
+     * @param x5c the list of base64 encoded DER certificates
+     * @param trustContext the object the chain was validated against, compared by identity
+     * @return the result or {@code null}, if there isn't one for the trust context or it has expired
+     */
+    public Boolean getValidationResult(List<?> x5c, Object trustContext)
+    {
+        Entry entry = cache.get(cacheKey(x5c));
+        if (entry == null)
+        {
+            return null;
+        }
+
+        Validation validation = entry.validation;
+        if (validation == null || validation.trustContext != trustContext || validation.expiresAt <= System.currentTimeMillis())
+        {
+            return null;
+        }
+        return validation.valid;
+    }
+
+    /**
+     * Remembers the result of validating the certificate chain against the given trust context for the configured
+     * validation result TTL. Only the most recent result for a chain is kept, so a result for a different trust context
+     * replaces it.
+     * @param x5c the list of base64 encoded DER certificates
+     * @param trustContext the object the chain was validated against, like the {@code PKIXParameters} used
+     * @param valid the outcome of the validation
+     * @throws JoseException if a certificate can't be parsed
+     */
+    public void putValidationResult(List<?> x5c, Object trustContext, boolean valid) throws JoseException
+    {
+        if (trustContext == null)
+        {
+            throw new IllegalArgumentException("A trust context is needed for a validation result.");
+        }
+
+        Entry entry = getEntry(cacheKey(x5c), x5c);
+        entry.validation = new Validation(trustContext, valid, System.currentTimeMillis() + validationResultTtl);
+    }
+
+    public int size()
+    {
+        return cache.size();
+    }
+
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    private Entry getEntry(String cacheKey, List<?> x5c) throws JoseException
+    {
+        Entry entry = cache.get(cacheKey);
+        if (entry == null)
+        {
+            List<X509Certificate> certificateChain = new ArrayList<>(x5c.size());
+            for (Object certificate : x5c)
+            {
+                certificateChain.add(x509Util.fromBase64Der((String) certificate));
+            }
+            entry = new Entry(Collections.unmodifiableList(certificateChain));
+            cache.put(cacheKey, entry);
+        }
+        return entry;
+    }
+
+    static String cacheKey(List<?> x5c)
+    {
+        MessageDigest messageDigest = HashUtil.getMessageDigest(HashUtil.SHA_256);
+        for (Object certificate : x5c)
+        {
+            messageDigest.update(StringUtil.getBytesUtf8(String.valueOf(certificate)));
+            messageDigest.update((byte) ',');
+        }
+        return Base64Url.encode(messageDigest.digest());
+    }
+
+    private static class Entry
+    {
+        private final List<X509Certificate> certificateChain;
+        private volatile Validation validation;
+
+        private Entry(List<X509Certificate> certificateChain)
+        {
+            this.certificateChain = certificateChain;
+        }
+    }
+
+    private static class Validation
+    {
+        private final Object trustContext;
+        private final boolean valid;
+        private final long expiresAt;
+
+        private Validation(Object trustContext, boolean valid, long expiresAt)
+        {
+            this.trustContext = trustContext;
+            this.valid = valid;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
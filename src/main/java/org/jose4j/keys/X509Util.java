@@ -19,14 +19,21 @@ package org.jose4j.keys;
 import org.jose4j.base64url.Base64;
 import org.jose4j.base64url.Base64Url;
 import org.jose4j.base64url.SimplePEMEncoder;
+import org.jose4j.jca.InstancePool;
 import org.jose4j.lang.HashUtil;
 import org.jose4j.lang.JoseException;
 import org.jose4j.lang.UncheckedJoseException;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchProviderException;
 import java.security.cert.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  */
@@ -34,49 +41,85 @@ public class X509Util
 {
     private static final String FACTORY_TYPE = "X.509";
 
-    private CertificateFactory certFactory;
+    // CertificateFactory instances aren't necessarily thread safe but are reusable so they're pooled by provider
+    private static final InstancePool<CertificateFactory> CERT_FACTORY_POOL = new InstancePool<>();
+
+    private static final ConcurrentMap<String, X509Util> SHARED_INSTANCES = new ConcurrentHashMap<>();
+
+    private final String provider;
 
     public X509Util()
     {
+        provider = null;
         try
         {
-            certFactory = CertificateFactory.getInstance(FACTORY_TYPE);
+            CERT_FACTORY_POOL.release(InstancePool.key(provider), takeCertificateFactory());
         }
-        catch (CertificateException e)
+        catch (NoSuchProviderException e)
         {
-            throw new IllegalStateException("Couldn't find "+ FACTORY_TYPE + " CertificateFactory!?!", e);
+            throw new IllegalStateException("Unexpected NoSuchProviderException with the default provider?!?", e);
         }
     }
 
     public X509Util(String provider) throws NoSuchProviderException
     {
-        try
-        {
-            certFactory = CertificateFactory.getInstance(FACTORY_TYPE, provider);
-        }
-        catch (CertificateException e)
-        {
-            throw new IllegalStateException("Couldn't find "+ FACTORY_TYPE + " CertificateFactory!?!", e);
-        }
+        this.provider = provider;
+        CERT_FACTORY_POOL.release(InstancePool.key(provider), takeCertificateFactory());
     }
 
+    /**
+     * Gets an X509Util for the given provider. Instances are shared and safe for concurrent use.
+     * @param jcaProvider the provider name or {@code null} for the system configured providers
+     * @return the X509Util
+     * @throws JoseException if the provider isn't found
+     */
     public static X509Util getX509Util(String jcaProvider) throws JoseException
     {
-        if (jcaProvider == null)
+        String key = InstancePool.key(jcaProvider);
+        X509Util x509Util = SHARED_INSTANCES.get(key);
+        if (x509Util == null)
         {
-            return new X509Util();
-        }
-        else
-        {
-            try
+            if (jcaProvider == null)
             {
-                return new X509Util(jcaProvider);
+                x509Util = new X509Util();
             }
-            catch (NoSuchProviderException e)
+            else
             {
-                throw new JoseException("Provider " + jcaProvider + " not found when creating X509Util." , e);
+                try
+                {
+                    x509Util = new X509Util(jcaProvider);
+                }
+                catch (NoSuchProviderException e)
+                {
+                    throw new JoseException("Provider " + jcaProvider + " not found when creating X509Util." , e);
+                }
             }
+            SHARED_INSTANCES.putIfAbsent(key, x509Util);
+        }
+        return x509Util;
+    }
+
+    private CertificateFactory takeCertificateFactory() throws NoSuchProviderException
+    {
+        CertificateFactory certFactory = CERT_FACTORY_POOL.take(InstancePool.key(provider));
+        if (certFactory != null)
+        {
+            return certFactory;
+        }
+
+        try
+        {
+            return provider == null ? CertificateFactory.getInstance(FACTORY_TYPE) : CertificateFactory.getInstance(FACTORY_TYPE, provider);
         }
+        catch (CertificateException e)
+        {
+            throw new IllegalStateException("Couldn't find "+ FACTORY_TYPE + " CertificateFactory!?!", e);
+        }
+    }
+
+    static InstancePool<CertificateFactory> getCertificateFactoryPool()
+    {
+        return CERT_FACTORY_POOL;
     }
 
     public String toBase64(X509Certificate x509Certificate)
@@ -109,6 +152,16 @@ public class X509Util
     {
         byte[] der = Base64.decode(b64EncodedDer);
         ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(der);
+        CertificateFactory certFactory;
+        try
+        {
+            certFactory = takeCertificateFactory();
+        }
+        catch (NoSuchProviderException e)
+        {
+            throw new JoseException("Provider " + provider + " not found when creating X509Certificate." , e);
+        }
+
         try
         {
             Certificate certificate = certFactory.generateCertificate(byteArrayInputStream);
@@ -118,6 +171,49 @@ public class X509Util
         {
             throw new JoseException("Unable to convert " + b64EncodedDer + " value to X509Certificate: " + e, e);
         }
+        finally
+        {
+            CERT_FACTORY_POOL.release(InstancePool.key(provider), certFactory);
+        }
+    }
+
+    /**
+     * Reads all the certificates from the given stream, which can have DER or PEM encoded content
+     * (including PEM content with multiple certificates).
+     * @param inputStream the stream to read
+     * @return the certificates
+     * @throws JoseException if the content can't be read as certificates
+     */
+    public List<X509Certificate> fromEncodedCertificates(InputStream inputStream) throws JoseException
+    {
+        CertificateFactory certFactory;
+        try
+        {
+            certFactory = takeCertificateFactory();
+        }
+        catch (NoSuchProviderException e)
+        {
+            throw new JoseException("Provider " + provider + " not found when creating X509Certificates." , e);
+        }
+
+        try
+        {
+            Collection<? extends Certificate> certificates = certFactory.generateCertificates(inputStream);
+            List<X509Certificate> x509Certificates = new ArrayList<>(certificates.size());
+            for (Certificate certificate : certificates)
+            {
+                x509Certificates.add((X509Certificate) certificate);
+            }
+            return x509Certificates;
+        }
+        catch (CertificateException e)
+        {
+            throw new JoseException("Unable to read X509Certificates: " + e, e);
+        }
+        finally
+        {
+            CERT_FACTORY_POOL.release(InstancePool.key(provider), certFactory);
+        }
     }
 
     public static String x5t(X509Certificate certificate)
@@ -87,7 +87,7 @@ public class XDHKeyUtil extends OctetKeyPairUtil
 
         try
         {
-            PublicKey publicKey = getKeyFactory().generatePublic(keySpec);
+            PublicKey publicKey = generatePublic(keySpec);
             return (XECPublicKey) publicKey;
         }
         catch (InvalidKeySpecException e)
@@ -103,7 +103,7 @@ public class XDHKeyUtil extends OctetKeyPairUtil
         XECPrivateKeySpec privateKeySpec = new XECPrivateKeySpec(paramSpec, privateKeyBytes);
         try
         {
-            PrivateKey privateKey = getKeyFactory().generatePrivate(privateKeySpec);
+            PrivateKey privateKey = generatePrivate(privateKeySpec);
             return (XECPrivateKey) privateKey;
         }
         catch (InvalidKeySpecException e)
@@ -0,0 +1,26 @@
+package org.jose4j.keys.resolvers;
+
+import org.jose4j.jwe.JsonWebEncryption;
+import org.jose4j.jwx.JsonWebStructure;
+
+import java.security.Key;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A callback interface for resolving, possibly asynchronously, the key to use to decrypt the JWE.
+ * It's used by {@link org.jose4j.jwt.consumer.JwtConsumer#processAsync(String)}.
+ * Implementations should return an already completed stage whenever they can answer right away.
+ */
+public interface AsyncDecryptionKeyResolver
+{
+    /**
+     * Choose the key to be used for decryption on the given JWE.
+     * @param jwe the JsonWebEncryption that's about to be decrypted
+     * @param nestingContext a list of JOSE objects, if any, in which the JWE was nested.
+     *                       The last item in the list is the outer most JOSE object (not including the current JWE).
+     * @return a stage that completes with the decryption key or that completes
+     * exceptionally (ideally with an {@link org.jose4j.lang.UnresolvableKeyException}) if no appropriate key can be found
+     */
+    CompletionStage<Key> resolveKeyAsync(JsonWebEncryption jwe, List<JsonWebStructure> nestingContext);
+}
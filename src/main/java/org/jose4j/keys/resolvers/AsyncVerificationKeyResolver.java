@@ -0,0 +1,27 @@
+package org.jose4j.keys.resolvers;
+
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwx.JsonWebStructure;
+
+import java.security.Key;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A callback interface for resolving, possibly asynchronously, the key to use to verify the JWS signature.
+ * It's used by {@link org.jose4j.jwt.consumer.JwtConsumer#processAsync(String)} so that resolution that needs
+ * to do something slow, like fetching keys from a JWKS endpoint, doesn't have to block the calling thread.
+ * Implementations should return an already completed stage whenever they can answer right away.
+ */
+public interface AsyncVerificationKeyResolver
+{
+    /**
+     * Choose the key to be used for signature verification on the given JWS.
+     * @param jws the JsonWebSignature that's about to be verified
+     * @param nestingContext a list of JOSE objects, if any, in which the JWS was nested.
+     *                       The last item in the list is the outer most JOSE object (not including the current JWS).
+     * @return a stage that completes with the signature or MAC verification key or that completes
+     * exceptionally (ideally with an {@link org.jose4j.lang.UnresolvableKeyException}) if no appropriate key can be found
+     */
+    CompletionStage<Key> resolveKeyAsync(JsonWebSignature jws, List<JsonWebStructure> nestingContext);
+}
@@ -15,6 +15,7 @@
  */
 package org.jose4j.keys.resolvers;
 
+import org.jose4j.jwk.DefaultHttpsJwks;
 import org.jose4j.jwk.HttpsJwks;
 import org.jose4j.jwk.JsonWebKey;
 import org.jose4j.jwk.VerificationJwkSelector;
@@ -28,11 +29,15 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.security.Key;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
  */
-public class HttpsJwksVerificationKeyResolver implements VerificationKeyResolver
+public class HttpsJwksVerificationKeyResolver implements VerificationKeyResolver, AsyncVerificationKeyResolver
 {
     private static final Logger log = LoggerFactory.getLogger(HttpsJwksVerificationKeyResolver.class);
 
@@ -42,6 +47,8 @@ public class HttpsJwksVerificationKeyResolver implements VerificationKeyResolver
 
     private boolean disambiguateWithVerifySignature;
 
+    private Executor asyncExecutor = ForkJoinPool.commonPool();
+
     public HttpsJwksVerificationKeyResolver(HttpsJwks httpsJkws)
     {
         this.httpsJkws = httpsJkws;
@@ -86,6 +93,57 @@ public class HttpsJwksVerificationKeyResolver implements VerificationKeyResolver
         return theChosenOne.getKey();
     }
 
+    /**
+     * Resolves the key without blocking the calling thread. When a suitable key is among the unexpired cached
+     * keys of a {@link DefaultHttpsJwks}, the returned stage is already complete. Otherwise
+     * {@link #resolveKey(JsonWebSignature, List)}, with whatever fetching of the JWKS content that entails,
+     * is run on the executor set with {@link #setAsyncExecutor(Executor)}.
+     */
+    @Override
+    public CompletionStage<Key> resolveKeyAsync(final JsonWebSignature jws, final List<JsonWebStructure> nestingContext)
+    {
+        if (httpsJkws instanceof DefaultHttpsJwks)
+        {
+            List<JsonWebKey> cachedKeys = ((DefaultHttpsJwks) httpsJkws).getCachedJsonWebKeys();
+            if (cachedKeys != null)
+            {
+                try
+                {
+                    JsonWebKey theChosenOne = select(jws, cachedKeys);
+                    if (theChosenOne != null)
+                    {
+                        return CompletableFuture.completedFuture(theChosenOne.getKey());
+                    }
+                }
+                catch (JoseException e)
+                {
+                    log.debug("Unable to select a key from the cached JWKs from {} so will do full resolution ({})", httpsJkws.getLocation(), e.toString());
+                }
+            }
+        }
+
+        final CompletableFuture<Key> future = new CompletableFuture<>();
+        try
+        {
+            asyncExecutor.execute(() ->
+            {
+                try
+                {
+                    future.complete(resolveKey(jws, nestingContext));
+                }
+                catch (Throwable t)
+                {
+                    future.completeExceptionally(t);
+                }
+            });
+        }
+        catch (RuntimeException e)
+        {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     protected JsonWebKey select(JsonWebSignature jws, List<JsonWebKey> jsonWebKeys) throws JoseException
     {
         if (disambiguateWithVerifySignature)
@@ -106,4 +164,15 @@ public class HttpsJwksVerificationKeyResolver implements VerificationKeyResolver
     {
         this.disambiguateWithVerifySignature = disambiguateWithVerifySignature;
     }
+
+    /**
+     * Sets the executor on which {@link #resolveKeyAsync(JsonWebSignature, List)} does key resolution that can't
+     * be done from the cache, which potentially means making an HTTP request to the JWKS endpoint. The default is
+     * {@link ForkJoinPool#commonPool()} but an executor meant for blocking I/O is probably more appropriate.
+     * @param asyncExecutor the executor
+     */
+    public void setAsyncExecutor(Executor asyncExecutor)
+    {
+        this.asyncExecutor = asyncExecutor;
+    }
 }
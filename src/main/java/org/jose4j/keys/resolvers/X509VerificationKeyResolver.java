@@ -15,56 +15,64 @@
  */
 package org.jose4j.keys.resolvers;
 
+import org.jose4j.base64url.Base64Url;
+import org.jose4j.jwk.PublicJsonWebKey;
 import org.jose4j.jws.JsonWebSignature;
 import org.jose4j.jwx.JsonWebStructure;
 import org.jose4j.keys.X509Util;
 import org.jose4j.lang.ExceptionHelp;
+import org.jose4j.lang.HashUtil;
 import org.jose4j.lang.JoseException;
 import org.jose4j.lang.UncheckedJoseException;
 import org.jose4j.lang.UnresolvableKeyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
 import java.security.Key;
+import java.security.KeyStore;
 import java.security.PublicKey;
+import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.jose4j.jwx.HeaderParameterNames.X509_CERTIFICATE_SHA256_THUMBPRINT;
 import static org.jose4j.jwx.HeaderParameterNames.X509_CERTIFICATE_THUMBPRINT;
 
 /**
- *
+ * Resolves the verification key for a JWS from a set of X.509 certificates using the "x5t" or "x5t#S256"
+ * certificate thumbprint headers.
+ * <p>
+ * When neither of those headers is present and {@link #setTryAllOnNoThumbHeader(boolean)} is enabled,
+ * a single candidate certificate is first looked up from the "kid" header (matched against the base64url encoded
+ * subject key identifier or SHA-256 hash of the subject public key info of the certificates) or the public key
+ * of the "x5c" or "jwk" headers. That candidate is only a hint: when there isn't one, or it doesn't verify the
+ * signature, each of the other certificates is tried in turn.
+ * <p>
+ * The certificates can be loaded from, and periodically reloaded when modified, a PEM file or key store file
+ * using {@link #setPemCertificateFile(Path, long)} or {@link #setKeyStoreFile(Path, String, char[], long)}.
+ * Certificates are held in an immutable snapshot that is replaced as a whole so readers are never blocked by a reload.
  */
 public class X509VerificationKeyResolver implements VerificationKeyResolver
 {
     private static final Logger log = LoggerFactory.getLogger(X509VerificationKeyResolver.class);
 
-    private Map<String,X509Certificate> x5tMap;
-    private Map<String,X509Certificate> x5tS256Map;
+    private static final String SUBJECT_KEY_IDENTIFIER_OID = "2.5.29.14";
+
+    private volatile Snapshot snapshot;
+
+    private volatile CertificateFile certificateFile;
 
     private boolean tryAllOnNoThumbHeader;
 
     public X509VerificationKeyResolver(List<X509Certificate> certificates)
     {
-        x5tMap = new LinkedHashMap<>();
-        x5tS256Map = new LinkedHashMap<>();
-
-        for (X509Certificate cert : certificates)
-        {
-            try
-            {
-                String x5t = X509Util.x5t(cert);
-                x5tMap.put(x5t, cert);
-
-                String x5tS256 = X509Util.x5tS256(cert);
-                x5tS256Map.put(x5tS256, cert);
-            }
-            catch (UncheckedJoseException e)
-            {
-                log.warn("Unable to get certificate thumbprint.", e);
-            }
-        }
+        snapshot = new Snapshot(certificates);
     }
 
     public X509VerificationKeyResolver(X509Certificate... certificates)
@@ -77,9 +85,93 @@ public class X509VerificationKeyResolver implements VerificationKeyResolver
         this.tryAllOnNoThumbHeader = tryAllOnNoThumbHeader;
     }
 
+    /**
+     * Replaces the set of certificates used to resolve keys.
+     * @param certificates the certificates
+     */
+    public void setCertificates(List<X509Certificate> certificates)
+    {
+        snapshot = new Snapshot(certificates);
+    }
+
+    /**
+     * Loads the certificates from a file with one or more PEM (or DER) encoded certificates. The file's
+     * modification time is checked, at most once per {@code checkInterval}, while resolving keys and
+     * the certificates are reloaded when it has changed.
+     * @param path the file
+     * @param checkInterval the minimum time in milliseconds between checks for modification
+     * @throws JoseException if the content of the file can't be read as certificates
+     * @throws IOException if there's a problem reading the file
+     */
+    public void setPemCertificateFile(Path path, long checkInterval) throws JoseException, IOException
+    {
+        setCertificateFile(new CertificateFile(path, checkInterval, new CertificateLoader()
+        {
+            @Override
+            public List<X509Certificate> load(Path path) throws JoseException, IOException
+            {
+                try (InputStream inputStream = Files.newInputStream(path))
+                {
+                    return X509Util.getX509Util(null).fromEncodedCertificates(inputStream);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Loads the certificates from a key store file. The file's modification time is checked,
+     * at most once per {@code checkInterval}, while resolving keys and the certificates are reloaded when it has changed.
+     * @param path the file
+     * @param keyStoreType the type of key store, such as "PKCS12" or "JKS"
+     * @param password the password used to check the integrity of the key store or {@code null}
+     * @param checkInterval the minimum time in milliseconds between checks for modification
+     * @throws JoseException if the key store can't be loaded
+     * @throws IOException if there's a problem reading the file
+     */
+    public void setKeyStoreFile(Path path, final String keyStoreType, final char[] password, long checkInterval)
+            throws JoseException, IOException
+    {
+        setCertificateFile(new CertificateFile(path, checkInterval, new CertificateLoader()
+        {
+            @Override
+            public List<X509Certificate> load(Path path) throws JoseException, IOException
+            {
+                try (InputStream inputStream = Files.newInputStream(path))
+                {
+                    KeyStore keyStore = KeyStore.getInstance(keyStoreType);
+                    keyStore.load(inputStream, password);
+                    List<X509Certificate> certificates = new ArrayList<>();
+                    for (String alias : Collections.list(keyStore.aliases()))
+                    {
+                        Certificate certificate = keyStore.getCertificate(alias);
+                        if (certificate instanceof X509Certificate)
+                        {
+                            certificates.add((X509Certificate) certificate);
+                        }
+                    }
+                    return certificates;
+                }
+                catch (GeneralSecurityException e)
+                {
+                    throw new JoseException("Unable to load " + keyStoreType + " key store from " + path + ": " + e, e);
+                }
+            }
+        }));
+    }
+
+    private void setCertificateFile(CertificateFile certificateFile) throws JoseException, IOException
+    {
+        certificateFile.lastModified = Files.getLastModifiedTime(certificateFile.path).toMillis();
+        snapshot = new Snapshot(certificateFile.loader.load(certificateFile.path));
+        certificateFile.nextCheck = System.currentTimeMillis() + certificateFile.checkInterval;
+        this.certificateFile = certificateFile;
+    }
+
     @Override
     public Key resolveKey(JsonWebSignature jws, List<JsonWebStructure> nestingContext) throws UnresolvableKeyException
     {
+        Snapshot snapshot = getSnapshot();
+
         String x5t = jws.getX509CertSha1ThumbprintHeaderValue();
         String x5tS256 = jws.getX509CertSha256ThumbprintHeaderValue();
 
@@ -87,15 +179,20 @@ public class X509VerificationKeyResolver implements VerificationKeyResolver
         {
             if (tryAllOnNoThumbHeader)
             {
-                return attemptAll(jws);
+                X509Certificate candidate = findCandidate(jws, snapshot);
+                if (candidate != null && verifies(jws, candidate.getPublicKey()))
+                {
+                    return candidate.getPublicKey();
+                }
+                return attemptAll(jws, snapshot, candidate);
             }
             throw new UnresolvableKeyException("Neither the " + X509_CERTIFICATE_THUMBPRINT + " header nor the " + X509_CERTIFICATE_SHA256_THUMBPRINT + " header are present in the JWS.");
         }
 
-        X509Certificate x509Certificate = x5tMap.get(x5t);
+        X509Certificate x509Certificate = snapshot.x5tMap.get(x5t);
         if (x509Certificate == null)
         {
-            x509Certificate = x5tS256Map.get(x5tS256);
+            x509Certificate = snapshot.x5tS256Map.get(x5tS256);
         }
 
         if (x509Certificate == null)
@@ -106,13 +203,13 @@ public class X509VerificationKeyResolver implements VerificationKeyResolver
             if (x5t != null)
             {
                 sb.append(" ").append(X509_CERTIFICATE_THUMBPRINT).append("=").append(x5t);
-                sb.append(" vs. SHA-1 thumbs:").append(x5tMap.keySet());
+                sb.append(" vs. SHA-1 thumbs:").append(snapshot.x5tMap.keySet());
             }
 
             if (x5tS256 != null)
             {
                 sb.append(" ").append(X509_CERTIFICATE_SHA256_THUMBPRINT).append("=").append(x5tS256);
-                sb.append(" vs. SHA-256 thumbs:").append(x5tS256Map.keySet());
+                sb.append(" vs. SHA-256 thumbs:").append(snapshot.x5tS256Map.keySet());
             }
 
             sb.append(".");
@@ -122,29 +219,217 @@ public class X509VerificationKeyResolver implements VerificationKeyResolver
         return x509Certificate.getPublicKey();
     }
 
-    private Key attemptAll(JsonWebSignature jws) throws UnresolvableKeyException
+    private Snapshot getSnapshot()
     {
-        for (X509Certificate certificate : x5tMap.values())
+        CertificateFile file = certificateFile;
+        if (file != null && System.currentTimeMillis() >= file.nextCheck && file.reloading.compareAndSet(false, true))
         {
-            PublicKey publicKey = certificate.getPublicKey();
-            jws.setKey(publicKey);
-
+            // only one thread checks/reloads while any others carry on with the current snapshot
             try
             {
-                if (jws.verifySignature())
+                file.nextCheck = System.currentTimeMillis() + file.checkInterval;
+                long lastModified = Files.getLastModifiedTime(file.path).toMillis();
+                if (lastModified != file.lastModified)
                 {
-                    return publicKey;
+                    log.debug("Reloading certificates from {}", file.path);
+                    snapshot = new Snapshot(file.loader.load(file.path));
+                    file.lastModified = lastModified;
                 }
             }
-            catch (JoseException e)
+            catch (JoseException | IOException e)
+            {
+                log.warn("Unable to reload certificates from {} so will continue using the current ones: {}", file.path, ExceptionHelp.toStringWithCauses(e));
+            }
+            finally
             {
-                log.debug("Verify signature didn't work: {}", ExceptionHelp.toStringWithCauses(e));
+                file.reloading.set(false);
+            }
+        }
+        return snapshot;
+    }
+
+    private X509Certificate findCandidate(JsonWebSignature jws, Snapshot snapshot)
+    {
+        String kid = jws.getKeyIdHeaderValue();
+        if (kid != null)
+        {
+            X509Certificate certificate = snapshot.skiMap.get(kid);
+            if (certificate == null)
+            {
+                certificate = snapshot.spkiS256Map.get(kid);
+            }
+
+            if (certificate != null)
+            {
+                return certificate;
+            }
+        }
+
+        try
+        {
+            X509Certificate leaf = jws.getLeafCertificateHeaderValue();
+            if (leaf != null)
+            {
+                return snapshot.spkiS256Map.get(spkiS256(leaf.getPublicKey()));
+            }
+
+            PublicJsonWebKey jwk = jws.getJwkHeader();
+            if (jwk != null)
+            {
+                return snapshot.spkiS256Map.get(spkiS256(jwk.getPublicKey()));
+            }
+        }
+        catch (JoseException e)
+        {
+            log.debug("Unable to use the x5c or jwk header to identify a certificate: {}", ExceptionHelp.toStringWithCauses(e));
+        }
+
+        return null;
+    }
+
+    private Key attemptAll(JsonWebSignature jws, Snapshot snapshot, X509Certificate alreadyTried) throws UnresolvableKeyException
+    {
+        for (X509Certificate certificate : snapshot.x5tMap.values())
+        {
+            PublicKey publicKey = certificate.getPublicKey();
+            if (certificate != alreadyTried && verifies(jws, publicKey))
+            {
+                return publicKey;
             }
         }
         StringBuilder sb = new StringBuilder();
         sb.append("Unable to verify the signature with any of the provided keys - SHA-1 thumbs of provided certificates: ");
-        sb.append(x5tMap.keySet());
+        sb.append(snapshot.x5tMap.keySet());
         sb.append(".");
         throw new UnresolvableKeyException(sb.toString());
     }
+
+    private boolean verifies(JsonWebSignature jws, PublicKey publicKey)
+    {
+        jws.setKey(publicKey);
+        try
+        {
+            return jws.verifySignature();
+        }
+        catch (JoseException e)
+        {
+            log.debug("Verify signature didn't work: {}", ExceptionHelp.toStringWithCauses(e));
+            return false;
+        }
+    }
+
+    static String spkiS256(PublicKey publicKey)
+    {
+        byte[] digest = HashUtil.getMessageDigest(HashUtil.SHA_256).digest(publicKey.getEncoded());
+        return Base64Url.encode(digest);
+    }
+
+    static String subjectKeyIdentifier(X509Certificate certificate)
+    {
+        // the extension value is a DER OCTET STRING that wraps the DER encoded OCTET STRING of the key identifier
+        byte[] extensionValue = certificate.getExtensionValue(SUBJECT_KEY_IDENTIFIER_OID);
+        if (extensionValue == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            int[] position = {0};
+            readOctetStringHeader(extensionValue, position);
+            int length = readOctetStringHeader(extensionValue, position);
+            if (position[0] + length > extensionValue.length)
+            {
+                return null;
+            }
+            return Base64Url.encode(Arrays.copyOfRange(extensionValue, position[0], position[0] + length));
+        }
+        catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e)
+        {
+            log.debug("Unable to read the subject key identifier of {}: {}", certificate.getSubjectX500Principal(), e.toString());
+            return null;
+        }
+    }
+
+    private static int readOctetStringHeader(byte[] der, int[] position)
+    {
+        if (der[position[0]++] != 0x04)
+        {
+            throw new IllegalArgumentException("not an OCTET STRING");
+        }
+
+        int length = der[position[0]++] & 0xff;
+        if (length > 0x7f)
+        {
+            int numberOfLengthBytes = length & 0x7f;
+            if (numberOfLengthBytes > 3)
+            {
+                throw new IllegalArgumentException("unreasonable length");
+            }
+
+            length = 0;
+            for (int i = 0; i < numberOfLengthBytes; i++)
+            {
+                length = (length << 8) | (der[position[0]++] & 0xff);
+            }
+        }
+        return length;
+    }
+
+    private static class Snapshot
+    {
+        private final Map<String,X509Certificate> x5tMap = new LinkedHashMap<>();
+        private final Map<String,X509Certificate> x5tS256Map = new HashMap<>();
+        private final Map<String,X509Certificate> spkiS256Map = new HashMap<>();
+        private final Map<String,X509Certificate> skiMap = new HashMap<>();
+
+        private Snapshot(List<X509Certificate> certificates)
+        {
+            for (X509Certificate cert : certificates)
+            {
+                try
+                {
+                    String x5t = X509Util.x5t(cert);
+                    x5tMap.put(x5t, cert);
+
+                    String x5tS256 = X509Util.x5tS256(cert);
+                    x5tS256Map.put(x5tS256, cert);
+                }
+                catch (UncheckedJoseException e)
+                {
+                    log.warn("Unable to get certificate thumbprint.", e);
+                }
+
+                spkiS256Map.put(spkiS256(cert.getPublicKey()), cert);
+
+                String ski = subjectKeyIdentifier(cert);
+                if (ski != null)
+                {
+                    skiMap.put(ski, cert);
+                }
+            }
+        }
+    }
+
+    private interface CertificateLoader
+    {
+        List<X509Certificate> load(Path path) throws JoseException, IOException;
+    }
+
+    private static class CertificateFile
+    {
+        private final Path path;
+        private final long checkInterval;
+        private final CertificateLoader loader;
+        private final AtomicBoolean reloading = new AtomicBoolean();
+        private volatile long nextCheck;
+        private volatile long lastModified;
+
+        private CertificateFile(Path path, long checkInterval, CertificateLoader loader)
+        {
+            this.path = path;
+            this.checkInterval = checkInterval;
+            this.loader = loader;
+        }
+    }
 }
@@ -16,9 +16,11 @@
 
 package org.jose4j.mac;
 
+import org.jose4j.jca.InstancePool;
 import org.jose4j.lang.JoseException;
 
 import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import java.security.InvalidKeyException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
@@ -32,6 +34,12 @@ public class MacUtil
     public static final String HMAC_SHA384 = "HmacSHA384";
     public static final String HMAC_SHA512 = "HmacSHA512";
 
+    // Mac instances aren't thread safe but can be reinitialized and reused so they're pooled by algorithm and provider
+    private static final InstancePool<Mac> MAC_POOL = new InstancePool<>();
+
+    // pooled Macs are re-keyed with this before going back in the pool as reset() alone keeps the key
+    private static final byte[] THROWAWAY_KEY_BYTES = new byte[32];
+
     public static Mac getInitializedMac(String algorithm, Key key) throws JoseException
     {
         return getInitializedMac(algorithm, key, null);
@@ -76,4 +84,50 @@ public class MacUtil
             throw new org.jose4j.lang.InvalidKeyException("Key is not valid for " + mac.getAlgorithm() + " - " + e, e);
         }
     }
+
+    /**
+     * Takes a Mac out of a shared pool, or gets a new one if none are available, and initializes it with the key.
+     * The Mac should be given back with {@link #releaseMac(String, String, Mac)} when the caller is done with it.
+     * @param algorithm the MAC algorithm name
+     * @param key the key
+     * @param provider the provider name or {@code null}
+     * @return the initialized Mac
+     * @throws JoseException if the Mac can't be obtained or the key isn't valid
+     */
+    public static Mac takeInitializedMac(String algorithm, Key key, String provider) throws JoseException
+    {
+        Mac mac = MAC_POOL.take(InstancePool.key(algorithm, provider));
+        if (mac == null)
+        {
+            mac = getMac(algorithm, provider);
+        }
+        initMacWithKey(mac, key);
+        return mac;
+    }
+
+    /**
+     * Gives a Mac obtained from {@link #takeInitializedMac(String, Key, String)} back to the shared pool.
+     * It's first initialized with a throwaway key so the pool doesn't keep the caller's key reachable, which is
+     * the same as for the pooled content encryption ciphers (only instances pooled by the identity of a long-lived key,
+     * with {@link org.jose4j.jca.KeyedInstancePool}, keep their key).
+     * @param algorithm the MAC algorithm name it was taken with
+     * @param provider the provider name it was taken with
+     * @param mac the Mac, which must not be used by the caller afterwards
+     */
+    public static void releaseMac(String algorithm, String provider, Mac mac)
+    {
+        if (mac != null)
+        {
+            try
+            {
+                mac.init(new SecretKeySpec(THROWAWAY_KEY_BYTES, mac.getAlgorithm()));
+            }
+            catch (InvalidKeyException | RuntimeException e)
+            {
+                // it's just not put back then
+                return;
+            }
+            MAC_POOL.release(InstancePool.key(algorithm, provider), mac);
+        }
+    }
 }
@@ -0,0 +1,44 @@
+package org.jose4j.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the rest of the library from ever touching the jdk.jfr API, which older Java 8 runtimes don't have.
+ * Only when the API is there does {@link JoseOperationEvent}, and with it jdk.jfr, get loaded.
+ */
+final class FlightRecorderSupport
+{
+    private static final Logger log = LoggerFactory.getLogger(FlightRecorderSupport.class);
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private FlightRecorderSupport()
+    {
+    }
+
+    private static boolean isAvailable()
+    {
+        try
+        {
+            Class.forName("jdk.jfr.Event");
+            JoseOperationEvent.isTypeEnabled();
+            return true;
+        }
+        catch (Throwable t)
+        {
+            log.debug("Java Flight Recorder events won't be emitted as JFR isn't available: {}", t.toString());
+            return false;
+        }
+    }
+
+    static Object begin()
+    {
+        return AVAILABLE ? JoseOperationEvent.beginIfEnabled() : null;
+    }
+
+    static void commit(Object event, JoseMetrics.Operation operation, String tag, boolean success, long inputSize, long outputSize)
+    {
+        JoseOperationEvent.commit(event, operation, tag, success, inputSize, outputSize);
+    }
+}
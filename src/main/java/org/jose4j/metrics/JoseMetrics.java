@@ -0,0 +1,68 @@
+package org.jose4j.metrics;
+
+/**
+ * A service provider interface through which the library reports how long various operations take and
+ * how often some things happen, so that they can be fed to whatever metrics system an application uses.
+ * Nothing is reported unless an implementation is set with {@link Metrics#setJoseMetrics(JoseMetrics)}.
+ * Implementations are called inline on the thread doing the work, so need to be thread safe and cheap.
+ * The same operations are also emitted as Java Flight Recorder events (named {@code org.jose4j.Operation})
+ * when running on a JVM with JFR and the event is enabled in the recording.
+ */
+public interface JoseMetrics
+{
+    /**
+     * The operations that are timed.
+     */
+    enum Operation
+    {
+        /** the whole of JwtConsumer processing, tagged with the algorithm of the outer most JOSE object */
+        JWT_PROCESSING,
+        /** parsing the JOSE objects and the claims of a JWT, tagged with the algorithm when known */
+        PARSE,
+        /** resolving the verification or decryption key, tagged with the algorithm */
+        KEY_RESOLUTION,
+        /** JWS signature/MAC verification, tagged with the algorithm */
+        SIGNATURE_VERIFICATION,
+        /** JWS signing, tagged with the algorithm */
+        SIGNING,
+        /** JWE decryption, tagged with the key management algorithm */
+        DECRYPTION,
+        /** JWE encryption, tagged with the key management algorithm */
+        ENCRYPTION,
+        /** decompressing the plaintext of a JWE, tagged with the compression algorithm */
+        DECOMPRESSION,
+        /** validating the claims of a JWT, untagged */
+        CLAIMS_VALIDATION,
+        /** refreshing the content of a JWKS endpoint, tagged with its location */
+        JWKS_REFRESH,
+        /** an HTTP GET, tagged with the location */
+        HTTP_GET
+    }
+
+    /**
+     * The events that are counted.
+     */
+    enum Event
+    {
+        /** keys for a JWKS endpoint came from the cache, tagged with its location */
+        JWKS_CACHE_HIT,
+        /** keys for a JWKS endpoint weren't cached or had expired, tagged with its location */
+        JWKS_CACHE_MISS
+    }
+
+    /**
+     * Records the time an operation took.
+     * @param operation the operation
+     * @param tag the algorithm or location the operation was for, which might be null
+     * @param success whether the operation succeeded (i.e. didn't throw an exception and, for verification, the signature was good)
+     * @param nanos the time taken in nanoseconds
+     */
+    void recordTime(Operation operation, String tag, boolean success, long nanos);
+
+    /**
+     * Records the occurrence of an event.
+     * @param event the event
+     * @param tag the location the event was for
+     */
+    void increment(Event event, String tag);
+}
@@ -0,0 +1,72 @@
+package org.jose4j.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Java Flight Recorder event for the operations timed by {@link Timing}.
+ * The event's own start time and duration place the operation on the JVM timeline.
+ */
+@Name("org.jose4j.Operation")
+@Label("JOSE Operation")
+@Category("jose4j")
+@Description("A JOSE/JWT operation like signature verification, decryption, key resolution or a JWKS refresh")
+@StackTrace(false)
+class JoseOperationEvent extends Event
+{
+    private static final EventType EVENT_TYPE = EventType.getEventType(JoseOperationEvent.class);
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Algorithm or Location")
+    String tag;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Input Size")
+    @DataAmount
+    long inputSize;
+
+    @Label("Output Size")
+    @DataAmount
+    long outputSize;
+
+    static boolean isTypeEnabled()
+    {
+        return EVENT_TYPE.isEnabled();
+    }
+
+    static Object beginIfEnabled()
+    {
+        if (!EVENT_TYPE.isEnabled())
+        {
+            return null;
+        }
+        JoseOperationEvent event = new JoseOperationEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commit(Object e, JoseMetrics.Operation operation, String tag, boolean success, long inputSize, long outputSize)
+    {
+        JoseOperationEvent event = (JoseOperationEvent) e;
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.operation = operation.name();
+            event.tag = tag;
+            event.success = success;
+            event.inputSize = inputSize;
+            event.outputSize = outputSize;
+            event.commit();
+        }
+    }
+}
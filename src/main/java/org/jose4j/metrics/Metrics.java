@@ -0,0 +1,33 @@
+package org.jose4j.metrics;
+
+/**
+ * Holds the {@link JoseMetrics} implementation, if any, that the library reports to.
+ * The instrumented code gets nothing but a null {@link Timing} when no implementation is set
+ * (and the Flight Recorder event isn't enabled), so then the reporting costs a couple of flag checks and nothing else.
+ */
+public final class Metrics
+{
+    private static volatile JoseMetrics joseMetrics;
+
+    private Metrics()
+    {
+    }
+
+    /**
+     * Sets the implementation to report to.
+     * @param joseMetrics the implementation or null to stop reporting
+     */
+    public static void setJoseMetrics(JoseMetrics joseMetrics)
+    {
+        Metrics.joseMetrics = joseMetrics;
+    }
+
+    /**
+     * Gets the implementation to report to.
+     * @return the implementation or null, if reporting is off
+     */
+    public static JoseMetrics get()
+    {
+        return joseMetrics;
+    }
+}
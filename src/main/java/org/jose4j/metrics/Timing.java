@@ -0,0 +1,82 @@
+package org.jose4j.metrics;
+
+/**
+ * Times a single operation for whichever of {@link JoseMetrics} and Java Flight Recorder are listening.
+ * {@link #start(JoseMetrics.Operation)} returns null, having allocated nothing and not read the clock,
+ * when neither is, so instrumented code looks like this:
+ * <pre>
+ * Timing timing = Timing.start(JoseMetrics.Operation.DECRYPTION);
+ * boolean success = false;
+ * try
+ * {
+ *     ...
+ *     success = true;
+ * }
+ * finally
+ * {
+ *     if (timing != null)
+ *     {
+ *         timing.end(alg, success);
+ *     }
+ * }
+ * </pre>
+ */
+public final class Timing
+{
+    private final JoseMetrics.Operation operation;
+    private final JoseMetrics metrics;
+    private final Object event;
+    private final long start;
+
+    private long inputSize = -1;
+    private long outputSize = -1;
+
+    private Timing(JoseMetrics.Operation operation, JoseMetrics metrics, Object event)
+    {
+        this.operation = operation;
+        this.metrics = metrics;
+        this.event = event;
+        this.start = (metrics == null) ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Starts timing an operation.
+     * @param operation the operation
+     * @return the timing or null, if nothing is listening
+     */
+    public static Timing start(JoseMetrics.Operation operation)
+    {
+        JoseMetrics metrics = Metrics.get();
+        Object event = FlightRecorderSupport.begin();
+        return (metrics == null && event == null) ? null : new Timing(operation, metrics, event);
+    }
+
+    /**
+     * Sets the sizes, in bytes, of what the operation took in and put out, which go with the Flight Recorder event.
+     * @param inputSize the input size
+     * @param outputSize the output size
+     */
+    public void setSizes(long inputSize, long outputSize)
+    {
+        this.inputSize = inputSize;
+        this.outputSize = outputSize;
+    }
+
+    /**
+     * Ends the timing and reports it.
+     * @param tag the algorithm or location the operation was for
+     * @param success whether the operation succeeded
+     */
+    public void end(String tag, boolean success)
+    {
+        if (metrics != null)
+        {
+            metrics.recordTime(operation, tag, success, System.nanoTime() - start);
+        }
+
+        if (event != null)
+        {
+            FlightRecorderSupport.commit(event, operation, tag, success, inputSize, outputSize);
+        }
+    }
+}
@@ -16,19 +16,22 @@
 
 package org.jose4j.zip;
 
+import org.jose4j.jca.InstancePool;
 import org.jose4j.keys.KeyPersuasion;
 import org.jose4j.lang.JoseException;
-import org.jose4j.lang.UncheckedJoseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
+import java.util.zip.DeflaterInputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
+import java.util.zip.InflaterOutputStream;
 
 /**
  */
@@ -36,8 +39,24 @@ public class DeflateRFC1951CompressionAlgorithm implements CompressionAlgorithm
 {
     private static final Logger log = LoggerFactory.getLogger(DeflateRFC1951CompressionAlgorithm.class);
     public static final String DECOMPRESS_MAX_BYTES_PROPERTY_NAME = "org.jose4j.zip.decompress-max-bytes";
+    public static final String COMPRESSION_LEVEL_PROPERTY_NAME = "org.jose4j.zip.compression-level";
+    public static final String STREAM_DECOMPRESS_MAX_BYTES_PROPERTY_NAME = "org.jose4j.zip.stream-decompress-max-bytes";
+
+    // 256 MiB, the decompressed data isn't held in memory when streaming but it still shouldn't be unbounded
+    public static final long DEFAULT_STREAM_DECOMPRESS_MAX_BYTES = 268435456L;
+
+    // what's always been used, which is a hair above zlib's own default of 6
+    public static final int DEFAULT_COMPRESSION_LEVEL = 8;
+
+    private static final int MIN_BUFFER_SIZE = 1024;
+
+    private static final InstancePool<Deflater> DEFLATER_POOL = new InstancePool<>();
+    private static final InstancePool<Inflater> INFLATER_POOL = new InstancePool<>();
+    private static final String INFLATER_POOL_KEY = InstancePool.key("nowrap");
 
     private int maxDecompressedBytes = 204800;
+    private long maxStreamDecompressedBytes = DEFAULT_STREAM_DECOMPRESS_MAX_BYTES;
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
 
     public DeflateRFC1951CompressionAlgorithm()
     {
@@ -52,60 +71,263 @@ public class DeflateRFC1951CompressionAlgorithm implements CompressionAlgorithm
                     "because the system property " + DECOMPRESS_MAX_BYTES_PROPERTY_NAME + " contains an invalid value: " + e);
         }
 
+        property = System.getProperty(STREAM_DECOMPRESS_MAX_BYTES_PROPERTY_NAME);
+        if (property != null)
+        {
+            try
+            {
+                maxStreamDecompressedBytes = Long.parseLong(property);
+            }
+            catch (NumberFormatException e)
+            {
+                log.debug("Using the default value of "+maxStreamDecompressedBytes+" for the maximum allowed size of streamed decompressed data " +
+                        "because the system property " + STREAM_DECOMPRESS_MAX_BYTES_PROPERTY_NAME + " contains an invalid value: " + e);
+            }
+        }
+
+        property = System.getProperty(COMPRESSION_LEVEL_PROPERTY_NAME);
+        if (property != null)
+        {
+            try
+            {
+                setCompressionLevel(Integer.parseInt(property));
+            }
+            catch (IllegalArgumentException e)
+            {
+                log.debug("Using the default compression level because the system property " + COMPRESSION_LEVEL_PROPERTY_NAME
+                        + " contains an invalid value: " + e);
+            }
+        }
+
         log.debug("");
     }
 
-    public byte[] compress(byte[] data)
+    /**
+     * @param compressionLevel the compression level, 0-9 or -1 for the zlib default (see {@link Deflater#setLevel(int)}),
+     *                         which trades compression ratio for CPU time
+     */
+    public DeflateRFC1951CompressionAlgorithm(int compressionLevel)
     {
-        Deflater deflater = new Deflater(Deflater.DEFLATED, true);
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-             DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(byteArrayOutputStream, deflater))
+        this();
+        setCompressionLevel(compressionLevel);
+    }
+
+    private void setCompressionLevel(int compressionLevel)
+    {
+        if ((compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) && compressionLevel != Deflater.DEFAULT_COMPRESSION)
         {
-            deflaterOutputStream.write(data);
-            deflaterOutputStream.finish();
-            return byteArrayOutputStream.toByteArray();
+            throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
         }
-        catch (IOException e)
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getCompressionLevel()
+    {
+        return compressionLevel;
+    }
+
+    public byte[] compress(byte[] data)
+    {
+        Deflater deflater = takeDeflater();
+        try
         {
-            throw new UncheckedJoseException("Problem compressing data.", e);
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(MIN_BUFFER_SIZE, data.length / 2)];
+            int length = 0;
+            while (!deflater.finished())
+            {
+                if (length == buffer.length)
+                {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return (length == buffer.length) ? buffer : Arrays.copyOf(buffer, length);
         }
         finally
         {
-            deflater.end();
+            releaseDeflater(deflater);
         }
     }
 
     public byte[] decompress(byte[] compressedData) throws JoseException
     {
-        Inflater inflater = new Inflater(true);
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-
-        try (InflaterInputStream iis = new InflaterInputStream(new ByteArrayInputStream(compressedData), inflater))
+        Inflater inflater = takeInflater();
+        try
         {
-            int bytesRead;
-            byte[] buff = new byte[256];
-            while ((bytesRead = iis.read(buff)) != -1)
+            inflater.setInput(compressedData);
+
+            // the output only grows as far as one byte past the limit, which is enough to know it's been exceeded
+            int limit = (maxDecompressedBytes == Integer.MAX_VALUE) ? maxDecompressedBytes : maxDecompressedBytes + 1;
+            int initialSize = (int) Math.min(limit, Math.max(MIN_BUFFER_SIZE, compressedData.length * 4L));
+            byte[] buffer = new byte[Math.max(initialSize, 0)];
+            int length = 0;
+            while (!inflater.finished())
             {
-                byteArrayOutputStream.write(buff, 0, bytesRead);
-                if (byteArrayOutputStream.size() > maxDecompressedBytes)
+                if (length == buffer.length)
                 {
-                    throw new JoseException("Maximum allowed size of decompressed data exceeded (which is "
-                            +maxDecompressedBytes+" bytes but configurable with the "+ DECOMPRESS_MAX_BYTES_PROPERTY_NAME +" system property)");
+                    if (length >= limit)
+                    {
+                        throw new JoseException("Maximum allowed size of decompressed data exceeded (which is "
+                                +maxDecompressedBytes+" bytes but configurable with the "+ DECOMPRESS_MAX_BYTES_PROPERTY_NAME +" system property)");
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(limit, buffer.length * 2L));
                 }
+
+                int inflated = inflater.inflate(buffer, length, buffer.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    throw new JoseException("Problem decompressing data: unexpected end of the compressed data.");
+                }
+                length += inflated;
+            }
+
+            if (length > maxDecompressedBytes)
+            {
+                throw new JoseException("Maximum allowed size of decompressed data exceeded (which is "
+                        +maxDecompressedBytes+" bytes but configurable with the "+ DECOMPRESS_MAX_BYTES_PROPERTY_NAME +" system property)");
             }
 
-            return byteArrayOutputStream.toByteArray();
+            return (length == buffer.length) ? buffer : Arrays.copyOf(buffer, length);
         }
-        catch (IOException e)
+        catch (DataFormatException e)
         {
             throw new JoseException("Problem decompressing data.", e);
         }
         finally
         {
-            inflater.end();
+            releaseInflater(inflater);
         }
     }
 
+    private Deflater takeDeflater()
+    {
+        Deflater deflater = DEFLATER_POOL.take(deflaterPoolKey());
+        return (deflater == null) ? new Deflater(compressionLevel, true) : deflater;
+    }
+
+    private void releaseDeflater(Deflater deflater)
+    {
+        deflater.reset();
+        DEFLATER_POOL.release(deflaterPoolKey(), deflater);
+    }
+
+    private String deflaterPoolKey()
+    {
+        return InstancePool.key("nowrap", String.valueOf(compressionLevel));
+    }
+
+    private Inflater takeInflater()
+    {
+        Inflater inflater = INFLATER_POOL.take(INFLATER_POOL_KEY);
+        return (inflater == null) ? new Inflater(true) : inflater;
+    }
+
+    private void releaseInflater(Inflater inflater)
+    {
+        inflater.reset();
+        INFLATER_POOL.release(INFLATER_POOL_KEY, inflater);
+    }
+
+    /**
+     * Wraps a stream of data so that reading from the returned stream gives the compressed data.
+     * Closing the returned stream releases the compressor but doesn't close the given stream.
+     * @param data the uncompressed data
+     * @return a stream of the compressed data
+     */
+    public InputStream compressing(InputStream data)
+    {
+        final Deflater deflater = takeDeflater();
+        return new DeflaterInputStream(data, deflater)
+        {
+            private boolean closed;
+
+            @Override
+            public void close()
+            {
+                if (!closed)
+                {
+                    closed = true;
+                    releaseDeflater(deflater);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps a stream so that compressed data written to the returned stream is decompressed and written to it.
+     * The decompressed data isn't held in memory so, rather than the limit of {@link #decompress(byte[])}, its size is
+     * limited by the {@value #STREAM_DECOMPRESS_MAX_BYTES_PROPERTY_NAME} system property, 256 MiB by default. Writing
+     * data that decompresses to more than that throws an IOException, after the data up to the limit has been written.
+     * Closing the returned stream finishes writing the decompressed data and releases the decompressor but doesn't
+     * close the given stream.
+     * @param decompressed where the decompressed data goes
+     * @return the stream to write the compressed data to
+     */
+    public OutputStream decompressing(final OutputStream decompressed)
+    {
+        final Inflater inflater = takeInflater();
+        OutputStream limited = new FilterOutputStream(decompressed)
+        {
+            private long written;
+
+            @Override
+            public void write(int b) throws IOException
+            {
+                count(1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException
+            {
+                count(length);
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                flush();
+            }
+
+            private void count(int length) throws IOException
+            {
+                written += length;
+                if (written > maxStreamDecompressedBytes)
+                {
+                    throw new IOException("Maximum allowed size of streamed decompressed data exceeded (which is "
+                            +maxStreamDecompressedBytes+" bytes but configurable with the "+ STREAM_DECOMPRESS_MAX_BYTES_PROPERTY_NAME +" system property)");
+                }
+            }
+        };
+
+        return new InflaterOutputStream(limited, inflater)
+        {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException
+            {
+                if (closed)
+                {
+                    return;
+                }
+
+                closed = true;
+                try
+                {
+                    finish();
+                }
+                finally
+                {
+                    releaseInflater(inflater);
+                }
+            }
+        };
+    }
+
     @Override
     public String getJavaAlgorithm()
     {
@@ -0,0 +1,132 @@
+package org.jose4j.jca;
+
+import org.jose4j.jwe.ContentEncryptionAlgorithmIdentifiers;
+import org.jose4j.jwe.JsonWebEncryption;
+import org.jose4j.jwe.KeyManagementAlgorithmIdentifiers;
+import org.jose4j.jwk.EcJwkGenerator;
+import org.jose4j.jwk.PublicJsonWebKey;
+import org.jose4j.jwx.HeaderParameterNames;
+import org.jose4j.jwx.JsonWebStructure;
+import org.jose4j.keys.EllipticCurves;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EphemeralKeyPairPoolTest
+{
+    private static final Executor SAME_THREAD = new Executor()
+    {
+        @Override
+        public void execute(Runnable command)
+        {
+            command.run();
+        }
+    };
+
+    @Test
+    public void keyPairsAreOnlyUsedOnce()
+    {
+        EphemeralKeyPairPool pool = new EphemeralKeyPairPool(4, SAME_THREAD);
+        pool.prefill(EllipticCurves.P_256);
+        assertEquals(4, pool.size(EllipticCurves.P_256));
+
+        Set<KeyPair> taken = new HashSet<>();
+        for (int i = 0; i < 20; i++)
+        {
+            KeyPair keyPair = pool.take(EllipticCurves.P_256);
+            assertNotNull(keyPair);
+            assertTrue(taken.add(keyPair));
+        }
+    }
+
+    @Test
+    public void emptyWithoutExecutorProgress()
+    {
+        EphemeralKeyPairPool pool = new EphemeralKeyPairPool(4, new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                // never runs
+            }
+        });
+        assertNull(pool.take(EllipticCurves.P_521));
+        assertEquals(0, pool.size(EllipticCurves.P_521));
+    }
+
+    @Test
+    public void usedForEcdhEsEncryption() throws Exception
+    {
+        // fills only when the queued tasks are run, so that what's taken out of the pool shows in its size
+        final List<Runnable> tasks = new ArrayList<>();
+        EphemeralKeyPairPool pool = new EphemeralKeyPairPool(8, new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                tasks.add(command);
+            }
+        });
+        pool.prefill(EllipticCurves.P_256);
+        tasks.remove(0).run();
+        assertEquals(8, pool.size(EllipticCurves.P_256));
+
+        ProviderContext providerContext = new ProviderContext();
+        providerContext.setEphemeralKeyPairPool(pool);
+
+        PublicJsonWebKey receiverJwk = EcJwkGenerator.generateJwk(EllipticCurves.P256);
+        Set<String> epks = new HashSet<>();
+        for (int i = 0; i < 5; i++)
+        {
+            JsonWebEncryption jwe = new JsonWebEncryption();
+            jwe.setProviderContext(providerContext);
+            jwe.setAlgorithmHeaderValue(KeyManagementAlgorithmIdentifiers.ECDH_ES);
+            jwe.setEncryptionMethodHeaderParameter(ContentEncryptionAlgorithmIdentifiers.AES_128_GCM);
+            jwe.setKey(receiverJwk.getPublicKey());
+            jwe.setPayload("pooled " + i);
+            String cs = jwe.getCompactSerialization();
+
+            JsonWebEncryption decrypting = (JsonWebEncryption) JsonWebStructure.fromCompactSerialization(cs);
+            decrypting.setKey(receiverJwk.getPrivateKey());
+            assertEquals("pooled " + i, decrypting.getPayload());
+            assertTrue(epks.add(decrypting.getHeaders().getPublicJwkHeaderValue(HeaderParameterNames.EPHEMERAL_PUBLIC_KEY, null).toJson()));
+            assertEquals(8 - (i + 1), pool.size(EllipticCurves.P_256));
+        }
+    }
+
+    @Test
+    public void defaultPoolsShareOneBackgroundThread() throws Exception
+    {
+        for (int i = 0; i < 10; i++)
+        {
+            EphemeralKeyPairPool pool = new EphemeralKeyPairPool();
+            pool.prefill(EllipticCurves.P_256);
+            for (int j = 0; j < 100 && pool.size(EllipticCurves.P_256) == 0; j++)
+            {
+                Thread.sleep(10);
+            }
+            assertTrue(pool.size(EllipticCurves.P_256) > 0);
+        }
+
+        int threads = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+        {
+            if (thread.getName().equals("jose4j-ephemeral-key-pair-pool"))
+            {
+                assertTrue(thread.isDaemon());
+                threads++;
+            }
+        }
+        assertEquals(1, threads);
+    }
+}
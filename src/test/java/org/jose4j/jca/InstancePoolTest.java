@@ -0,0 +1,50 @@
+package org.jose4j.jca;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class InstancePoolTest
+{
+    @Test
+    public void takeAndRelease()
+    {
+        InstancePool<Object> pool = new InstancePool<>();
+        String key = InstancePool.key("RSA", null);
+        assertNull(pool.take(key));
+
+        Object instance = new Object();
+        pool.release(key, instance);
+        assertNull(pool.take(InstancePool.key("RSA", "SunRsaSign")));
+        assertSame(instance, pool.take(key));
+        assertNull(pool.take(key));
+    }
+
+    @Test
+    public void idleInstancesAreBounded()
+    {
+        InstancePool<Object> pool = new InstancePool<>(2);
+        String key = InstancePool.key("EC");
+        pool.release(key, new Object());
+        pool.release(key, new Object());
+        pool.release(key, new Object());
+
+        int count = 0;
+        while (pool.take(key) != null)
+        {
+            count++;
+        }
+        assertEquals(2, count);
+    }
+
+    @Test
+    public void keysDistinguishParts()
+    {
+        assertEquals(InstancePool.key("a", null), InstancePool.key("a", null));
+        assertNotEquals(InstancePool.key("a", null), InstancePool.key("a", "b"));
+        assertNotEquals(InstancePool.key("ab", null), InstancePool.key("a", "b"));
+    }
+}
@@ -0,0 +1,59 @@
+package org.jose4j.jca;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.jose4j.keys.AesKey;
+import org.junit.Test;
+
+public class KeyedInstancePoolTest
+{
+    @Test
+    public void takeAndReleaseByKeyIdentity()
+    {
+        KeyedInstancePool<Object> pool = new KeyedInstancePool<>();
+        AesKey key = new AesKey(new byte[16]);
+        AesKey equalKey = new AesKey(new byte[16]);
+        assertNull(pool.take(key, "AES"));
+
+        Object instance = new Object();
+        pool.release(key, "AES", instance);
+        assertNull(pool.take(equalKey, "AES"));
+        assertNull(pool.take(key, "AES|SunJCE"));
+        assertSame(instance, pool.take(key, "AES"));
+        assertNull(pool.take(key, "AES"));
+    }
+
+    @Test
+    public void distinctKeysAreBounded()
+    {
+        KeyedInstancePool<Object> pool = new KeyedInstancePool<>(3, 2);
+        AesKey first = new AesKey(new byte[16]);
+        Object instance = new Object();
+        pool.release(first, "AES", instance);
+        for (int i = 0; i < 100; i++)
+        {
+            pool.release(new AesKey(new byte[16]), "AES", new Object());
+            assertEquals(Math.min(i + 2, 3), pool.keyCount());
+        }
+        assertNull(pool.take(first, "AES"));
+    }
+
+    @Test
+    public void leastRecentlyUsedKeyIsEvicted()
+    {
+        KeyedInstancePool<Object> pool = new KeyedInstancePool<>(2, 2);
+        AesKey a = new AesKey(new byte[16]);
+        AesKey b = new AesKey(new byte[16]);
+        Object instance = new Object();
+        pool.release(a, "AES", instance);
+        pool.release(b, "AES", new Object());
+        pool.take(a, "AES");
+        pool.release(a, "AES", instance);
+        pool.release(new AesKey(new byte[16]), "AES", new Object());
+
+        assertNull(pool.take(b, "AES"));
+        assertSame(instance, pool.take(a, "AES"));
+    }
+}
@@ -17,8 +17,20 @@
 package org.jose4j.jwa;
 
 import junit.framework.TestCase;
+import org.jose4j.jwe.ContentEncryptionAlgorithmIdentifiers;
+import org.jose4j.jwe.KeyManagementAlgorithmIdentifiers;
+import org.jose4j.jws.AlgorithmIdentifiers;
 import org.jose4j.jws.JsonWebSignatureAlgorithm;
+import org.jose4j.jwx.HeaderParameterNames;
+import org.jose4j.lang.InvalidAlgorithmException;
 import org.jose4j.lang.JoseException;
+import org.jose4j.zip.CompressionAlgorithm;
+import org.jose4j.zip.CompressionAlgorithmIdentifiers;
+import org.jose4j.zip.DeflateRFC1951CompressionAlgorithm;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  */
@@ -38,4 +50,107 @@ public class AlgorithmFactoryTest extends TestCase
             assertTrue(jwsAlgorithmFactory.isAvailable(algo));
         }
     }
+
+    public void testAvailabilityCheckedOnFirstUseOnly() throws JoseException
+    {
+        AlgorithmFactory<CompressionAlgorithm> factory = new AlgorithmFactory<>(HeaderParameterNames.ZIP, CompressionAlgorithm.class);
+        CountingAlgorithm available = new CountingAlgorithm("YES", true);
+        CountingAlgorithm unavailable = new CountingAlgorithm("NO", false);
+        factory.registerAlgorithm(available);
+        factory.registerAlgorithm(unavailable);
+        assertEquals(0, available.checks);
+        assertEquals(0, unavailable.checks);
+
+        assertSame(available, factory.getAlgorithm("YES"));
+        assertSame(available, factory.getAlgorithm("YES"));
+        assertTrue(factory.isAvailable("YES"));
+        assertEquals(1, available.checks);
+        assertEquals(0, unavailable.checks);
+
+        assertFalse(factory.isAvailable("NO"));
+        try
+        {
+            factory.getAlgorithm("NO");
+            fail("NO shouldn't be available");
+        }
+        catch (InvalidAlgorithmException e)
+        {
+            // expected
+        }
+        assertEquals(1, unavailable.checks);
+        assertEquals(Collections.singleton("YES"), factory.getSupportedAlgorithms());
+    }
+
+    public void testAvailabilitySnapshot()
+    {
+        List<String> snapshot = Arrays.asList(AlgorithmFactoryFactory.getInstance().getAvailabilitySnapshot().split(","));
+        assertTrue(snapshot.contains(AlgorithmIdentifiers.RSA_USING_SHA256));
+        assertTrue(snapshot.contains(KeyManagementAlgorithmIdentifiers.DIRECT));
+        assertTrue(snapshot.contains(ContentEncryptionAlgorithmIdentifiers.AES_128_GCM));
+        assertTrue(snapshot.contains(CompressionAlgorithmIdentifiers.DEFLATE));
+    }
+
+    public void testUnavailableRegistrationDoesNotReplaceAvailableOne() throws JoseException
+    {
+        AlgorithmFactory<CompressionAlgorithm> factory = new AlgorithmFactory<>(HeaderParameterNames.ZIP, CompressionAlgorithm.class);
+        CountingAlgorithm available = new CountingAlgorithm("Z", true);
+        factory.registerAlgorithm(available);
+        factory.registerAlgorithm(new CountingAlgorithm("Z", false));
+        assertSame(available, factory.getAlgorithm("Z"));
+
+        CountingAlgorithm replacement = new CountingAlgorithm("Z", true);
+        factory.registerAlgorithm(replacement);
+        assertSame(replacement, factory.getAlgorithm("Z"));
+    }
+
+    public void testLookupFollowsRegistryChanges() throws JoseException
+    {
+        AlgorithmFactory<CompressionAlgorithm> factory = new AlgorithmFactory<>(HeaderParameterNames.ZIP, CompressionAlgorithm.class);
+        CountingAlgorithm first = new CountingAlgorithm("X", true);
+        factory.registerAlgorithm(first);
+        assertSame(first, factory.getAlgorithm("X"));
+        assertSame(first, factory.getAlgorithm(new String("X")));
+
+        CountingAlgorithm second = new CountingAlgorithm("X", true);
+        factory.registerAlgorithm(second);
+        assertSame(second, factory.getAlgorithm("X"));
+
+        factory.unregisterAlgorithm("X");
+        try
+        {
+            factory.getAlgorithm("X");
+            fail("X was unregistered");
+        }
+        catch (InvalidAlgorithmException e)
+        {
+            // expected
+        }
+        assertTrue(factory.getSupportedAlgorithms().isEmpty());
+    }
+
+    private static class CountingAlgorithm extends DeflateRFC1951CompressionAlgorithm
+    {
+        private final String algorithmIdentifier;
+        private final boolean available;
+        private int checks;
+
+        private CountingAlgorithm(String algorithmIdentifier, boolean available)
+        {
+            this.algorithmIdentifier = algorithmIdentifier;
+            this.available = available;
+        }
+
+        @Override
+        public String getAlgorithmIdentifier()
+        {
+            return algorithmIdentifier;
+        }
+
+        @Override
+        public boolean isAvailable()
+        {
+            checks++;
+            return available;
+        }
+    }
 }
@@ -20,6 +20,7 @@ import org.jose4j.base64url.Base64Url;
 import org.jose4j.jca.ProviderContextTest;
 import org.jose4j.jwx.Headers;
 import org.jose4j.lang.ByteUtil;
+import org.jose4j.lang.IntegrityException;
 import org.jose4j.lang.JoseException;
 import org.jose4j.lang.StringUtil;
 import org.jose4j.lang.UncheckedJoseException;
@@ -110,6 +111,31 @@ public class Aes128CbcHmacSha256ContentEncryptionAlgorithmTest
         Assert.assertEquals(text, StringUtil.newStringUtf8(decrypt));
     }
 
+    @Test
+    public void testDecryptIntoBuffer() throws JoseException
+    {
+        String text = "into a buffer that's already there";
+        byte[] aad = StringUtil.getBytesUtf8("eyJhbGciOiJSU0ExXzUiLCJlbmMiOiJBMTI4Q0JDLUhTMjU2In0");
+        AesCbcHmacSha2ContentEncryptionAlgorithm.Aes128CbcHmacSha256 contentEncryptionAlg = new AesCbcHmacSha2ContentEncryptionAlgorithm.Aes128CbcHmacSha256();
+        byte[] cek = ByteUtil.randomBytes(contentEncryptionAlg.getContentEncryptionKeyDescriptor().getContentEncryptionKeyByteLength());
+        ContentEncryptionParts encryptionParts = contentEncryptionAlg.encrypt(StringUtil.getBytesUtf8(text), aad, cek, (Headers) null, null, ProviderContextTest.EMPTY_CONTEXT);
+
+        byte[] output = new byte[encryptionParts.getCiphertext().length + 3];
+        int length = contentEncryptionAlg.decrypt(encryptionParts, aad, cek, null, ProviderContextTest.EMPTY_CONTEXT, output, 3);
+        Assert.assertEquals(text, StringUtil.newStringUtf8(ByteUtil.subArray(output, 3, length)));
+
+        byte[] badAad = StringUtil.getBytesUtf8("eyJhbGciOiJSU0ExXzUiLCJlbmMiOiJBMTI4Q0JDLUhTMjU2In1");
+        try
+        {
+            contentEncryptionAlg.decrypt(encryptionParts, badAad, cek, null, ProviderContextTest.EMPTY_CONTEXT, new byte[output.length], 0);
+            Assert.fail("decrypt should have failed the tag check");
+        }
+        catch (IntegrityException e)
+        {
+            LoggerFactory.getLogger(this.getClass()).debug("Expected exception: " + e);
+        }
+    }
+
    @Ignore // don't run normally b/c it's slow and needs extra memory (for the actual bypass anyway)
    /*        i.e. in build ...
            <plugin>
@@ -18,11 +18,14 @@ package org.jose4j.jwe;
 
 import junit.framework.TestCase;
 import org.jose4j.base64url.Base64Url;
+import org.jose4j.jca.KeyedInstancePool;
+import org.jose4j.jca.ProviderContext;
 import org.jose4j.jca.ProviderContextTest;
 import org.jose4j.jwa.CryptoPrimitive;
 import org.jose4j.jwk.JsonWebKey;
 import org.jose4j.keys.AesKey;
 import org.jose4j.lang.ByteUtil;
+import org.jose4j.lang.IntegrityException;
 import org.jose4j.lang.JoseException;
 
 import java.security.Key;
@@ -69,4 +72,74 @@ public class Aes128KeyWrapManagementAlgorithmTest extends TestCase
 
         assertTrue(Arrays.equals(cekBytes, key.getEncoded()));
     }
+
+    public void testAesEcbImplementationSameAsAesWrap() throws JoseException
+    {
+        ProviderContext aesEcb = new ProviderContext();
+        aesEcb.getSuppliedKeyProviderContext().setAesKeyWrapImplementation(ProviderContext.AesKeyWrapImplementation.AES_ECB);
+
+        AesKeyWrapManagementAlgorithm[] algs = {new AesKeyWrapManagementAlgorithm.Aes128(), new AesKeyWrapManagementAlgorithm.Aes192(), new AesKeyWrapManagementAlgorithm.Aes256()};
+        for (AesKeyWrapManagementAlgorithm alg : algs)
+        {
+            AesKey managementKey = new AesKey(ByteUtil.randomBytes(alg.getKeyByteLength()));
+            for (int cekLength : new int[] {16, 24, 32, 48, 64})
+            {
+                ContentEncryptionKeyDescriptor cekDesc = new ContentEncryptionKeyDescriptor(cekLength, AesKey.ALGORITHM);
+                byte[] cek = ByteUtil.randomBytes(cekLength);
+
+                byte[] jca = alg.manageForEnc(managementKey, cekDesc, cek, ProviderContextTest.EMPTY_CONTEXT).getEncryptedKey();
+                for (int i = 0; i < 3; i++)
+                {
+                    byte[] ecb = alg.manageForEnc(managementKey, cekDesc, cek, aesEcb).getEncryptedKey();
+                    assertTrue(Arrays.equals(jca, ecb));
+
+                    CryptoPrimitive cryptoPrimitive = alg.prepareForDecrypt(managementKey, null, aesEcb);
+                    Key key = alg.manageForDecrypt(cryptoPrimitive, jca, cekDesc, null, aesEcb);
+                    assertTrue(Arrays.equals(cek, key.getEncoded()));
+                }
+
+                jca[jca.length - 1]++;
+                try
+                {
+                    CryptoPrimitive cryptoPrimitive = alg.prepareForDecrypt(new AesKey(managementKey.getEncoded()), null, aesEcb);
+                    alg.manageForDecrypt(cryptoPrimitive, jca, cekDesc, null, aesEcb);
+                    fail("should have failed the integrity check");
+                }
+                catch (IntegrityException e)
+                {
+                    // expected
+                }
+            }
+        }
+    }
+
+    public void testAesEcbPoolIsBoundedOverManyKeks() throws JoseException
+    {
+        byte[] keyData = ByteUtil.randomBytes(32);
+        for (int i = 0; i < 100; i++)
+        {
+            AesKey kek = new AesKey(ByteUtil.randomBytes(16));
+            byte[] wrapped = AesKeyWrap.wrap(kek, keyData, null);
+            assertTrue(Arrays.equals(keyData, AesKeyWrap.unwrap(kek, wrapped, null)));
+            assertTrue(Arrays.equals(keyData, AesKeyWrap.unwrap(kek, wrapped, null)));
+            assertTrue(AesKeyWrap.pooledKeyCount() <= KeyedInstancePool.DEFAULT_MAX_KEYS);
+        }
+    }
+
+    public void testRfc3394Vector() throws JoseException
+    {
+        // 4.6 Wrap 256 bits of Key Data with a 256-bit KEK from RFC 3394
+        AesKey kek = new AesKey(ByteUtil.convertUnsignedToSignedTwosComp(new int[] {0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07,
+                0x08, 0x09, 0x0A, 0x0B, 0x0C, 0x0D, 0x0E, 0x0F, 0x10, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x17,
+                0x18, 0x19, 0x1A, 0x1B, 0x1C, 0x1D, 0x1E, 0x1F}));
+        byte[] keyData = ByteUtil.convertUnsignedToSignedTwosComp(new int[] {0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77,
+                0x88, 0x99, 0xAA, 0xBB, 0xCC, 0xDD, 0xEE, 0xFF, 0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07,
+                0x08, 0x09, 0x0A, 0x0B, 0x0C, 0x0D, 0x0E, 0x0F});
+        byte[] expected = ByteUtil.convertUnsignedToSignedTwosComp(new int[] {0x28, 0xC9, 0xF4, 0x04, 0xC4, 0xB8, 0x10, 0xF4,
+                0xCB, 0xCC, 0xB3, 0x5C, 0xFB, 0x87, 0xF8, 0x26, 0x3F, 0x57, 0x86, 0xE2, 0xD8, 0x0E, 0xD3, 0x26,
+                0xCB, 0xC7, 0xF0, 0xE7, 0x1A, 0x99, 0xF4, 0x3B, 0xFB, 0x98, 0x8B, 0x9B, 0x7A, 0x02, 0xDD, 0x21});
+
+        assertTrue(Arrays.equals(expected, AesKeyWrap.wrap(kek, keyData, null)));
+        assertTrue(Arrays.equals(keyData, AesKeyWrap.unwrap(kek, expected, null)));
+    }
 }
@@ -19,10 +19,14 @@ package org.jose4j.jwe;
 import org.jose4j.base64url.Base64Url;
 import org.jose4j.jca.ProviderContextTest;
 import org.jose4j.jwa.JceProviderTestSupport;
+import org.jose4j.keys.AesKey;
 import org.jose4j.lang.ByteUtil;
+import org.jose4j.lang.JoseException;
 import org.jose4j.lang.StringUtil;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
 
@@ -76,4 +80,43 @@ public class Aes256GcmContentEncryptionAlgorithmTest
         });
 
     }
+
+    @Test
+    public void inPlaceByteBufferRoundTrip() throws Exception
+    {
+        SimpleAeadCipher simpleAeadCipher = new SimpleAeadCipher(SimpleAeadCipher.GCM_TRANSFORMATION_NAME, 16);
+        AesKey key = new AesKey(ByteUtil.randomBytes(16));
+        byte[] iv = ByteUtil.randomBytes(12);
+        byte[] aad = StringUtil.getBytesAscii("eyJhbGciOiJkaXIiLCJlbmMiOiJBMTI4R0NNIn0");
+        byte[] plaintext = StringUtil.getBytesUtf8("encrypted and then decrypted in the same buffer");
+
+        // same key and IV again, which a pooled GCM cipher that was just used would refuse
+        SimpleAeadCipher.CipherOutput output = simpleAeadCipher.encrypt(key, iv, plaintext, aad, null);
+        SimpleAeadCipher.CipherOutput again = simpleAeadCipher.encrypt(key, iv, plaintext, aad, null);
+        assertArrayEquals(output.getCiphertext(), again.getCiphertext());
+        assertArrayEquals(output.getTag(), again.getTag());
+
+        byte[] buffer = new byte[plaintext.length + 16];
+        System.arraycopy(plaintext, 0, buffer, 0, plaintext.length);
+        ByteBuffer plaintextBuffer = ByteBuffer.wrap(buffer, 0, plaintext.length);
+        int encryptedLength = simpleAeadCipher.encrypt(key, iv, plaintextBuffer, aad, ByteBuffer.wrap(buffer), null);
+        assertThat(encryptedLength, equalTo(buffer.length));
+        assertArrayEquals(ByteUtil.concat(output.getCiphertext(), output.getTag()), buffer);
+
+        int decryptedLength = simpleAeadCipher.decrypt(key, iv, ByteBuffer.wrap(buffer), aad, ByteBuffer.wrap(buffer), null);
+        assertThat(decryptedLength, equalTo(plaintext.length));
+        assertArrayEquals(plaintext, ByteUtil.subArray(buffer, 0, decryptedLength));
+
+        byte[] tampered = ByteUtil.concat(output.getCiphertext(), output.getTag());
+        tampered[0] ^= 1;
+        try
+        {
+            simpleAeadCipher.decrypt(key, iv, ByteBuffer.wrap(tampered), aad, ByteBuffer.allocate(tampered.length), null);
+            fail("decrypt of tampered ciphertext should have failed");
+        }
+        catch (JoseException e)
+        {
+            // expected
+        }
+    }
 }
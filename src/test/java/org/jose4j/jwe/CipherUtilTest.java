@@ -0,0 +1,34 @@
+package org.jose4j.jwe;
+
+import org.jose4j.keys.AesKey;
+import org.jose4j.lang.ByteUtil;
+import org.junit.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class CipherUtilTest
+{
+    @Test
+    public void releasedCipherDoesNotKeepTheKey() throws Exception
+    {
+        String algorithm = "AES/GCM/NoPadding";
+        AesKey key = new AesKey(ByteUtil.randomBytes(16));
+        byte[] iv = ByteUtil.randomBytes(12);
+        Cipher cipher = CipherUtil.takeCipher(algorithm, null);
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+        byte[] expected = cipher.doFinal(new byte[10]);
+        CipherUtil.releaseCipher(algorithm, null, cipher);
+
+        // released GCM ciphers are left keyed, for encryption, with a throwaway all zero key and an IV of their own
+        Cipher throwaway = CipherUtil.getCipher(algorithm, null);
+        throwaway.init(Cipher.ENCRYPT_MODE, CipherUtil.THROWAWAY_AES_KEY, new GCMParameterSpec(128, cipher.getIV()));
+        assertArrayEquals(throwaway.doFinal(new byte[10]), cipher.doFinal(new byte[10]));
+
+        // so the key and IV it last encrypted with can be used with it again
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+        assertArrayEquals(expected, cipher.doFinal(new byte[10]));
+    }
+}
@@ -0,0 +1,222 @@
+package org.jose4j.jwe;
+
+import org.jose4j.jwk.OctJwkGenerator;
+import org.jose4j.jwk.OctetSequenceJsonWebKey;
+import org.jose4j.jwx.JsonWebStructure;
+import org.jose4j.keys.AesKey;
+import org.jose4j.lang.ByteUtil;
+import org.jose4j.lang.IntegrityException;
+import org.jose4j.lang.JoseException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonWebEncryptionStreamingTest
+{
+    @Test
+    public void roundTripsWithStreamingAndNonStreaming() throws Exception
+    {
+        byte[] large = ByteUtil.randomBytes(300000);
+        byte[] compressible = new byte[250000];
+        Arrays.fill(compressible, (byte) 'z');
+
+        String[] encs = {ContentEncryptionAlgorithmIdentifiers.AES_128_GCM, ContentEncryptionAlgorithmIdentifiers.AES_256_CBC_HMAC_SHA_512};
+        for (String enc : encs)
+        {
+            for (byte[] plaintext : new byte[][] {large, compressible, new byte[] {1}})
+            {
+                for (boolean zip : new boolean[] {false, true})
+                {
+                    roundTrip(enc, plaintext, zip);
+                }
+            }
+        }
+    }
+
+    private void roundTrip(String enc, byte[] plaintext, boolean zip) throws Exception
+    {
+        OctetSequenceJsonWebKey jwk = OctJwkGenerator.generateJwk(128);
+
+        JsonWebEncryption jwe = new JsonWebEncryption();
+        jwe.setAlgorithmHeaderValue(KeyManagementAlgorithmIdentifiers.A128KW);
+        jwe.setEncryptionMethodHeaderParameter(enc);
+        if (zip)
+        {
+            jwe.enableDefaultCompression();
+        }
+        jwe.setKey(jwk.getKey());
+        jwe.setStreamBufferSize(1000);
+        ByteArrayOutputStream serialization = new ByteArrayOutputStream();
+        jwe.encrypt(new ByteArrayInputStream(plaintext), serialization);
+        String compactSerialization = new String(serialization.toByteArray(), StandardCharsets.US_ASCII);
+
+        JsonWebEncryption nonStreaming = (JsonWebEncryption) JsonWebStructure.fromCompactSerialization(compactSerialization);
+        nonStreaming.setKey(jwk.getKey());
+        if (plaintext.length < 204800 || !zip)
+        {
+            assertArrayEquals(plaintext, nonStreaming.getPlaintextBytes());
+        }
+
+        JsonWebEncryption streaming = new JsonWebEncryption();
+        streaming.setKey(jwk.getKey());
+        streaming.setStreamBufferSize(777);
+        streaming.setStreamSpoolThreshold(50000);
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        streaming.decrypt(new ByteArrayInputStream(serialization.toByteArray()), decrypted);
+        assertArrayEquals(plaintext, decrypted.toByteArray());
+    }
+
+    @Test
+    public void decryptsNonStreamingCompactSerialization() throws Exception
+    {
+        AesKey key = new AesKey(ByteUtil.randomBytes(32));
+        JsonWebEncryption jwe = new JsonWebEncryption();
+        jwe.setAlgorithmHeaderValue(KeyManagementAlgorithmIdentifiers.DIRECT);
+        jwe.setEncryptionMethodHeaderParameter(ContentEncryptionAlgorithmIdentifiers.AES_256_GCM);
+        jwe.setKey(key);
+        jwe.setPayload("not streamed on the way in");
+        String compactSerialization = jwe.getCompactSerialization();
+
+        JsonWebEncryption streaming = new JsonWebEncryption();
+        streaming.setKey(key);
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        streaming.decrypt(new ByteArrayInputStream(compactSerialization.getBytes(StandardCharsets.US_ASCII)), decrypted);
+        assertEquals("not streamed on the way in", new String(decrypted.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void nothingIsReleasedWhenTheTagIsBad() throws Exception
+    {
+        for (String enc : new String[] {ContentEncryptionAlgorithmIdentifiers.AES_256_GCM, ContentEncryptionAlgorithmIdentifiers.AES_128_CBC_HMAC_SHA_256})
+        {
+            AesKey key = new AesKey(ByteUtil.randomBytes(32));
+            JsonWebEncryption jwe = new JsonWebEncryption();
+            jwe.setAlgorithmHeaderValue(KeyManagementAlgorithmIdentifiers.A256KW);
+            jwe.setEncryptionMethodHeaderParameter(enc);
+            jwe.setKey(key);
+            ByteArrayOutputStream serialization = new ByteArrayOutputStream();
+            jwe.encrypt(new ByteArrayInputStream(ByteUtil.randomBytes(20000)), serialization);
+
+            String[] parts = new String(serialization.toByteArray(), StandardCharsets.US_ASCII).split("\\.");
+            char first = parts[3].charAt(0);
+            parts[3] = (first == 'A' ? 'B' : 'A') + parts[3].substring(1);
+            String tampered = String.join(".", parts);
+
+            JsonWebEncryption streaming = new JsonWebEncryption();
+            streaming.setKey(key);
+            streaming.setStreamSpoolThreshold(1000);
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            try
+            {
+                streaming.decrypt(new ByteArrayInputStream(tampered.getBytes(StandardCharsets.US_ASCII)), decrypted);
+                fail("should have failed the tag check");
+            }
+            catch (IntegrityException e)
+            {
+                assertEquals(0, decrypted.size());
+            }
+        }
+    }
+
+    @Test (expected = JoseException.class)
+    public void tooFewParts() throws Exception
+    {
+        JsonWebEncryption streaming = new JsonWebEncryption();
+        streaming.setKey(new AesKey(new byte[16]));
+        String cs = "eyJhbGciOiJkaXIiLCJlbmMiOiJBMTI4R0NNIn0..AAAAAAAAAAAAAAAA.AAAA";
+        streaming.decrypt(new ByteArrayInputStream(cs.getBytes(StandardCharsets.US_ASCII)), new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void ciphertextLongerThanTheMaximumIsRejected() throws Exception
+    {
+        AesKey key = new AesKey(ByteUtil.randomBytes(16));
+        JsonWebEncryption jwe = new JsonWebEncryption();
+        jwe.setAlgorithmHeaderValue(KeyManagementAlgorithmIdentifiers.DIRECT);
+        jwe.setEncryptionMethodHeaderParameter(ContentEncryptionAlgorithmIdentifiers.AES_128_GCM);
+        jwe.setKey(key);
+        ByteArrayOutputStream serialization = new ByteArrayOutputStream();
+        jwe.encrypt(new ByteArrayInputStream(ByteUtil.randomBytes(20000)), serialization);
+
+        JsonWebEncryption streaming = new JsonWebEncryption();
+        streaming.setKey(key);
+        streaming.setStreamBufferSize(1000);
+        streaming.setMaxStreamCiphertextLength(10000);
+        ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+        try
+        {
+            streaming.decrypt(new ByteArrayInputStream(serialization.toByteArray()), decrypted);
+            fail("the ciphertext is over the maximum length");
+        }
+        catch (JoseException e)
+        {
+            assertEquals(0, decrypted.size());
+        }
+    }
+
+    @Test
+    public void spoolFileChangedAfterTheTagCheckIsCaught() throws Exception
+    {
+        ContentEncryptionAlgorithm[] algs = {new AesGcmContentEncryptionAlgorithm.Aes128Gcm(), new AesCbcHmacSha2ContentEncryptionAlgorithm.Aes128CbcHmacSha256()};
+        for (ContentEncryptionAlgorithm alg : algs)
+        {
+            for (boolean truncate : new boolean[] {false, true})
+            {
+                StreamingContentEncryption sce = new StreamingContentEncryption(alg, 1000, 1000);
+                byte[] plaintext = ByteUtil.randomBytes(3 * StreamingContentEncryption.Spool.CHUNK_SIZE + 100);
+                byte[] aad = ByteUtil.randomBytes(10);
+                byte[] cek = ByteUtil.randomBytes(alg.getContentEncryptionKeyDescriptor().getContentEncryptionKeyByteLength());
+                byte[] iv = ByteUtil.randomBytes(sce.getIvByteLength());
+                ByteArrayOutputStream ciphertextOut = new ByteArrayOutputStream();
+                byte[] tag = sce.encrypt(new ByteArrayInputStream(plaintext), ciphertextOut, aad, cek, iv, null, null);
+                byte[] ciphertext = ciphertextOut.toByteArray();
+
+                ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+                try (StreamingContentEncryption.Decryption decryption = sce.startDecryption(aad, cek, iv, null, null))
+                {
+                    for (int offset = 0; offset < ciphertext.length; offset += 1000)
+                    {
+                        decryption.update(ciphertext, offset, Math.min(1000, ciphertext.length - offset));
+                    }
+
+                    // after the tag has been computed over what was spooled but before it's read back and decrypted
+                    Path file = decryption.getSpool().getFile();
+                    if (truncate)
+                    {
+                        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+                        {
+                            channel.truncate(2 * StreamingContentEncryption.Spool.CHUNK_SIZE);
+                        }
+                    }
+                    else
+                    {
+                        byte[] changed = Files.readAllBytes(file);
+                        changed[2 * StreamingContentEncryption.Spool.CHUNK_SIZE + 5] ^= 1;
+                        Files.write(file, changed);
+                    }
+
+                    decryption.finish(tag, decrypted);
+                    fail("should have noticed the spool file was changed");
+                }
+                catch (IntegrityException e)
+                {
+                    // whatever was released before the change was noticed was authenticated
+                    assertTrue(decrypted.size() <= 2 * StreamingContentEncryption.Spool.CHUNK_SIZE);
+                    assertArrayEquals(Arrays.copyOf(plaintext, decrypted.size()), decrypted.toByteArray());
+                }
+            }
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package org.jose4j.jwe;
 
+import org.jose4j.jca.KeyedInstancePool;
 import org.jose4j.jca.ProviderContext;
+import org.jose4j.jwa.AlgorithmFactoryFactory;
 import org.jose4j.jwa.AlgorithmConstraints;
 import org.jose4j.jwa.JceProviderTestSupport;
 import org.jose4j.jwk.PublicJsonWebKey;
 import org.jose4j.jwk.RsaJsonWebKey;
 import org.jose4j.jwk.RsaJwkGenerator;
+import org.jose4j.keys.RsaKeyUtil;
 import org.jose4j.lang.ExceptionHelp;
 import org.jose4j.lang.JoseException;
 import org.junit.Assert;
@@ -13,6 +16,9 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPrivateKey;
+
 import static org.jose4j.jwa.AlgorithmConstraints.ConstraintType.PERMIT;
 
 public class RsaKeyManagementMoreTest
@@ -232,4 +238,53 @@ public class RsaKeyManagementMoreTest
             Assert.assertTrue(e.getMessage().contains("Tag mismatch"));
         }
     }
+
+    @Test
+    public void pooledDecryptingCiphersAreKeptPerKey() throws Exception
+    {
+        RsaKeyManagementAlgorithm alg = new RsaKeyManagementAlgorithm.RsaOaep();
+        ProviderContext providerContext = new ProviderContext();
+        PrivateKey key1 = RsaJwkGenerator.generateJwk(2048).getPrivateKey();
+        PrivateKey key2 = RsaJwkGenerator.generateJwk(2048).getPrivateKey();
+
+        RsaKeyManagementAlgorithm.PooledCipher cipher1 = alg.takeDecryptingCipher(key1, providerContext);
+        alg.releaseDecryptingCipher(cipher1);
+
+        RsaKeyManagementAlgorithm.PooledCipher cipher2 = alg.takeDecryptingCipher(key2, providerContext);
+        Assert.assertNotSame(cipher1, cipher2);
+        alg.releaseDecryptingCipher(cipher2);
+
+        // switching between keys doesn't evict the other key's cipher
+        Assert.assertSame(cipher1, alg.takeDecryptingCipher(key1, providerContext));
+        Assert.assertSame(cipher2, alg.takeDecryptingCipher(key2, providerContext));
+    }
+
+    @Test
+    public void pooledDecryptingCiphersAreBoundedOverManyKeyInstances() throws Exception
+    {
+        RsaKeyUtil rsaKeyUtil = new RsaKeyUtil();
+        RsaKeyManagementAlgorithm alg = (RsaKeyManagementAlgorithm) AlgorithmFactoryFactory.getInstance()
+                .getJweKeyManagementAlgorithmFactory().getAlgorithm(KeyManagementAlgorithmIdentifiers.RSA_OAEP);
+
+        RsaJsonWebKey jwk = RsaJwkGenerator.generateJwk(2048);
+        JsonWebEncryption jwe = new JsonWebEncryption();
+        jwe.setAlgorithmHeaderValue(KeyManagementAlgorithmIdentifiers.RSA_OAEP);
+        jwe.setEncryptionMethodHeaderParameter(ContentEncryptionAlgorithmIdentifiers.AES_128_GCM);
+        jwe.setPayload("many keys");
+        jwe.setKey(jwk.getPublicKey());
+        String compactSerialization = jwe.getCompactSerialization();
+        RSAPrivateKey jwkPrivateKey = jwk.getRsaPrivateKey();
+
+        for (int i = 0; i < 100; i++)
+        {
+            // a distinct but equal key instance every time
+            PrivateKey keyInstance = rsaKeyUtil.privateKey(jwkPrivateKey.getModulus(), jwkPrivateKey.getPrivateExponent());
+            jwe = new JsonWebEncryption();
+            jwe.setUsePooledDecryptingPrimitives(true);
+            jwe.setKey(keyInstance);
+            jwe.setCompactSerialization(compactSerialization);
+            Assert.assertEquals("many keys", jwe.getPlaintextString());
+            Assert.assertTrue(alg.decryptingCipherPoolKeyCount() <= KeyedInstancePool.DEFAULT_MAX_KEYS);
+        }
+    }
 }
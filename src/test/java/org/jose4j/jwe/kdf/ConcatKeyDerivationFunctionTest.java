@@ -137,4 +137,23 @@ public class ConcatKeyDerivationFunctionTest extends TestCase
         byte[] kdfed = myConcatKdf.kdf(z, keyDatalen, algId, partyU, partyV, pub, priv);
         assertEquals(derivedKey, Base64Url.encode(kdfed));
     }
+
+    public void testKdfUtilWithCachedOtherInfo() throws Exception
+    {
+        // same inputs as testKdf3 but by way of KdfUtil, twice so the second uses the cached otherInfo
+        String derivedKey = "yRbmmZJpxv3H1aq3FgzESa453frljIaeMz6pt5rQZ4Q5Hs-4RYoFRXFh_qBsbTjlsj8JxIYTWj-cp5LKtgi1fBRsf_5yTEcLDv4pKH2fNxjbEOKuVVDWA1_Qv2IkEC0_QSi3lSSELcJaNX-hDG8occ7oQv-w8lg6lLJjg58kOes";
+        byte[] z = Base64Url.decode("KSDnQpf2iurUsAbcuI4YH-FKfk2gecN6cWHTYlBzrd8");
+        for (int i = 0; i < 2; i++)
+        {
+            byte[] kdfed = new KdfUtil().kdf(z, 1024, "meh", "QWxpY2U", "Qm9i");
+            assertEquals(derivedKey, Base64Url.encode(kdfed));
+        }
+
+        byte[] swapped = new KdfUtil().kdf(z, 1024, "meh", "Qm9i", "QWxpY2U");
+        assertFalse(derivedKey.equals(Base64Url.encode(swapped)));
+
+        // not a multiple of the digest length
+        byte[] truncated = new KdfUtil().kdf(z, 320, "meh", "QWxpY2U", "Qm9i");
+        assertEquals(40, truncated.length);
+    }
 }
@@ -0,0 +1,46 @@
+package org.jose4j.jwe.kdf;
+
+import org.jose4j.lang.StringUtil;
+import org.jose4j.mac.MacUtil;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class DerivedKeyCacheTest
+{
+    @Test
+    public void cachedAndUncachedAgree() throws Exception
+    {
+        byte[] password = StringUtil.getBytesUtf8("password7");
+        byte[] salt = StringUtil.getBytesUtf8("saltysaltysalt");
+
+        PasswordBasedKeyDerivationFunction2 uncached = new PasswordBasedKeyDerivationFunction2(MacUtil.HMAC_SHA256);
+        byte[] expected = uncached.derive(password, salt, 1024, 16);
+
+        DerivedKeyCache cache = new DerivedKeyCache(2);
+        PasswordBasedKeyDerivationFunction2 cached = new PasswordBasedKeyDerivationFunction2(MacUtil.HMAC_SHA256);
+        cached.setDerivedKeyCache(cache);
+        byte[] first = cached.derive(password, salt, 1024, 16);
+        assertArrayEquals(expected, first);
+        assertEquals(1, cache.size());
+
+        first[0]++;
+        assertArrayEquals(expected, cached.derive(password, salt, 1024, 16));
+        assertEquals(1, cache.size());
+
+        byte[] otherCount = cached.derive(password, salt, 1025, 16);
+        assertFalse(Arrays.equals(expected, otherCount));
+        assertArrayEquals(uncached.derive(password, salt, 1025, 16), otherCount);
+        assertEquals(2, cache.size());
+
+        cached.derive(StringUtil.getBytesUtf8("password8"), salt, 1024, 16);
+        assertEquals(2, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
@@ -28,12 +28,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.security.cert.X509Certificate;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -42,6 +44,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 /**
  *
@@ -141,6 +144,69 @@ public class DefaultHttpsJwksTest
         assertThat(secondGet.getCount(), equalTo(0));
     }
 
+    @Test
+    public void waitingOnRefreshIsInterruptible() throws Exception
+    {
+        String location = "https://example.com/jwks";
+        final CountDownLatch getStarted = new CountDownLatch(1);
+        final CountDownLatch releaseGet = new CountDownLatch(1);
+        final DefaultHttpsJwks httpsJwks = new DefaultHttpsJwks(location);
+        httpsJwks.setSimpleHttpGet(new SimpleGet()
+        {
+            @Override
+            public SimpleResponse get(String location) throws IOException
+            {
+                getStarted.countDown();
+                try
+                {
+                    releaseGet.await();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new InterruptedIOException();
+                }
+                Map<String, List<String>> headers = Collections.emptyMap();
+                return new Response(200, "OK", headers, "{\"keys\":[{\"kty\":\"oct\",\"kid\":\"one\",\"k\":\"AQAB\"}]}");
+            }
+        });
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try
+        {
+            Future<List<JsonWebKey>> fetching = executorService.submit(httpsJwks::getJsonWebKeys);
+            getStarted.await();
+
+            // with nothing cached yet this one has to wait for the fetch that's in progress
+            final Exception[] thrown = new Exception[1];
+            Thread waiting = new Thread(() ->
+            {
+                try
+                {
+                    httpsJwks.getJsonWebKeys();
+                }
+                catch (Exception e)
+                {
+                    thrown[0] = e;
+                }
+            });
+            waiting.start();
+            Thread.sleep(50);
+            waiting.interrupt();
+            waiting.join(5000);
+            assertFalse(waiting.isAlive());
+            assertTrue(thrown[0] instanceof InterruptedIOException);
+
+            releaseGet.countDown();
+            assertThat(fetching.get().size(), equalTo(1));
+            assertThat(httpsJwks.getJsonWebKeys().size(), equalTo(1));
+        }
+        finally
+        {
+            releaseGet.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
     @Test
     @Ignore // skip this one b/c of external dependency and manual intervention needed
     public void testKindaSimplisticConcurrent() throws Exception
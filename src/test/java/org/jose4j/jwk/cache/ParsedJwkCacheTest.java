@@ -0,0 +1,70 @@
+package org.jose4j.jwk.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.PublicJsonWebKey;
+import org.junit.Test;
+
+public class ParsedJwkCacheTest
+{
+    private static final String RSA_JWK = "{\"kty\":\"RSA\",\"kid\":\"r1\"," +
+            "\"n\":\"0vx7agoebGcQSuuPiLJXZptN9nndrQmbXEps2aiAFbWhM78LhWx4cbbfAAtVT86zwu1RK7aPFFxuhDR1L6tSoc_BJECPebWKRXjBZCiFV4n3oknjhMstn64tZ_2W-5JsGY4Hc5n9yBXArwl93lqt7_RN5w6Cf0h4QyQ5v-65YGjQR0_FDW2QvzqY368QQMicAtaSqzs8KJZgnYb9c7d0zgdAZHzu6qMQvRL5hajrn1n91CbOpbISD08qNLyrdkt-bFTWhAI4vMQFh6WeZu0fM4lFd2NcRwr3XPksINHaQ-G_xBniIqbw0Ls1jF44-csFCur-kEgU8awapJzKnqDKgw\"," +
+            "\"e\":\"AQAB\"}";
+
+    private static final String EC_JWK = "{\"kty\":\"EC\",\"kid\":\"e1\",\"crv\":\"P-256\"," +
+            "\"x\":\"f83OJ3D2xF1Bg8vub9tLe1gHMzV76e8Tus9uPHvRVEU\"," +
+            "\"y\":\"x_FEzRu9m36HLN_tue659LNpXW6pCyStikYjKIWI5a0\"}";
+
+    private static final String EC_JWK_REORDERED = "{\"y\":\"x_FEzRu9m36HLN_tue659LNpXW6pCyStikYjKIWI5a0\"," +
+            "\"x\":\"f83OJ3D2xF1Bg8vub9tLe1gHMzV76e8Tus9uPHvRVEU\"," +
+            "\"crv\":\"P-256\",\"kid\":\"e1\",\"kty\":\"EC\"}";
+
+    @Test
+    public void reusesUnchangedKeysAcrossParses() throws Exception
+    {
+        ParsedJwkCache cache = new ParsedJwkCache();
+        List<JsonWebKey> first = new JsonWebKeySet("{\"keys\":[" + RSA_JWK + "," + EC_JWK + "]}", cache).getJsonWebKeys();
+        List<JsonWebKey> second = new JsonWebKeySet("{\"keys\":[" + EC_JWK_REORDERED + "," + RSA_JWK + "]}", cache).getJsonWebKeys();
+
+        assertEquals(2, cache.size());
+        assertSame(first.get(0), second.get(1));
+        assertSame(first.get(1), second.get(0));
+        assertSame(((PublicJsonWebKey) first.get(0)).getPublicKey(), ((PublicJsonWebKey) second.get(1)).getPublicKey());
+    }
+
+    @Test
+    public void changedParametersMakeNewKey() throws Exception
+    {
+        ParsedJwkCache cache = new ParsedJwkCache();
+        JsonWebKey jwk = new JsonWebKeySet("{\"keys\":[" + EC_JWK + "]}", cache).getJsonWebKeys().get(0);
+        String otherKid = EC_JWK.replace("\"e1\"", "\"e2\"");
+        JsonWebKey other = new JsonWebKeySet("{\"keys\":[" + otherKid + "]}", cache).getJsonWebKeys().get(0);
+
+        assertNotSame(jwk, other);
+        assertEquals("e2", other.getKeyId());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() throws Exception
+    {
+        ParsedJwkCache cache = new ParsedJwkCache(1);
+        JsonWebKey ec = new JsonWebKeySet("{\"keys\":[" + EC_JWK + "]}", cache).getJsonWebKeys().get(0);
+        new JsonWebKeySet("{\"keys\":[" + RSA_JWK + "]}", cache);
+        assertEquals(1, cache.size());
+        JsonWebKey ecAgain = new JsonWebKeySet("{\"keys\":[" + EC_JWK + "]}", cache).getJsonWebKeys().get(0);
+        assertNotSame(ec, ecAgain);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveSize()
+    {
+        new ParsedJwkCache(0);
+    }
+}
@@ -0,0 +1,210 @@
+package org.jose4j.jws;
+
+import org.jose4j.base64url.Base64Url;
+import org.jose4j.jwx.HeaderParameterNames;
+import org.jose4j.keys.ExampleEcKeysFromJws;
+import org.jose4j.keys.ExampleRsaKeyFromJws;
+import org.jose4j.keys.HmacKey;
+import org.jose4j.lang.ByteUtil;
+import org.jose4j.lang.JoseException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.Key;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonWebSignatureStreamingTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static ReadableByteChannel channel(String s)
+    {
+        return Channels.newChannel(new ByteArrayInputStream(s.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static ReadableByteChannel channel(byte[] bytes)
+    {
+        return Channels.newChannel(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void sameAsNonStreamingForDeterministicAlgorithms() throws Exception
+    {
+        HmacKey hmacKey = new HmacKey(ByteUtil.randomBytes(32));
+        for (int size : new int[] {0, 1, 2, 3, 299, 300, 301, 100000})
+        {
+            byte[] payload = ByteUtil.randomBytes(size);
+            check(AlgorithmIdentifiers.HMAC_SHA256, hmacKey, hmacKey, payload, true);
+            check(AlgorithmIdentifiers.RSA_USING_SHA256, ExampleRsaKeyFromJws.PRIVATE_KEY, ExampleRsaKeyFromJws.PUBLIC_KEY, payload, true);
+            check(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256, ExampleEcKeysFromJws.PRIVATE_256, ExampleEcKeysFromJws.PUBLIC_256, payload, false);
+        }
+    }
+
+    private void check(String alg, Key signingKey, Key verificationKey, byte[] payload, boolean deterministic) throws Exception
+    {
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(alg);
+        jws.setKey(signingKey);
+        jws.setStreamBufferSize(100);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jws.sign(new ByteArrayInputStream(payload), out);
+        String streamed = new String(out.toByteArray(), StandardCharsets.US_ASCII);
+
+        JsonWebSignature nonStreaming = new JsonWebSignature();
+        nonStreaming.setAlgorithmHeaderValue(alg);
+        nonStreaming.setKey(signingKey);
+        nonStreaming.setPayloadBytes(payload);
+        String compactSerialization = nonStreaming.getCompactSerialization();
+        if (deterministic)
+        {
+            assertEquals(compactSerialization, streamed);
+        }
+
+        JsonWebSignature parsed = new JsonWebSignature();
+        parsed.setCompactSerialization(streamed);
+        parsed.setKey(verificationKey);
+        assertArrayEquals(payload, parsed.getPayloadBytes());
+
+        JsonWebSignature streamingVerifier = new JsonWebSignature();
+        streamingVerifier.setKey(verificationKey);
+        streamingVerifier.setStreamBufferSize(64);
+        assertTrue(streamingVerifier.verifySignature(channel(compactSerialization)));
+
+        String[] parts = streamed.split("\\.", -1);
+        String tampered = parts[0] + "." + parts[1] + "A." + parts[2];
+        streamingVerifier = new JsonWebSignature();
+        streamingVerifier.setKey(verificationKey);
+        assertFalse(streamingVerifier.verifySignature(channel(tampered)));
+    }
+
+    @Test
+    public void unencodedDetachedPayload() throws Exception
+    {
+        byte[] payload = new byte[5000];
+        Arrays.fill(payload, (byte) '.');
+        payload[0] = '$';
+
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256);
+        jws.getHeaders().setObjectHeaderValue(HeaderParameterNames.BASE64URL_ENCODE_PAYLOAD, false);
+        jws.setCriticalHeaderNames(HeaderParameterNames.BASE64URL_ENCODE_PAYLOAD);
+        jws.setKey(ExampleEcKeysFromJws.PRIVATE_256);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jws.signDetached(new ByteArrayInputStream(payload), out);
+        String detached = new String(out.toByteArray(), StandardCharsets.US_ASCII);
+        assertTrue(detached.contains(".."));
+
+        JsonWebSignature verifier = new JsonWebSignature();
+        verifier.setCompactSerialization(detached);
+        verifier.setKey(ExampleEcKeysFromJws.PUBLIC_256);
+        assertTrue(verifier.verifyDetachedSignature(channel(payload)));
+
+        payload[1] = '!';
+        verifier = new JsonWebSignature();
+        verifier.setCompactSerialization(detached);
+        verifier.setKey(ExampleEcKeysFromJws.PUBLIC_256);
+        assertFalse(verifier.verifyDetachedSignature(channel(payload)));
+    }
+
+    @Test
+    public void encodedDetachedPayload() throws Exception
+    {
+        byte[] payload = ByteUtil.randomBytes(12345);
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_PSS_USING_SHA256);
+        jws.setKey(ExampleRsaKeyFromJws.PRIVATE_KEY);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jws.signDetached(new ByteArrayInputStream(payload), out);
+
+        JsonWebSignature verifier = new JsonWebSignature();
+        verifier.setCompactSerialization(new String(out.toByteArray(), StandardCharsets.US_ASCII));
+        verifier.setEncodedPayload(Base64Url.encode(payload));
+        verifier.setKey(ExampleRsaKeyFromJws.PUBLIC_KEY);
+        assertTrue(verifier.verifySignature());
+
+        verifier = new JsonWebSignature();
+        verifier.setCompactSerialization(new String(out.toByteArray(), StandardCharsets.US_ASCII));
+        verifier.setKey(ExampleRsaKeyFromJws.PUBLIC_KEY);
+        verifier.setStreamBufferSize(1000);
+        assertTrue(verifier.verifyDetachedSignature(channel(payload)));
+    }
+
+    @Test (expected = JoseException.class)
+    public void unencodedAttachedPayloadWithPeriod() throws Exception
+    {
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA256);
+        jws.getHeaders().setObjectHeaderValue(HeaderParameterNames.BASE64URL_ENCODE_PAYLOAD, false);
+        jws.setCriticalHeaderNames(HeaderParameterNames.BASE64URL_ENCODE_PAYLOAD);
+        jws.setKey(new HmacKey(new byte[32]));
+        jws.sign(new ByteArrayInputStream("no.good".getBytes(StandardCharsets.US_ASCII)), new ByteArrayOutputStream());
+    }
+
+    @Test (expected = JoseException.class)
+    public void tooManyParts() throws Exception
+    {
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setKey(new HmacKey(new byte[32]));
+        jws.verifySignature(channel("eyJhbGciOiJIUzI1NiJ9.e30.AAAA.AAAA"));
+    }
+
+    @Test
+    public void mappedFileDetachedPayload() throws Exception
+    {
+        byte[] payload = ByteUtil.randomBytes(100001);
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), payload);
+
+        for (boolean b64 : new boolean[] {true, false})
+        {
+            JsonWebSignature jws = new JsonWebSignature();
+            jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA256);
+            if (!b64)
+            {
+                jws.getHeaders().setObjectHeaderValue(HeaderParameterNames.BASE64URL_ENCODE_PAYLOAD, false);
+                jws.setCriticalHeaderNames(HeaderParameterNames.BASE64URL_ENCODE_PAYLOAD);
+            }
+            HmacKey key = new HmacKey(ByteUtil.randomBytes(32));
+            jws.setKey(key);
+            jws.setMappedWindowSize(4000);
+            String detached = jws.getDetachedContentCompactSerialization(file.toPath());
+
+            JsonWebSignature nonStreaming = new JsonWebSignature();
+            nonStreaming.setCompactSerialization(detached);
+            nonStreaming.setKey(key);
+            assertTrue(nonStreaming.verifyDetachedSignature(channel(payload)));
+
+            JsonWebSignature verifier = new JsonWebSignature();
+            verifier.setCompactSerialization(detached);
+            verifier.setKey(key);
+            verifier.setMappedWindowSize(1001);
+            try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+            {
+                assertTrue(verifier.verifyDetachedSignature(fileChannel));
+            }
+
+            Files.write(file.toPath(), new byte[] {1}, StandardOpenOption.APPEND);
+            verifier = new JsonWebSignature();
+            verifier.setCompactSerialization(detached);
+            verifier.setKey(key);
+            assertFalse(verifier.verifyDetachedSignature(file.toPath()));
+            Files.write(file.toPath(), payload);
+        }
+    }
+}
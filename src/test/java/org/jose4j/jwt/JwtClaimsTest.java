@@ -616,4 +616,37 @@ public class JwtClaimsTest
         Assert.assertThat(NumericDate.fromSeconds(1430602060), equalTo(jcs.getIssuedAt()));
         Assert.assertThat(NumericDate.fromSeconds(1430602000), equalTo(jcs.getNotBefore()));
     }
+
+    @Test
+    public void testUnmodifiable() throws InvalidJwtException, MalformedClaimException
+    {
+        JwtClaims jcs = JwtClaims.parse("{\"sub\":\"me\", \"aud\":[\"a\",\"b\"], \"cnf\":{\"jkt\":\"x\"}}");
+        JwtClaims unmodifiable = JwtClaims.unmodifiable(jcs);
+        Assert.assertNull(unmodifiable.getRawJson());
+        Assert.assertThat("me", equalTo(unmodifiable.getSubject()));
+        Assert.assertThat(Arrays.asList("a", "b"), equalTo(unmodifiable.getAudience()));
+
+        try
+        {
+            unmodifiable.setSubject("someone else");
+            Assert.fail("shouldn't be able to set a claim");
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            unmodifiable.getClaimValue("cnf", Map.class).put("jkt", "y");
+            Assert.fail("shouldn't be able to modify a nested claim value");
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // expected
+        }
+
+        jcs.setSubject("someone else");
+        Assert.assertThat("me", equalTo(unmodifiable.getSubject()));
+    }
 }
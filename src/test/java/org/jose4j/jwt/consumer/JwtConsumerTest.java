@@ -38,6 +38,7 @@ import org.jose4j.jws.JsonWebSignature;
 import org.jose4j.jwt.JwtClaims;
 import org.jose4j.jwt.MalformedClaimException;
 import org.jose4j.jwt.NumericDate;
+import org.jose4j.jwt.ReservedClaimNames;
 import org.jose4j.jwx.CompactSerializer;
 import org.jose4j.jwx.HeaderParameterNames;
 import org.jose4j.jwx.JsonWebStructure;
@@ -53,19 +54,27 @@ import org.jose4j.keys.resolvers.DecryptionKeyResolver;
 import org.jose4j.keys.resolvers.JwksDecryptionKeyResolver;
 import org.jose4j.keys.resolvers.JwksVerificationKeyResolver;
 import org.jose4j.keys.resolvers.VerificationKeyResolver;
+import org.jose4j.lang.ByteUtil;
 import org.jose4j.lang.JoseException;
 import org.jose4j.lang.UnresolvableKeyException;
+import org.jose4j.metrics.JoseMetrics;
+import org.jose4j.metrics.Metrics;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.math.BigInteger;
 import java.security.Key;
 import java.security.PrivateKey;
+import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.jose4j.jwe.ContentEncryptionAlgorithmIdentifiers.AES_128_GCM;
@@ -74,6 +83,7 @@ import static org.jose4j.jwe.ContentEncryptionAlgorithmIdentifiers.AES_256_GCM;
 import static org.jose4j.jwe.KeyManagementAlgorithmIdentifiers.*;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 
@@ -3448,4 +3458,451 @@ public class JwtConsumerTest
         jwtConsumer.processToClaims(jwt);
     }
 
+
+    @Test
+    public void pooledRsaDecryptingPrimitivesFromJweCustomizer() throws Exception
+    {
+        // counts how many times a Cipher gets initialized with the key
+        final RSAPrivateKey rsaPrivateKey = (RSAPrivateKey) ExampleRsaKeyFromJws.PRIVATE_KEY;
+        final AtomicInteger inits = new AtomicInteger();
+        RSAPrivateKey countingKey = new RSAPrivateKey()
+        {
+            @Override
+            public BigInteger getPrivateExponent()
+            {
+                inits.incrementAndGet();
+                return rsaPrivateKey.getPrivateExponent();
+            }
+
+            @Override
+            public BigInteger getModulus()
+            {
+                return rsaPrivateKey.getModulus();
+            }
+
+            @Override
+            public String getAlgorithm()
+            {
+                return rsaPrivateKey.getAlgorithm();
+            }
+
+            @Override
+            public String getFormat()
+            {
+                return rsaPrivateKey.getFormat();
+            }
+
+            @Override
+            public byte[] getEncoded()
+            {
+                return rsaPrivateKey.getEncoded();
+            }
+        };
+
+        JwtConsumer consumer = new JwtConsumerBuilder()
+                .setDecryptionKey(countingKey)
+                .setDisableRequireSignature()
+                .setExpectedAudience("a")
+                .setJweCustomizer(new JweCustomizer()
+                {
+                    @Override
+                    public void customize(JsonWebEncryption jwe, List<JsonWebStructure> nestingContext)
+                    {
+                        jwe.setUsePooledDecryptingPrimitives(true);
+                    }
+                })
+                .build();
+
+        int initsPerCipher = -1;
+        for (String alg : new String[] {RSA_OAEP_256, RSA_OAEP, RSA_OAEP_256})
+        {
+            String jwt = null;
+            for (int i = 0; i < 3; i++)
+            {
+                JwtClaims claims = new JwtClaims();
+                claims.setSubject("me" + i);
+                claims.setAudience("a");
+                JsonWebEncryption jwe = new JsonWebEncryption();
+                jwe.setAlgorithmHeaderValue(alg);
+                jwe.setEncryptionMethodHeaderParameter(AES_128_GCM);
+                jwe.setKey(ExampleRsaKeyFromJws.PUBLIC_KEY);
+                jwe.setPayload(claims.toJson());
+                jwt = jwe.getCompactSerialization();
+
+                assertThat(consumer.processToClaims(jwt).getSubject(), equalTo("me" + i));
+
+                if (initsPerCipher == -1)
+                {
+                    initsPerCipher = inits.get();
+                    assertTrue(initsPerCipher > 0);
+                }
+            }
+
+            // a cipher that fails to decrypt the key isn't put back in the pool
+            String[] parts = CompactSerializer.deserialize(jwt);
+            parts[1] = Base64Url.encode(new byte[256]);
+            SimpleJwtConsumerTestHelp.expectProcessingFailure(CompactSerializer.serialize(parts), consumer);
+        }
+
+        // a new Cipher only for the first decryption of each run, the others reused the pooled one
+        assertThat(inits.get(), equalTo(3 * initsPerCipher));
+    }
+
+    @Test
+    public void stacklessRejectionsWithLazyMessages() throws Exception
+    {
+        HmacKey key = new HmacKey(new byte[32]);
+        JwtClaims claims = new JwtClaims();
+        claims.setSubject("me");
+        claims.setExpirationTimeMinutesInTheFuture(-5);
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA256);
+        jws.setKey(key);
+        jws.setPayload(claims.toJson());
+        String jwt = jws.getCompactSerialization();
+
+        JwtConsumer consumer = new JwtConsumerBuilder()
+                .setVerificationKey(new HmacKey(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32}))
+                .setRequireExpirationTime()
+                .setDisableExceptionStackTraces()
+                .build();
+        try
+        {
+            consumer.process(jwt);
+            Assert.fail("should have failed on the signature");
+        }
+        catch (InvalidJwtException e)
+        {
+            assertTrue(e.hasErrorCode(ErrorCodes.SIGNATURE_INVALID));
+            assertThat(e.getStackTrace().length, equalTo(0));
+            assertTrue(e.getMessage().contains("Invalid JWS Signature"));
+        }
+
+        consumer = new JwtConsumerBuilder()
+                .setVerificationKey(key)
+                .setRequireExpirationTime()
+                .setDisableExceptionStackTraces()
+                .build();
+        try
+        {
+            consumer.process(jwt);
+            Assert.fail("should have failed because it's expired");
+        }
+        catch (InvalidJwtException e)
+        {
+            assertTrue(e.hasExpired());
+            assertThat(e.getStackTrace().length, equalTo(0));
+            assertTrue(e.getOriginalMessage().contains("\"sub\":\"me\""));
+        }
+
+        try
+        {
+            consumer.process(jwt.substring(0, 10));
+            Assert.fail("should have failed on the bad JWT");
+        }
+        catch (InvalidJwtException e)
+        {
+            assertTrue(e.hasErrorCode(ErrorCodes.MISCELLANEOUS));
+            assertThat(e.getStackTrace().length, equalTo(0));
+            assertTrue(e.getErrorDetails().get(0).getErrorMessage().contains(jwt.substring(0, 10)));
+            assertTrue(e.getMessage().contains(jwt.substring(0, 10)));
+        }
+
+        consumer = new JwtConsumerBuilder().setVerificationKey(key).build();
+        try
+        {
+            consumer.process(jwt.substring(0, 10));
+            Assert.fail("should have failed on the bad JWT");
+        }
+        catch (InvalidJwtException e)
+        {
+            assertTrue(e.getStackTrace().length > 0);
+        }
+    }
+
+    @Test
+    public void preVerificationScreeningSkipsKeyResolution() throws Exception
+    {
+        HmacKey key = new HmacKey(new byte[32]);
+        final int[] resolutions = {0};
+        VerificationKeyResolver countingResolver = new VerificationKeyResolver()
+        {
+            @Override
+            public Key resolveKey(JsonWebSignature jws, List<JsonWebStructure> nestingContext)
+            {
+                resolutions[0]++;
+                return key;
+            }
+        };
+
+        JwtConsumer consumer = new JwtConsumerBuilder()
+                .setVerificationKeyResolver(countingResolver)
+                .setExpectedIssuer("https://good.example.com")
+                .setRequireExpirationTime()
+                .setEnablePreVerificationScreening()
+                .build();
+
+        JwtClaims claims = new JwtClaims();
+        claims.setIssuer("https://bad.example.com");
+        claims.setExpirationTimeMinutesInTheFuture(5);
+        String unexpectedIssuer = sign(claims, key);
+        try
+        {
+            consumer.process(unexpectedIssuer);
+            Assert.fail("should have failed because of the issuer");
+        }
+        catch (InvalidJwtException e)
+        {
+            assertTrue(e.hasErrorCode(ErrorCodes.SCREENED_OUT_UNVERIFIED));
+            assertFalse(e.hasErrorCode(ErrorCodes.ISSUER_INVALID));
+            assertNull(e.getJwtContext());
+        }
+        assertThat(resolutions[0], equalTo(0));
+
+        claims.setIssuer("https://good.example.com");
+        claims.setExpirationTimeMinutesInTheFuture(-5);
+        try
+        {
+            consumer.process(sign(claims, key));
+            Assert.fail("should have failed because it's expired");
+        }
+        catch (InvalidJwtException e)
+        {
+            // screened out before verification so not reported as the (verified) JWT having expired
+            assertTrue(e.hasErrorCode(ErrorCodes.SCREENED_OUT_UNVERIFIED));
+            assertFalse(e.hasExpired());
+            assertNull(e.getJwtContext());
+        }
+        assertThat(resolutions[0], equalTo(0));
+
+        claims.setExpirationTimeMinutesInTheFuture(5);
+        assertThat(consumer.processToClaims(sign(claims, key)).getIssuer(), equalTo("https://good.example.com"));
+        assertThat(resolutions[0], equalTo(1));
+
+        // a good looking JWT with a bad signature still fails on the signature
+        try
+        {
+            consumer.process(sign(claims, new HmacKey(ByteUtil.randomBytes(32))));
+            Assert.fail("should have failed on the signature");
+        }
+        catch (InvalidJwtException e)
+        {
+            assertTrue(e.hasErrorCode(ErrorCodes.SIGNATURE_INVALID));
+        }
+
+        // without screening the key is resolved and the signature checked first
+        consumer = new JwtConsumerBuilder()
+                .setVerificationKeyResolver(countingResolver)
+                .setExpectedIssuer("https://good.example.com")
+                .build();
+        SimpleJwtConsumerTestHelp.expectProcessingFailure(unexpectedIssuer, consumer);
+        assertThat(resolutions[0], equalTo(3));
+    }
+
+    @Test
+    public void defaultClaimsValidatedInOnePassThenCustomValidators() throws Exception
+    {
+        HmacKey key = new HmacKey(ByteUtil.randomBytes(32));
+        JwtConsumer consumer = new JwtConsumerBuilder()
+                .setVerificationKey(key)
+                .setExpectedAudience("aud")
+                .setExpectedIssuer("iss")
+                .setRequireExpirationTime()
+                .setExpectedSubject("sub")
+                .setRequireJwtId()
+                .registerValidator((ErrorCodeValidator) jwtContext -> new ErrorCodeValidator.Error(-1, "custom"))
+                .build();
+
+        JwtClaims claims = new JwtClaims();
+        claims.setAudience("other aud");
+        claims.setIssuer("other iss");
+        claims.setSubject("other sub");
+        try
+        {
+            consumer.process(sign(claims, key));
+            Assert.fail("the claims are all wrong");
+        }
+        catch (InvalidJwtException e)
+        {
+            List<Integer> codes = new ArrayList<>();
+            for (ErrorCodeValidator.Error error : e.getErrorDetails())
+            {
+                codes.add(error.getErrorCode());
+            }
+            assertThat(codes, equalTo(Arrays.asList(ErrorCodes.AUDIENCE_INVALID, ErrorCodes.ISSUER_INVALID,
+                    ErrorCodes.EXPIRATION_MISSING, ErrorCodes.SUBJECT_INVALID, ErrorCodes.JWT_ID_MISSING, -1)));
+        }
+
+        claims.setClaim(ReservedClaimNames.ISSUER, 42);
+        claims.setAudience("aud");
+        claims.setSubject("sub");
+        claims.setExpirationTimeMinutesInTheFuture(1);
+        claims.setGeneratedJwtId();
+        try
+        {
+            consumer.process(sign(claims, key));
+            Assert.fail("iss is malformed");
+        }
+        catch (InvalidJwtException e)
+        {
+            assertThat(e.getErrorDetails().size(), equalTo(2));
+            assertTrue(e.hasErrorCode(ErrorCodes.MALFORMED_CLAIM));
+        }
+    }
+
+    @Test
+    public void processToVerifiedJwt() throws Exception
+    {
+        HmacKey key = new HmacKey(ByteUtil.randomBytes(32));
+        JwtClaims claims = new JwtClaims();
+        claims.setSubject("me");
+        claims.setExpirationTimeMinutesInTheFuture(5);
+
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA256);
+        jws.setKeyIdHeaderValue("k1");
+        jws.setHeader(HeaderParameterNames.TYPE, "JWT");
+        jws.setKey(key);
+        jws.setPayload(claims.toJson());
+
+        JwtConsumer consumer = new JwtConsumerBuilder()
+                .setVerificationKey(key)
+                .setRequireExpirationTime()
+                .build();
+
+        VerifiedJwt verifiedJwt = consumer.processToVerifiedJwt(jws.getCompactSerialization());
+        assertThat(verifiedJwt.getJwtClaims().getSubject(), equalTo("me"));
+        assertThat(verifiedJwt.getAlgorithmHeaderValue(), equalTo(AlgorithmIdentifiers.HMAC_SHA256));
+        assertThat(verifiedJwt.getKeyIdHeaderValue(), equalTo("k1"));
+        assertThat(verifiedJwt.getTypeHeaderValue(), equalTo("JWT"));
+        assertNull(verifiedJwt.getJwtClaims().getRawJson());
+        try
+        {
+            verifiedJwt.getJwtClaims().setSubject("someone else");
+            Assert.fail("the verified claims shouldn't be modifiable");
+        }
+        catch (UnsupportedOperationException e)
+        {
+            assertThat(verifiedJwt.getJwtClaims().getSubject(), equalTo("me"));
+        }
+
+        SimpleJwtConsumerTestHelp.expectProcessingFailure(sign(claims, new HmacKey(ByteUtil.randomBytes(32))), consumer);
+    }
+
+    @Test
+    public void processAsyncWithPendingKeyResolution() throws Exception
+    {
+        HmacKey signingKey = new HmacKey(ByteUtil.randomBytes(32));
+        AesKey encryptionKey = new AesKey(ByteUtil.randomBytes(16));
+        JwtClaims claims = new JwtClaims();
+        claims.setSubject("async");
+        String jws = sign(claims, signingKey);
+
+        JsonWebEncryption jwe = new JsonWebEncryption();
+        jwe.setAlgorithmHeaderValue(KeyManagementAlgorithmIdentifiers.DIRECT);
+        jwe.setEncryptionMethodHeaderParameter(AES_128_GCM);
+        jwe.setContentTypeHeaderValue("JWT");
+        jwe.setKey(encryptionKey);
+        jwe.setPayload(jws);
+        String nested = jwe.getCompactSerialization();
+
+        final List<CompletableFuture<Key>> pending = new ArrayList<>();
+        final int[] resolutions = {0};
+        final int[] decryptions = {0};
+        JwtConsumer consumer = new JwtConsumerBuilder()
+                .setJweCustomizer((j, nestingContext) -> decryptions[0]++)
+                .setAsyncVerificationKeyResolver((j, nestingContext) ->
+                {
+                    resolutions[0]++;
+                    CompletableFuture<Key> future = new CompletableFuture<>();
+                    pending.add(future);
+                    return future;
+                })
+                .setAsyncDecryptionKeyResolver((j, nestingContext) ->
+                {
+                    resolutions[0]++;
+                    CompletableFuture<Key> future = new CompletableFuture<>();
+                    pending.add(future);
+                    return future;
+                })
+                .build();
+
+        // waiting on a key isn't reported as a failure
+        final List<String> failures = new ArrayList<>();
+        Metrics.setJoseMetrics(new JoseMetrics()
+        {
+            @Override
+            public void recordTime(Operation operation, String tag, boolean success, long nanos)
+            {
+                if (!success)
+                {
+                    failures.add(operation.name());
+                }
+            }
+
+            @Override
+            public void increment(Event event, String tag)
+            {
+            }
+        });
+        CompletableFuture<JwtContext> result;
+        try
+        {
+            result = consumer.processAsync(nested);
+            assertFalse(result.isDone());
+            assertThat(pending.size(), equalTo(1));
+            pending.get(0).complete(encryptionKey);
+            assertFalse(result.isDone());
+            assertThat(pending.size(), equalTo(2));
+            pending.get(1).complete(signingKey);
+        }
+        finally
+        {
+            Metrics.setJoseMetrics(null);
+        }
+        assertTrue(result.isDone());
+        assertThat(result.get().getJwtClaims().getSubject(), equalTo("async"));
+        assertThat(resolutions[0], equalTo(2));
+        assertThat(failures, equalTo(Collections.<String>emptyList()));
+        // picking things up again after the verification key doesn't decrypt again
+        assertThat(decryptions[0], equalTo(1));
+
+        // a resolution that fails
+        result = consumer.processAsync(nested);
+        pending.get(2).completeExceptionally(new UnresolvableKeyException("nope"));
+        assertTrue(result.isCompletedExceptionally());
+        try
+        {
+            result.join();
+            Assert.fail("should have failed on key resolution");
+        }
+        catch (CompletionException e)
+        {
+            assertTrue(e.getCause() instanceof InvalidJwtException);
+        }
+
+        // synchronous resolvers make for an already completed future
+        consumer = new JwtConsumerBuilder()
+                .setDecryptionKey(encryptionKey)
+                .setVerificationKey(signingKey)
+                .build();
+        result = consumer.processAsync(nested);
+        assertTrue(result.isDone());
+        assertThat(result.get().getJwtClaims().getSubject(), equalTo("async"));
+
+        consumer = new JwtConsumerBuilder()
+                .setDecryptionKey(encryptionKey)
+                .setVerificationKey(new HmacKey(ByteUtil.randomBytes(32)))
+                .build();
+        assertTrue(consumer.processAsync(nested).isCompletedExceptionally());
+    }
+
+    private String sign(JwtClaims claims, Key key) throws JoseException
+    {
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA256);
+        jws.setKey(key);
+        jws.setPayload(claims.toJson());
+        return jws.getCompactSerialization();
+    }
 }
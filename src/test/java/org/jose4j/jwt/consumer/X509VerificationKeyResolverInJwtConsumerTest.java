@@ -24,11 +24,22 @@ import org.jose4j.jwt.MalformedClaimException;
 import org.jose4j.jwt.NumericDate;
 import org.jose4j.keys.X509Util;
 import org.jose4j.keys.resolvers.X509VerificationKeyResolver;
+import org.jose4j.lang.HashUtil;
 import org.jose4j.lang.JoseException;
 import org.junit.Assert;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwx.JsonWebStructure;
+import org.jose4j.lang.UnresolvableKeyException;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,6 +52,10 @@ import java.util.List;
 public class X509VerificationKeyResolverInJwtConsumerTest
 {
     private static List<X509Certificate> CERT_LIST;
+    private static List<PrivateKey> PRIVATE_KEY_LIST;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     @BeforeClass
     public static void initKeyList() throws JoseException
@@ -108,12 +123,15 @@ public class X509VerificationKeyResolverInJwtConsumerTest
                 "}";
 
         CERT_LIST = new ArrayList<>();
+        PRIVATE_KEY_LIST = new ArrayList<>();
         for (String s : new String[] {j0, j1, j2, j3, j4})
         {
             PublicJsonWebKey publicJsonWebKey = PublicJsonWebKey.Factory.newPublicJwk(s);
             CERT_LIST.add(publicJsonWebKey.getLeafCertificate());
+            PRIVATE_KEY_LIST.add(publicJsonWebKey.getPrivateKey());
         }
         CERT_LIST = Collections.unmodifiableList(CERT_LIST);
+        PRIVATE_KEY_LIST = Collections.unmodifiableList(PRIVATE_KEY_LIST);
     }
 
     @Test
@@ -280,6 +298,97 @@ public class X509VerificationKeyResolverInJwtConsumerTest
         SimpleJwtConsumerTestHelp.expectProcessingFailure(jwt, jwtContext, jwtConsumer);
     }
 
+    @Test
+    public void noThumbHeaderCandidateIsOnlyAHint() throws Exception
+    {
+        X509VerificationKeyResolver verificationKeyResolver = new X509VerificationKeyResolver(CERT_LIST);
+        verificationKeyResolver.setTryAllOnNoThumbHeader(true);
+
+        // the x5c header identifies the signer
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+        jws.setCertificateChainHeaderValue(CERT_LIST.get(0));
+        jws.setPayload("whatever");
+        jws.setKey(PRIVATE_KEY_LIST.get(0));
+        JsonWebSignature parsed = (JsonWebSignature) JsonWebStructure.fromCompactSerialization(jws.getCompactSerialization());
+        Assert.assertEquals(CERT_LIST.get(0).getPublicKey(), verificationKeyResolver.resolveKey(parsed, Collections.<JsonWebStructure>emptyList()));
+
+        // the x5c header identifies a different certificate than the signer's so all of them get tried
+        jws.setKey(PRIVATE_KEY_LIST.get(1));
+        parsed = (JsonWebSignature) JsonWebStructure.fromCompactSerialization(jws.getCompactSerialization());
+        Assert.assertEquals(CERT_LIST.get(1).getPublicKey(), verificationKeyResolver.resolveKey(parsed, Collections.<JsonWebStructure>emptyList()));
+
+        // same with a kid that identifies a different certificate
+        jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+        jws.setKeyIdHeaderValue(Base64Url.encode(HashUtil.getMessageDigest(HashUtil.SHA_256).digest(CERT_LIST.get(0).getPublicKey().getEncoded())));
+        jws.setPayload("whatever");
+        jws.setKey(PRIVATE_KEY_LIST.get(1));
+        parsed = (JsonWebSignature) JsonWebStructure.fromCompactSerialization(jws.getCompactSerialization());
+        Assert.assertEquals(CERT_LIST.get(1).getPublicKey(), verificationKeyResolver.resolveKey(parsed, Collections.<JsonWebStructure>emptyList()));
+
+        // nothing verifies a bogus signature, including the candidate
+        jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+        jws.setCertificateChainHeaderValue(CERT_LIST.get(0));
+        jws.setPayload("whatever");
+        String cs = jws.getHeaders().getEncodedHeader() + "." + jws.getEncodedPayload() + ".bm90IGEgcmVhbCBzaWduYXR1cmU";
+        parsed = (JsonWebSignature) JsonWebStructure.fromCompactSerialization(cs);
+        try
+        {
+            verificationKeyResolver.resolveKey(parsed, Collections.<JsonWebStructure>emptyList());
+            Assert.fail("shouldn't have resolved a key");
+        }
+        catch (UnresolvableKeyException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void reloadFromPemFile() throws Exception
+    {
+        File file = temporaryFolder.newFile("certs.pem");
+        writePem(file, CERT_LIST.get(0));
+
+        X509VerificationKeyResolver verificationKeyResolver = new X509VerificationKeyResolver();
+        verificationKeyResolver.setPemCertificateFile(file.toPath(), 0);
+
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setX509CertSha1ThumbprintHeaderValue(CERT_LIST.get(0));
+        List<JsonWebStructure> nestingContext = Collections.emptyList();
+        Assert.assertEquals(CERT_LIST.get(0).getPublicKey(), verificationKeyResolver.resolveKey(jws, nestingContext));
+
+        writePem(file, CERT_LIST.get(1), CERT_LIST.get(3));
+        Assert.assertTrue(file.setLastModified(file.lastModified() - 60000));
+
+        try
+        {
+            verificationKeyResolver.resolveKey(jws, nestingContext);
+            Assert.fail("cert 0 shouldn't be there anymore");
+        }
+        catch (UnresolvableKeyException e)
+        {
+            // expected
+        }
+
+        jws.setX509CertSha1ThumbprintHeaderValue(CERT_LIST.get(3));
+        Assert.assertEquals(CERT_LIST.get(3).getPublicKey(), verificationKeyResolver.resolveKey(jws, nestingContext));
+    }
+
+    private void writePem(File file, X509Certificate... certificates) throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        X509Util x509Util = new X509Util();
+        for (X509Certificate certificate : certificates)
+        {
+            sb.append("-----BEGIN CERTIFICATE-----\n");
+            sb.append(x509Util.toPem(certificate));
+            sb.append("-----END CERTIFICATE-----\n");
+        }
+        Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
     @Test
     public void compareToOpenSslFingerprints() throws Exception
     {
@@ -16,6 +16,7 @@
 
 package org.jose4j.keys;
 
+import org.jose4j.jca.InstancePool;
 import org.jose4j.jwk.PublicJsonWebKey;
 import org.jose4j.jws.AlgorithmIdentifiers;
 import org.jose4j.jws.JsonWebSignature;
@@ -25,7 +26,9 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.security.KeyFactory;
 import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
 
 import static org.hamcrest.CoreMatchers.*;
 
@@ -82,4 +85,47 @@ public class KeyPairUtilTest
         Assert.assertThat(publicKey, equalTo(public256));
     }
 
+    @Test
+    public void keyFactoriesAreTakenFromAndReleasedToThePool() throws Exception
+    {
+        InstancePool<KeyFactory> pool = KeyPairUtil.getKeyFactoryPool();
+        String poolKey = InstancePool.key(RsaKeyUtil.RSA, null);
+        pool.clear();
+        KeyFactory keyFactory = KeyFactory.getInstance(RsaKeyUtil.RSA);
+        pool.release(poolKey, keyFactory);
+
+        RSAPublicKey rsaPublicKey = (RSAPublicKey) ExampleRsaJwksFromJwe.APPENDIX_A_1.getPublicKey();
+        RsaKeyUtil rsaKeyUtil = new RsaKeyUtil();
+        Assert.assertThat(rsaKeyUtil.publicKey(rsaPublicKey.getModulus(), rsaPublicKey.getPublicExponent()), equalTo((PublicKey) rsaPublicKey));
+
+        // the one that was in the pool was used and put back
+        Assert.assertThat(pool.take(poolKey), sameInstance(keyFactory));
+        Assert.assertThat(pool.take(poolKey), nullValue());
+    }
+
+    @Test
+    public void providerSpecificKeyFactoriesStayWithThatProvider() throws Exception
+    {
+        InstancePool<KeyFactory> pool = KeyPairUtil.getKeyFactoryPool();
+        String provider = KeyFactory.getInstance(RsaKeyUtil.RSA).getProvider().getName();
+        String defaultPoolKey = InstancePool.key(RsaKeyUtil.RSA, null);
+        String providerPoolKey = InstancePool.key(RsaKeyUtil.RSA, provider);
+        pool.clear();
+        KeyFactory providerKeyFactory = KeyFactory.getInstance(RsaKeyUtil.RSA, provider);
+        pool.release(providerPoolKey, providerKeyFactory);
+
+        RSAPublicKey rsaPublicKey = (RSAPublicKey) ExampleRsaJwksFromJwe.APPENDIX_A_1.getPublicKey();
+        new RsaKeyUtil().publicKey(rsaPublicKey.getModulus(), rsaPublicKey.getPublicExponent());
+        KeyFactory defaultKeyFactory = pool.take(defaultPoolKey);
+        Assert.assertThat(defaultKeyFactory, notNullValue());
+        Assert.assertThat(defaultKeyFactory, not(sameInstance(providerKeyFactory)));
+        Assert.assertThat(pool.take(providerPoolKey), sameInstance(providerKeyFactory));
+
+        pool.release(defaultPoolKey, defaultKeyFactory);
+        new RsaKeyUtil(provider, null).publicKey(rsaPublicKey.getModulus(), rsaPublicKey.getPublicExponent());
+        Assert.assertThat(pool.take(defaultPoolKey), sameInstance(defaultKeyFactory));
+        KeyFactory fromProviderPool = pool.take(providerPoolKey);
+        Assert.assertThat(fromProviderPool, not(sameInstance(defaultKeyFactory)));
+        Assert.assertThat(fromProviderPool.getProvider().getName(), equalTo(provider));
+    }
 }
@@ -0,0 +1,114 @@
+package org.jose4j.keys;
+
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwx.JsonWebStructure;
+import org.junit.Test;
+
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ */
+public class X509CertificateChainCacheTest
+{
+    private static final String CERT =
+            "MIICUTCCAfugAwIBAgIBADANBgkqhkiG9w0BAQQFADBXMQswCQYDVQQGEwJDTjEL" +
+            "MAkGA1UECBMCUE4xCzAJBgNVBAcTAkNOMQswCQYDVQQKEwJPTjELMAkGA1UECxMC" +
+            "VU4xFDASBgNVBAMTC0hlcm9uZyBZYW5nMB4XDTA1MDcxNTIxMTk0N1oXDTA1MDgx" +
+            "NDIxMTk0N1owVzELMAkGA1UEBhMCQ04xCzAJBgNVBAgTAlBOMQswCQYDVQQHEwJD" +
+            "TjELMAkGA1UEChMCT04xCzAJBgNVBAsTAlVOMRQwEgYDVQQDEwtIZXJvbmcgWWFu" +
+            "ZzBcMA0GCSqGSIb3DQEBAQUAA0sAMEgCQQCp5hnG7ogBhtlynpOS21cBewKE/B7j" +
+            "V14qeyslnr26xZUsSVko36ZnhiaO/zbMOoRcKK9vEcgMtcLFuQTWDl3RAgMBAAGj" +
+            "gbEwga4wHQYDVR0OBBYEFFXI70krXeQDxZgbaCQoR4jUDncEMH8GA1UdIwR4MHaA" +
+            "FFXI70krXeQDxZgbaCQoR4jUDncEoVukWTBXMQswCQYDVQQGEwJDTjELMAkGA1UE" +
+            "CBMCUE4xCzAJBgNVBAcTAkNOMQswCQYDVQQKEwJPTjELMAkGA1UECxMCVU4xFDAS" +
+            "BgNVBAMTC0hlcm9uZyBZYW5nggEAMAwGA1UdEwQFMAMBAf8wDQYJKoZIhvcNAQEE" +
+            "BQADQQA/ugzBrjjK9jcWnDVfGHlk3icNRq0oV7Ri32z/+HQX67aRfgZu7KWdI+Ju" +
+            "Wm7DCfrPNGVwFWUQOmsPue9rZBgO";
+
+    @Test
+    public void parsesOnlyOnce() throws Exception
+    {
+        X509CertificateChainCache cache = new X509CertificateChainCache();
+        List<String> x5c = Collections.singletonList(CERT);
+        List<X509Certificate> chain = cache.getCertificateChain(x5c);
+        assertEquals(1, chain.size());
+        assertTrue(chain.get(0).getSubjectDN().toString().contains("Yang"));
+
+        List<X509Certificate> again = cache.getCertificateChain(Collections.singletonList(new String(CERT)));
+        assertSame(chain.get(0), again.get(0));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void validationResultExpires() throws Exception
+    {
+        X509CertificateChainCache cache = new X509CertificateChainCache();
+        List<String> x5c = Collections.singletonList(CERT);
+        Object trustContext = new Object();
+        assertNull(cache.getValidationResult(x5c, trustContext));
+
+        cache.putValidationResult(x5c, trustContext, false);
+        assertFalse(cache.getValidationResult(x5c, trustContext));
+        cache.putValidationResult(x5c, trustContext, true);
+        assertTrue(cache.getValidationResult(x5c, trustContext));
+
+        cache.setValidationResultTtl(-1);
+        cache.putValidationResult(x5c, trustContext, true);
+        assertNull(cache.getValidationResult(x5c, trustContext));
+    }
+
+    @Test
+    public void validationResultIsOnlyForTheSameTrustContext() throws Exception
+    {
+        X509CertificateChainCache cache = new X509CertificateChainCache();
+        List<String> x5c = Collections.singletonList(CERT);
+        Set<TrustAnchor> trustedByOne = Collections.singleton(new TrustAnchor(new X509Util().fromBase64Der(CERT), null));
+        Set<TrustAnchor> trustedByAnother = new HashSet<>(trustedByOne);
+
+        cache.putValidationResult(x5c, trustedByOne, true);
+        assertTrue(cache.getValidationResult(x5c, trustedByOne));
+        assertNull(cache.getValidationResult(x5c, trustedByAnother));
+        assertNull(cache.getValidationResult(x5c, null));
+
+        cache.putValidationResult(x5c, trustedByAnother, false);
+        assertFalse(cache.getValidationResult(x5c, trustedByAnother));
+        assertNull(cache.getValidationResult(x5c, trustedByOne));
+    }
+
+    @Test
+    public void headerValueUsesCache() throws Exception
+    {
+        X509Certificate certificate = new X509Util().fromBase64Der(CERT);
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.NONE);
+        jws.setCertificateChainHeaderValue(certificate);
+        jws.setPayload("meh");
+        jws.setAlgorithmConstraints(org.jose4j.jwa.AlgorithmConstraints.NO_CONSTRAINTS);
+        String cs = jws.getCompactSerialization();
+
+        X509CertificateChainCache cache = new X509CertificateChainCache();
+        JsonWebStructure first = JsonWebStructure.fromCompactSerialization(cs);
+        first.setCertificateChainCache(cache);
+        JsonWebStructure second = JsonWebStructure.fromCompactSerialization(cs);
+        second.setCertificateChainCache(cache);
+        X509Certificate leaf = first.getLeafCertificateHeaderValue();
+        assertEquals(certificate, leaf);
+        assertSame(leaf, second.getLeafCertificateHeaderValue());
+
+        JsonWebStructure uncached = JsonWebStructure.fromCompactSerialization(cs);
+        uncached.setCertificateChainCache(null);
+        assertEquals(leaf, uncached.getLeafCertificateHeaderValue());
+    }
+}
@@ -18,38 +18,48 @@ package org.jose4j.keys;
 
 import junit.framework.TestCase;
 import org.jose4j.base64url.internal.apache.commons.codec.binary.BaseNCodec;
+import org.jose4j.jca.InstancePool;
 import org.jose4j.json.JsonUtil;
 import org.jose4j.jwk.JsonWebKey;
 import org.jose4j.jwk.PublicJsonWebKey;
 import org.jose4j.lang.JoseException;
+import org.jose4j.lang.StringUtil;
 
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  */
 public class X509UtilTest extends TestCase
 {
+    private static final String CERT =
+            "MIICUTCCAfugAwIBAgIBADANBgkqhkiG9w0BAQQFADBXMQswCQYDVQQGEwJDTjEL\n" +
+            "MAkGA1UECBMCUE4xCzAJBgNVBAcTAkNOMQswCQYDVQQKEwJPTjELMAkGA1UECxMC\n" +
+            "VU4xFDASBgNVBAMTC0hlcm9uZyBZYW5nMB4XDTA1MDcxNTIxMTk0N1oXDTA1MDgx\n" +
+            "NDIxMTk0N1owVzELMAkGA1UEBhMCQ04xCzAJBgNVBAgTAlBOMQswCQYDVQQHEwJD\n" +
+            "TjELMAkGA1UEChMCT04xCzAJBgNVBAsTAlVOMRQwEgYDVQQDEwtIZXJvbmcgWWFu\n" +
+            "ZzBcMA0GCSqGSIb3DQEBAQUAA0sAMEgCQQCp5hnG7ogBhtlynpOS21cBewKE/B7j\n" +
+            "V14qeyslnr26xZUsSVko36ZnhiaO/zbMOoRcKK9vEcgMtcLFuQTWDl3RAgMBAAGj\n" +
+            "gbEwga4wHQYDVR0OBBYEFFXI70krXeQDxZgbaCQoR4jUDncEMH8GA1UdIwR4MHaA\n" +
+            "FFXI70krXeQDxZgbaCQoR4jUDncEoVukWTBXMQswCQYDVQQGEwJDTjELMAkGA1UE\n" +
+            "CBMCUE4xCzAJBgNVBAcTAkNOMQswCQYDVQQKEwJPTjELMAkGA1UECxMCVU4xFDAS\n" +
+            "BgNVBAMTC0hlcm9uZyBZYW5nggEAMAwGA1UdEwQFMAMBAf8wDQYJKoZIhvcNAQEE\n" +
+            "BQADQQA/ugzBrjjK9jcWnDVfGHlk3icNRq0oV7Ri32z/+HQX67aRfgZu7KWdI+Ju\n" +
+            "Wm7DCfrPNGVwFWUQOmsPue9rZBgO\n";
+
     public void testFromBase64DerAndBackAndMore() throws JoseException
     {
-        String s =
-                "MIICUTCCAfugAwIBAgIBADANBgkqhkiG9w0BAQQFADBXMQswCQYDVQQGEwJDTjEL\n" +
-                "MAkGA1UECBMCUE4xCzAJBgNVBAcTAkNOMQswCQYDVQQKEwJPTjELMAkGA1UECxMC\n" +
-                "VU4xFDASBgNVBAMTC0hlcm9uZyBZYW5nMB4XDTA1MDcxNTIxMTk0N1oXDTA1MDgx\n" +
-                "NDIxMTk0N1owVzELMAkGA1UEBhMCQ04xCzAJBgNVBAgTAlBOMQswCQYDVQQHEwJD\n" +
-                "TjELMAkGA1UEChMCT04xCzAJBgNVBAsTAlVOMRQwEgYDVQQDEwtIZXJvbmcgWWFu\n" +
-                "ZzBcMA0GCSqGSIb3DQEBAQUAA0sAMEgCQQCp5hnG7ogBhtlynpOS21cBewKE/B7j\n" +
-                "V14qeyslnr26xZUsSVko36ZnhiaO/zbMOoRcKK9vEcgMtcLFuQTWDl3RAgMBAAGj\n" +
-                "gbEwga4wHQYDVR0OBBYEFFXI70krXeQDxZgbaCQoR4jUDncEMH8GA1UdIwR4MHaA\n" +
-                "FFXI70krXeQDxZgbaCQoR4jUDncEoVukWTBXMQswCQYDVQQGEwJDTjELMAkGA1UE\n" +
-                "CBMCUE4xCzAJBgNVBAcTAkNOMQswCQYDVQQKEwJPTjELMAkGA1UECxMCVU4xFDAS\n" +
-                "BgNVBAMTC0hlcm9uZyBZYW5nggEAMAwGA1UdEwQFMAMBAf8wDQYJKoZIhvcNAQEE\n" +
-                "BQADQQA/ugzBrjjK9jcWnDVfGHlk3icNRq0oV7Ri32z/+HQX67aRfgZu7KWdI+Ju\n" +
-                "Wm7DCfrPNGVwFWUQOmsPue9rZBgO\n";
-
         X509Util x5u = new X509Util();
-        X509Certificate x509Certificate = x5u.fromBase64Der(s);
+        X509Certificate x509Certificate = x5u.fromBase64Der(CERT);
         assertTrue(x509Certificate.getSubjectDN().toString().contains("Yang"));
 
         String pem = x5u.toPem(x509Certificate);
@@ -83,4 +93,93 @@ public class X509UtilTest extends TestCase
         X509Certificate x509Certificate = x5u.fromBase64Der(bder);
         assertTrue(x509Certificate.getSubjectDN().toString().contains("federated-signon.system.gserviceaccount.com"));
     }
+
+    public void testCertificateFactoriesAreTakenFromAndReleasedToThePool() throws Exception
+    {
+        X509Util x509Util = X509Util.getX509Util(null);
+        InstancePool<CertificateFactory> pool = X509Util.getCertificateFactoryPool();
+        String poolKey = InstancePool.key((String) null);
+        pool.clear();
+        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+        pool.release(poolKey, certificateFactory);
+
+        assertTrue(x509Util.fromBase64Der(CERT).getSubjectDN().toString().contains("Yang"));
+
+        // the one that was in the pool was used and put back
+        assertSame(certificateFactory, pool.take(poolKey));
+        assertNull(pool.take(poolKey));
+    }
+
+    public void testSharedInstanceUsedConcurrently() throws Exception
+    {
+        final X509Util x509Util = X509Util.getX509Util(null);
+        assertSame(x509Util, X509Util.getX509Util(null));
+        final X509Certificate expected = x509Util.fromBase64Der(CERT);
+        String pemCertificate = "-----BEGIN CERTIFICATE-----\n" + x509Util.toPem(expected) + "\n-----END CERTIFICATE-----\n";
+        final byte[] pem = StringUtil.getBytesAscii(pemCertificate + pemCertificate);
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++)
+            {
+                futures.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        start.await();
+                        for (int j = 0; j < 200; j++)
+                        {
+                            assertEquals(expected, x509Util.fromBase64Der(CERT));
+                            List<X509Certificate> certificates = x509Util.fromEncodedCertificates(new ByteArrayInputStream(pem));
+                            assertEquals(2, certificates.size());
+                            assertEquals(expected, certificates.get(1));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures)
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    public void testProviderSpecificFactoriesStayWithThatProvider() throws Exception
+    {
+        String provider = CertificateFactory.getInstance("X.509").getProvider().getName();
+        X509Util defaultX509Util = X509Util.getX509Util(null);
+        X509Util providerX509Util = X509Util.getX509Util(provider);
+        assertNotSame(defaultX509Util, providerX509Util);
+
+        InstancePool<CertificateFactory> pool = X509Util.getCertificateFactoryPool();
+        String defaultPoolKey = InstancePool.key((String) null);
+        String providerPoolKey = InstancePool.key(provider);
+        pool.clear();
+        CertificateFactory providerCertificateFactory = CertificateFactory.getInstance("X.509", provider);
+        pool.release(providerPoolKey, providerCertificateFactory);
+
+        defaultX509Util.fromBase64Der(CERT);
+        CertificateFactory defaultCertificateFactory = pool.take(defaultPoolKey);
+        assertNotNull(defaultCertificateFactory);
+        assertNotSame(providerCertificateFactory, defaultCertificateFactory);
+        assertSame(providerCertificateFactory, pool.take(providerPoolKey));
+
+        pool.release(defaultPoolKey, defaultCertificateFactory);
+        providerX509Util.fromBase64Der(CERT);
+        assertSame(defaultCertificateFactory, pool.take(defaultPoolKey));
+        CertificateFactory fromProviderPool = pool.take(providerPoolKey);
+        assertNotSame(defaultCertificateFactory, fromProviderPool);
+        assertEquals(provider, fromProviderPool.getProvider().getName());
+    }
 }
@@ -30,9 +30,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.security.Key;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
@@ -115,6 +117,43 @@ public class HttpsJwksVerificationKeyResolverTest
         }
     }
 
+    @Test
+    public void resolveKeyAsyncFromCacheAndFromExecutor() throws Exception
+    {
+        String jwksJson = "{\"keys\":[{\"kty\":\"EC\",\"kid\":\"k1\",\"x\":\"1u9oeAkLQJcAnrv_m4fupf-lF43yFqmNjMsrukKDhEE\",\"y\":\"RG0cyWzinUl8NpfVVw2DqfH6zRqU_yF6aL1swssNv4E\",\"crv\":\"P-256\"}]}";
+        JsonWebKey k1 = new JsonWebKeySet(jwksJson).getJsonWebKeys().iterator().next();
+
+        String location = "https://www.example.org/";
+        DefaultHttpsJwks httpsJkws = new DefaultHttpsJwks(location);
+        Get mockGet = mock(Get.class);
+        Map<String,List<String>> headers = Collections.emptyMap();
+        when(mockGet.get(location)).thenReturn(new Response(200, "OK", headers, jwksJson));
+        httpsJkws.setSimpleHttpGet(mockGet);
+        assertNull(httpsJkws.getCachedJsonWebKeys());
+
+        final List<Runnable> tasks = new ArrayList<>();
+        HttpsJwksVerificationKeyResolver resolver = new HttpsJwksVerificationKeyResolver(httpsJkws);
+        resolver.setAsyncExecutor(tasks::add);
+
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256);
+        jws.setKeyIdHeaderValue("k1");
+
+        // nothing cached yet so the fetch is left to the executor
+        CompletableFuture<Key> future = resolver.resolveKeyAsync(jws, Collections.<JsonWebStructure>emptyList()).toCompletableFuture();
+        assertFalse(future.isDone());
+        assertThat(tasks.size(), equalTo(1));
+        tasks.get(0).run();
+        assertThat(future.get(), equalTo(k1.getKey()));
+
+        // then it comes right from the cache
+        future = resolver.resolveKeyAsync(jws, Collections.<JsonWebStructure>emptyList()).toCompletableFuture();
+        assertTrue(future.isDone());
+        assertThat(future.get(), equalTo(k1.getKey()));
+        assertThat(tasks.size(), equalTo(1));
+        verify(mockGet, times(1)).get(location);
+    }
+
     @Test
     public void testAnEx() throws Exception
     {
@@ -0,0 +1,25 @@
+package org.jose4j.mac;
+
+import org.jose4j.keys.HmacKey;
+import org.jose4j.lang.ByteUtil;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class MacUtilTest
+{
+    @Test
+    public void releasedMacDoesNotKeepTheKey() throws Exception
+    {
+        byte[] data = ByteUtil.randomBytes(40);
+        Mac mac = MacUtil.takeInitializedMac(MacUtil.HMAC_SHA256, new HmacKey(ByteUtil.randomBytes(32)), null);
+        mac.update(data);
+        MacUtil.releaseMac(MacUtil.HMAC_SHA256, null, mac);
+
+        // released Macs are left keyed with a throwaway all zero key rather than the last key they were used with
+        byte[] expected = MacUtil.getInitializedMac(MacUtil.HMAC_SHA256, new HmacKey(new byte[32])).doFinal(data);
+        assertArrayEquals(expected, mac.doFinal(data));
+    }
+}
@@ -0,0 +1,193 @@
+package org.jose4j.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jose4j.http.SimpleGet;
+import org.jose4j.http.Response;
+import org.jose4j.http.SimpleResponse;
+import org.jose4j.jwe.ContentEncryptionAlgorithmIdentifiers;
+import org.jose4j.jwe.JsonWebEncryption;
+import org.jose4j.jwe.KeyManagementAlgorithmIdentifiers;
+import org.jose4j.jwk.DefaultHttpsJwks;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+import org.jose4j.keys.AesKey;
+import org.jose4j.keys.HmacKey;
+import org.jose4j.lang.ByteUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void tearDown()
+    {
+        Metrics.setJoseMetrics(null);
+    }
+
+    @Test
+    public void reportsJwtConsumerStages() throws Exception
+    {
+        RecordingMetrics recording = new RecordingMetrics();
+        Metrics.setJoseMetrics(recording);
+
+        HmacKey key = new HmacKey(ByteUtil.randomBytes(32));
+        JwtClaims claims = new JwtClaims();
+        claims.setSubject("subject");
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA256);
+        jws.setKey(key);
+        jws.setPayload(claims.toJson());
+        String jwt = jws.getCompactSerialization();
+
+        JwtConsumer consumer = new JwtConsumerBuilder().setVerificationKey(key).build();
+        consumer.process(jwt);
+        assertThat(recording.timings, hasItems(
+                "PARSE HS256 true",
+                "PARSE null true",
+                "KEY_RESOLUTION HS256 true",
+                "SIGNATURE_VERIFICATION HS256 true",
+                "CLAIMS_VALIDATION null true",
+                "JWT_PROCESSING HS256 true"));
+
+        recording.timings.clear();
+        consumer = new JwtConsumerBuilder().setVerificationKey(new HmacKey(ByteUtil.randomBytes(32))).build();
+        try
+        {
+            consumer.process(jwt);
+            Assert.fail("should have failed on the signature");
+        }
+        catch (InvalidJwtException e)
+        {
+            assertThat(recording.timings, hasItems("SIGNATURE_VERIFICATION HS256 false", "JWT_PROCESSING HS256 false"));
+        }
+    }
+
+    @Test
+    public void reportsStreamingJweOperations() throws Exception
+    {
+        RecordingMetrics recording = new RecordingMetrics();
+        Metrics.setJoseMetrics(recording);
+
+        AesKey key = new AesKey(ByteUtil.randomBytes(16));
+        byte[] payload = new byte[50000];
+        JsonWebEncryption jwe = new JsonWebEncryption();
+        jwe.setAlgorithmHeaderValue(KeyManagementAlgorithmIdentifiers.A128KW);
+        jwe.setEncryptionMethodHeaderParameter(ContentEncryptionAlgorithmIdentifiers.AES_128_GCM);
+        jwe.enableDefaultCompression();
+        jwe.setKey(key);
+        ByteArrayOutputStream compactSerialization = new ByteArrayOutputStream();
+        jwe.encrypt(new ByteArrayInputStream(payload), compactSerialization);
+
+        jwe = new JsonWebEncryption();
+        jwe.setKey(key);
+        ByteArrayOutputStream plaintext = new ByteArrayOutputStream();
+        jwe.decrypt(new ByteArrayInputStream(compactSerialization.toByteArray()), plaintext);
+        assertThat(plaintext.size(), equalTo(payload.length));
+
+        assertThat(recording.timings, equalTo(Arrays.asList("ENCRYPTION A128KW true", "DECOMPRESSION DEF true", "DECRYPTION A128KW true")));
+    }
+
+    @Test
+    public void reportsJwksCacheAndRefresh() throws Exception
+    {
+        RecordingMetrics recording = new RecordingMetrics();
+        Metrics.setJoseMetrics(recording);
+
+        String location = "https://example.com/jwks";
+        DefaultHttpsJwks httpsJwks = new DefaultHttpsJwks(location);
+        httpsJwks.setSimpleHttpGet(new SimpleGet()
+        {
+            @Override
+            public SimpleResponse get(String location)
+            {
+                Map<String, List<String>> headers = Collections.emptyMap();
+                return new Response(200, "OK", headers, "{\"keys\":[{\"kty\":\"oct\",\"kid\":\"one\",\"k\":\"AQAB\"}]}");
+            }
+        });
+        httpsJwks.getJsonWebKeys();
+        httpsJwks.getJsonWebKeys();
+
+        assertThat(recording.timings, equalTo(Collections.singletonList("JWKS_REFRESH " + location + " true")));
+        assertThat(recording.events, equalTo(Arrays.asList("JWKS_CACHE_MISS " + location, "JWKS_CACHE_HIT " + location)));
+    }
+
+    @Test
+    public void emitsFlightRecorderEvents() throws Exception
+    {
+        HmacKey key = new HmacKey(ByteUtil.randomBytes(32));
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording())
+        {
+            recording.enable("org.jose4j.Operation");
+            recording.start();
+
+            JsonWebSignature jws = new JsonWebSignature();
+            jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.HMAC_SHA256);
+            jws.setKey(key);
+            jws.setPayload("payload");
+            String cs = jws.getCompactSerialization();
+
+            jws = new JsonWebSignature();
+            jws.setCompactSerialization(cs);
+            jws.setKey(key);
+            assertTrue(jws.verifySignature());
+
+            recording.stop();
+            Path file = temporaryFolder.newFile().toPath();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        List<String> operations = new ArrayList<>();
+        for (RecordedEvent event : events)
+        {
+            operations.add(event.getString("operation") + " " + event.getString("tag") + " " + event.getBoolean("success"));
+            assertTrue(event.getLong("inputSize") > 0);
+        }
+        assertThat(operations, hasItems("SIGNING HS256 true", "SIGNATURE_VERIFICATION HS256 true"));
+    }
+
+    private static class RecordingMetrics implements JoseMetrics
+    {
+        private final List<String> timings = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void recordTime(Operation operation, String tag, boolean success, long nanos)
+        {
+            timings.add(operation + " " + tag + " " + success);
+        }
+
+        @Override
+        public void increment(Event event, String tag)
+        {
+            events.add(event + " " + tag);
+        }
+    }
+}
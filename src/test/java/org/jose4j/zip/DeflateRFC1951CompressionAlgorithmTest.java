@@ -23,6 +23,11 @@ import org.jose4j.lang.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
 
 /**
  */
@@ -86,4 +91,86 @@ public class DeflateRFC1951CompressionAlgorithmTest extends TestCase
         String decompedString = StringUtil.newStringUtf8(decompress);
         assertTrue(decompedString.contains("Hello world!"));
     }
+
+    public void testCompressionLevelsAndReuse() throws JoseException
+    {
+        byte[] data = StringUtil.getBytesUtf8("{\"sub\":\"Brian\",\"aud\":\"https://sp.example.org\",\"iss\":\"https://idp.example.com\"}");
+        for (int level : new int[] {0, 1, 9, -1, DeflateRFC1951CompressionAlgorithm.DEFAULT_COMPRESSION_LEVEL})
+        {
+            DeflateRFC1951CompressionAlgorithm ca = new DeflateRFC1951CompressionAlgorithm(level);
+            assertEquals(level, ca.getCompressionLevel());
+            byte[] compressed = ca.compress(data);
+            for (int i = 0; i < 3; i++)
+            {
+                assertTrue(Arrays.equals(compressed, ca.compress(data)));
+                assertTrue(Arrays.equals(data, ca.decompress(compressed)));
+            }
+        }
+    }
+
+    public void testTruncated()
+    {
+        CompressionAlgorithm ca = new DeflateRFC1951CompressionAlgorithm();
+        byte[] compressed = ca.compress(new byte[5000]);
+        try
+        {
+            byte[] decompress = ca.decompress(Arrays.copyOf(compressed, compressed.length - 2));
+            fail("should not have decompressed truncated data " + decompress.length);
+        }
+        catch (JoseException e)
+        {
+            log.debug("Expected exception because the compressed data is truncated " + e);
+        }
+    }
+
+    public void testInvalidCompressionLevel()
+    {
+        try
+        {
+            new DeflateRFC1951CompressionAlgorithm(10);
+            fail("10 isn't a compression level");
+        }
+        catch (IllegalArgumentException e)
+        {
+            log.debug("Expected exception " + e);
+        }
+    }
+
+    public void testStreamedDecompressionTooBig() throws Exception
+    {
+        byte[] data = new byte[100000];
+        System.setProperty(DeflateRFC1951CompressionAlgorithm.STREAM_DECOMPRESS_MAX_BYTES_PROPERTY_NAME, "50000");
+        DeflateRFC1951CompressionAlgorithm ca;
+        try
+        {
+            ca = new DeflateRFC1951CompressionAlgorithm();
+        }
+        finally
+        {
+            System.clearProperty(DeflateRFC1951CompressionAlgorithm.STREAM_DECOMPRESS_MAX_BYTES_PROPERTY_NAME);
+        }
+        byte[] compressed = ca.compress(data);
+
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try
+        {
+            try (OutputStream decompressing = ca.decompressing(decompressed))
+            {
+                decompressing.write(compressed);
+            }
+            fail("should not have decompressed b/c too big size " + decompressed.size());
+        }
+        catch (IOException e)
+        {
+            log.debug("Expected exception because this tests going over the max allowed size of streamed decompressed data " + e);
+            assertTrue(decompressed.size() <= 50000);
+        }
+
+        decompressed = new ByteArrayOutputStream();
+        try (OutputStream decompressing = new DeflateRFC1951CompressionAlgorithm().decompressing(decompressed))
+        {
+            decompressing.write(compressed);
+        }
+        assertTrue(Arrays.equals(data, decompressed.toByteArray()));
+    }
 }